@@ -0,0 +1,571 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Memory-mapped reader for adjacency list text files
+ * *Each non-blank line is a list of tokens separated by whitespace; the reader
+ * splits lines into tokens directly on the mapped bytes, without Scanner or
+ * per-token Strings
+ * *Vertex names are decoded and interned once, so every occurrence of a name
+ * returns the same String
+ * *Files larger than 2 GB are mapped in windows that end on a line break
+ *
+ * @author <i>Charlie Lin</i>
+ */
+class AdjacencyReader {
+    /** default size of a mapped window */
+    static final int WINDOW_SIZE = 1 << 30;
+
+    /** default size of a chunk parsed by one task */
+    static final int CHUNK_SIZE = 1 << 24;
+
+    /**
+     * Receives the lines of an adjacency file in order
+     */
+    interface LineHandler {
+        /**
+         * @param line the tokens of one non-blank line, only valid during the call
+         */
+        void line(Line line);
+    }
+
+    /** mapped windows of the file, back to back */
+    private final ArrayList<MappedByteBuffer> windows;
+
+    /** interned vertex names */
+    private final NameTable names;
+
+    /** the size a chunk is cut at before moving to the end of its line */
+    private final int chunkSize;
+
+    /**
+     * Maps a file for reading
+     *
+     * @param filename   the file to read
+     * @param windowSize the largest number of bytes mapped at once
+     * @param chunkSize  the size of a chunk parsed by one task in parseChunks
+     * @throws FileNotFoundException file does not exist or cannot be opened
+     */
+    AdjacencyReader(String filename, int windowSize, int chunkSize) throws FileNotFoundException {
+        windows = new ArrayList<MappedByteBuffer>();
+        names = new NameTable();
+        this.chunkSize = chunkSize;
+        // the mappings stay valid after the file is closed
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(windowSize, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                // cut the window after its last line break unless it reaches the end
+                if (position + length < size) {
+                    int end = (int) length;
+                    while (end > 0 && !isLineBreak(window.get(end - 1)))
+                        end--;
+                    if (end == 0)
+                        throw new IOException("line longer than " + windowSize + " bytes in " + filename);
+                    window.limit(end);
+                    length = end;
+                }
+                windows.add(window);
+                position += length;
+            }
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps a file for reading with the default window and chunk sizes
+     *
+     * @param filename the file to read
+     * @throws FileNotFoundException file does not exist or cannot be opened
+     */
+    AdjacencyReader(String filename) throws FileNotFoundException {
+        this(filename, WINDOW_SIZE, CHUNK_SIZE);
+    }
+
+    /**
+     * Counts the non-blank lines of the file, used to presize graphs before
+     * reading
+     *
+     * @return the number of lines holding at least one token
+     */
+    long lineCount() {
+        long count = 0;
+        for (MappedByteBuffer window : windows) {
+            boolean blank = true;
+            int limit = window.limit();
+            for (int i = 0; i < limit; i++) {
+                byte b = window.get(i);
+                if (isLineBreak(b)) {
+                    if (!blank)
+                        count++;
+                    blank = true;
+                } else if (!isSpace(b)) {
+                    blank = false;
+                }
+            }
+            // windows end on a line break, except maybe the last one
+            if (!blank)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Splits every non-blank line into tokens and passes it to the handler, in file
+     * order
+     *
+     * @param handler receives each line
+     */
+    void forEachLine(LineHandler handler) {
+        Line line = new Line(names);
+        for (MappedByteBuffer window : windows)
+            scan(window, 0, window.limit(), line, handler);
+    }
+
+    /**
+     * Splits the file into chunks of whole lines and parses them in parallel on the
+     * common fork-join pool
+     * *Each chunk interns its own names, so tasks share nothing while parsing
+     *
+     * @param weighted true if lines alternate names and weights, false if every
+     *                 token is a name
+     * @return the parsed chunks in file order
+     */
+    List<Chunk> parseChunks(boolean weighted) {
+        ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+        for (MappedByteBuffer window : windows) {
+            int limit = window.limit();
+            int from = 0;
+            while (from < limit) {
+                // move the cut forward to the end of a line
+                int to = (int) Math.min((long) from + chunkSize, limit);
+                while (to < limit && !isLineBreak(window.get(to - 1)))
+                    to++;
+                chunks.add(new Chunk(window, from, to, weighted));
+                from = to;
+            }
+        }
+        ForkJoinTask.invokeAll(chunks);
+        return chunks;
+    }
+
+    /**
+     * Splits the lines of part of a window into tokens and passes each non-blank
+     * line to the handler
+     *
+     * @param window  the window to scan
+     * @param from    start of the part, at the start of a line
+     * @param to      end of the part, at the end of a line
+     * @param line    holds the tokens of the current line
+     * @param handler receives each line
+     */
+    private static void scan(MappedByteBuffer window, int from, int to, Line line, LineHandler handler) {
+        line.window = window;
+        int i = from;
+        while (i < to) {
+            line.count = 0;
+            // collect the tokens of one line
+            while (i < to) {
+                byte b = window.get(i);
+                if (isLineBreak(b)) {
+                    i++;
+                    break;
+                }
+                if (isSpace(b)) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < to && !isSpace(window.get(i)) && !isLineBreak(window.get(i)))
+                    i++;
+                line.add(start, i - start);
+            }
+            if (line.count > 0)
+                handler.line(line);
+        }
+    }
+
+    /**
+     * @param b a byte of the file
+     * @return true if the byte ends a line
+     */
+    private static boolean isLineBreak(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    /**
+     * Matches the whitespace Scanner skips between tokens, other than line breaks
+     *
+     * @param b a byte of the file
+     * @return true if the byte separates tokens on a line
+     */
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == 0x0B || b == '\f' || (b >= 0x1C && b <= 0x1F);
+    }
+
+    /**
+     * The tokens of one line, as positions in the mapped window
+     */
+    static class Line {
+        /** interns the names on the line */
+        private final NameTable table;
+
+        /** the window holding the line */
+        private MappedByteBuffer window;
+
+        /** start of each token in the window */
+        private int[] starts = new int[16];
+
+        /** length of each token in bytes */
+        private int[] lengths = new int[16];
+
+        /** number of tokens on the line */
+        private int count;
+
+        /**
+         * Creates an empty line
+         *
+         * @param table interns the names on the line
+         */
+        private Line(NameTable table) {
+            this.table = table;
+        }
+
+        /**
+         * Records the next token of the line
+         *
+         * @param start  start of the token in the window
+         * @param length length of the token in bytes
+         */
+        private void add(int start, int length) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            starts[count] = start;
+            lengths[count++] = length;
+        }
+
+        /**
+         * @return the number of tokens on the line
+         */
+        int count() {
+            return count;
+        }
+
+        /**
+         * @param i the index of a token on the line
+         * @return the token as an interned vertex name
+         */
+        String name(int i) {
+            return table.name(id(i));
+        }
+
+        /**
+         * @param i the index of a token on the line
+         * @return the id of the token in the name table, numbered from 0 in order of
+         *         first appearance
+         */
+        private int id(int i) {
+            return table.id(window, starts[i], lengths[i]);
+        }
+
+        /**
+         * Parses a token the way Scanner.nextInt does, with an optional sign
+         *
+         * @param i the index of a token on the line
+         * @return the token as an int
+         * @throws InputMismatchException the token is not an int
+         */
+        int number(int i) {
+            int position = starts[i];
+            int end = position + lengths[i];
+            boolean negative = false;
+            byte first = window.get(position);
+            if ((first == '-' || first == '+') && end - position > 1) {
+                negative = first == '-';
+                position++;
+            }
+            // accumulate negatively so Integer.MIN_VALUE fits
+            long value = 0;
+            for (; position < end; position++) {
+                int digit = window.get(position) - '0';
+                if (digit < 0 || digit > 9)
+                    throw mismatch(i);
+                value = value * 10 - digit;
+                if (value < Integer.MIN_VALUE)
+                    throw mismatch(i);
+            }
+            if (!negative && value == Integer.MIN_VALUE)
+                throw mismatch(i);
+            return (int) (negative ? value : -value);
+        }
+
+        /**
+         * @param i the index of a token on the line
+         * @return an exception naming the bad token
+         */
+        private InputMismatchException mismatch(int i) {
+            byte[] bytes = new byte[lengths[i]];
+            window.get(starts[i], bytes);
+            return new InputMismatchException("not an int: " + new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * A run of whole lines parsed by one fork-join task into primitive buffers
+     * *Names are replaced by ids local to the chunk; names() maps them back
+     * *A token that is not a valid weight stops the chunk, and the exception is
+     * kept for whoever merges the chunks in order
+     */
+    static class Chunk extends RecursiveAction {
+        /** version of the serialized form */
+        private static final long serialVersionUID = 1L;
+
+        /** the window holding the chunk */
+        private final MappedByteBuffer window;
+
+        /** start of the chunk in the window */
+        private final int from;
+
+        /** end of the chunk in the window */
+        private final int to;
+
+        /** true if lines alternate names and weights */
+        private final boolean weighted;
+
+        /** names of the chunk indexed by local id */
+        private String[] names;
+
+        /** local id of every name token, line after line */
+        private int[] tokens = new int[1024];
+
+        /** weight in front of each name token (0 for the first name of a line) */
+        private int[] weights;
+
+        /** number of name tokens */
+        private int tokenCount;
+
+        /** end of each line in tokens */
+        private int[] lineEnds = new int[256];
+
+        /** false for lines whose edges are left out because of a trailing weight */
+        private boolean[] paired = new boolean[256];
+
+        /** number of lines */
+        private int lineCount;
+
+        /** the first bad token of the chunk, or null */
+        private RuntimeException failure;
+
+        /**
+         * @param window   the window holding the chunk
+         * @param from     start of the chunk, at the start of a line
+         * @param to       end of the chunk, at the end of a line
+         * @param weighted true if lines alternate names and weights
+         */
+        private Chunk(MappedByteBuffer window, int from, int to, boolean weighted) {
+            this.window = window;
+            this.from = from;
+            this.to = to;
+            this.weighted = weighted;
+            weights = weighted ? new int[tokens.length] : null;
+        }
+
+        @Override
+        protected void compute() {
+            NameTable table = new NameTable();
+            try {
+                scan(window, from, to, new Line(table), weighted ? this::addWeighted : this::addNames);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            names = table.names();
+        }
+
+        /**
+         * Records a line where every token is a name
+         *
+         * @param line the tokens of the line
+         */
+        private void addNames(Line line) {
+            for (int i = 0; i < line.count(); i++)
+                addToken(line.id(i), 0);
+            endLine(true);
+        }
+
+        /**
+         * Records a line of the form start weight end weight end ...
+         *
+         * @param line the tokens of the line
+         */
+        private void addWeighted(Line line) {
+            addToken(line.id(0), 0);
+            for (int i = 1; i < line.count(); i += 2) {
+                int weight = line.number(i);
+                if (i + 1 < line.count())
+                    addToken(line.id(i + 1), weight);
+            }
+            endLine(line.count() % 2 == 1);
+        }
+
+        /**
+         * @param id     the local id of a name token
+         * @param weight the weight in front of it
+         */
+        private void addToken(int id, int weight) {
+            if (tokenCount == tokens.length) {
+                tokens = Arrays.copyOf(tokens, tokenCount * 2);
+                if (weighted)
+                    weights = Arrays.copyOf(weights, tokenCount * 2);
+            }
+            if (weighted)
+                weights[tokenCount] = weight;
+            tokens[tokenCount++] = id;
+        }
+
+        /**
+         * @param keepEdges false if the line's edges are left out
+         */
+        private void endLine(boolean keepEdges) {
+            if (lineCount == lineEnds.length) {
+                lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+                paired = Arrays.copyOf(paired, lineCount * 2);
+            }
+            paired[lineCount] = keepEdges;
+            lineEnds[lineCount++] = tokenCount;
+        }
+
+        /**
+         * Throws the exception that stopped the chunk, if any
+         */
+        void rethrow() {
+            if (failure != null)
+                throw failure;
+        }
+
+        /**
+         * @return the names of the chunk indexed by local id
+         */
+        String[] names() {
+            return names;
+        }
+
+        /**
+         * @return the number of non-blank lines in the chunk
+         */
+        int lineCount() {
+            return lineCount;
+        }
+
+        /**
+         * @param line a line of the chunk
+         * @return the index of the line's first name token
+         */
+        int lineStart(int line) {
+            return line == 0 ? 0 : lineEnds[line - 1];
+        }
+
+        /**
+         * @param line a line of the chunk
+         * @return the index after the line's last name token
+         */
+        int lineEnd(int line) {
+            return lineEnds[line];
+        }
+
+        /**
+         * @param line a line of the chunk
+         * @return false if a trailing weight leaves the line's edges out
+         */
+        boolean isPaired(int line) {
+            return paired[line];
+        }
+
+        /**
+         * @param token the index of a name token
+         * @return the local id of the token
+         */
+        int token(int token) {
+            return tokens[token];
+        }
+
+        /**
+         * @param token the index of a name token
+         * @return the weight in front of the token
+         */
+        int weight(int token) {
+            return weights[token];
+        }
+    }
+
+    /**
+     * Interned vertex names, looked up by their UTF-8 bytes in a vertex dictionary
+     */
+    private static class NameTable {
+        /** ids of the names, looked up by their bytes */
+        private final VertexDictionary dictionary = new VertexDictionary(512);
+
+        /** decoded name of each id */
+        private String[] strings = new String[512];
+
+        /**
+         * Returns the id of a name, adding the name the first time it is seen
+         *
+         * @param window the buffer holding the name
+         * @param start  start of the name in the buffer
+         * @param length length of the name in bytes
+         * @return the id of the name, numbered from 0 in order of first appearance
+         */
+        int id(MappedByteBuffer window, int start, int length) {
+            int size = dictionary.size();
+            int id = dictionary.add(window, start, length);
+            // decode each name once, when it is first seen
+            if (id == size) {
+                if (size == strings.length)
+                    strings = Arrays.copyOf(strings, size * 2);
+                strings[id] = dictionary.name(id);
+            }
+            return id;
+        }
+
+        /**
+         * @param id the id of a name
+         * @return the decoded name
+         */
+        String name(int id) {
+            return strings[id];
+        }
+
+        /**
+         * @return the number of names in the table
+         */
+        int size() {
+            return dictionary.size();
+        }
+
+        /**
+         * @return the decoded names indexed by id
+         */
+        String[] names() {
+            return Arrays.copyOf(strings, dictionary.size());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdjacencyReaderTest {
+    /**
+     * Writes text to a temporary file
+     *
+     * @param text the contents of the file
+     * @return the name of the file
+     */
+    private static String write(String text) throws IOException {
+        java.nio.file.Path file = Files.createTempFile("adjacency", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+
+    /**
+     * @param reader a reader
+     * @return every line of the reader with its tokens joined by single spaces
+     */
+    private static List<String> lines(AdjacencyReader reader) {
+        List<String> lines = new ArrayList<String>();
+        reader.forEachLine(line -> {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < line.count(); i++)
+                text.append(i == 0 ? "" : " ").append(line.name(i));
+            lines.add(text.toString());
+        });
+        return lines;
+    }
+
+    @Test
+    public void testTokens() throws IOException {
+        String file = write("A 2 B\t1  D\r\n\n   \nB 3 D\rC\u00e9 x \n  E");
+        AdjacencyReader reader = new AdjacencyReader(file);
+        // blank lines are skipped and any mix of whitespace separates tokens
+        Assert.assertEquals(4, reader.lineCount());
+        Assert.assertEquals("[A 2 B 1 D, B 3 D, C\u00e9 x, E]", lines(reader).toString());
+    }
+
+    @Test
+    public void testWindows() throws IOException {
+        String text = "A B C\nDD EE\r\nF\n\nGGG H\n";
+        String file = write(text);
+        List<String> expected = lines(new AdjacencyReader(file));
+        // lines are never split between windows
+        for (int windowSize = 6; windowSize <= text.length(); windowSize++) {
+            AdjacencyReader reader = new AdjacencyReader(file, windowSize, AdjacencyReader.CHUNK_SIZE);
+            Assert.assertEquals(4, reader.lineCount());
+            Assert.assertEquals(expected, lines(reader));
+        }
+        try {
+            new AdjacencyReader(file, 3, AdjacencyReader.CHUNK_SIZE);
+            Assert.assertTrue(false);
+        } catch (UncheckedIOException e) {
+            // a line does not fit in one window
+        }
+    }
+
+    @Test
+    public void testNames() throws IOException {
+        String file = write("Krakow Warszawa\nWarszawa Krakow\n");
+        List<String> names = new ArrayList<String>();
+        new AdjacencyReader(file).forEachLine(line -> {
+            names.add(line.name(0));
+            names.add(line.name(1));
+        });
+        // every occurrence of a name is the same String
+        Assert.assertSame(names.get(0), names.get(3));
+        Assert.assertSame(names.get(1), names.get(2));
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        String file = write("7 +5 -3 2147483647 -2147483648 2147483648 x - 1x\n");
+        List<Integer> numbers = new ArrayList<Integer>();
+        List<Integer> mismatches = new ArrayList<Integer>();
+        new AdjacencyReader(file).forEachLine(line -> {
+            for (int i = 0; i < line.count(); i++) {
+                try {
+                    numbers.add(line.number(i));
+                } catch (InputMismatchException e) {
+                    mismatches.add(i);
+                }
+            }
+        });
+        Assert.assertEquals("[7, 5, -3, 2147483647, -2147483648]", numbers.toString());
+        Assert.assertEquals("[5, 6, 7, 8]", mismatches.toString());
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        String file = write("A 2 B 1 D\n\nB 3 D 10 E\r\nC 4 A 5\nD 2 C 2 E 8 F 4 G\nF\n");
+        // every chunk size gives the same lines, with local ids mapped back to names
+        for (int chunkSize = 1; chunkSize <= 40; chunkSize++) {
+            List<String> lines = new ArrayList<String>();
+            for (AdjacencyReader.Chunk chunk : new AdjacencyReader(file, 24, chunkSize).parseChunks(true)) {
+                chunk.rethrow();
+                for (int line = 0; line < chunk.lineCount(); line++) {
+                    StringBuilder text = new StringBuilder(chunk.names()[chunk.token(chunk.lineStart(line))]);
+                    for (int t = chunk.lineStart(line) + 1; t < chunk.lineEnd(line); t++)
+                        text.append(" " + chunk.weight(t) + " " + chunk.names()[chunk.token(t)]);
+                    lines.add(text + (chunk.isPaired(line) ? "" : " *"));
+                }
+            }
+            Assert.assertEquals("[A 2 B 1 D, B 3 D 10 E, C 4 A *, D 2 C 2 E 8 F 4 G, F]", lines.toString());
+        }
+
+        // a bad weight is kept until the chunks are merged
+        file = write("A 1 B\nB x C\n");
+        List<AdjacencyReader.Chunk> chunks = new AdjacencyReader(file).parseChunks(true);
+        try {
+            chunks.get(0).rethrow();
+            Assert.assertTrue(false);
+        } catch (InputMismatchException e) {
+            // not an int: x
+        }
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        String file = write("");
+        Assert.assertEquals(0, new AdjacencyReader(file).lineCount());
+        try {
+            new AdjacencyReader(file + ".missing");
+            Assert.assertTrue(false);
+        } catch (FileNotFoundException e) {
+            // same exception the Scanner based readers threw
+        }
+    }
+}
@@ -0,0 +1,699 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable compressed-sparse-row snapshot of an undirected Graph
+ * *Vertices are numbered 0..n-1 in alphabetical order, so comparing ids is the
+ * same as comparing names
+ * *The neighbors of vertex i are targets[offsets[i]] to targets[offsets[i + 1] - 1],
+ * sorted by id
+ * *Searches keep their state in pooled search contexts, so one snapshot can serve
+ * many threads at once
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class CompactGraph {
+    /** vertex names and their ids */
+    private final VertexDictionary names;
+
+    /** start of each vertex's neighbor range in targets (length n + 1) */
+    private final int[] offsets;
+
+    /** neighbor ids of every vertex, stored back to back */
+    private final int[] targets;
+
+    /** search contexts shared by queries on this snapshot */
+    private final SearchContext.Pool contexts;
+
+    /** connected component of each vertex (null if not known) */
+    private final int[] components;
+
+    /**
+     * Creates a snapshot from CSR arrays
+     *
+     * @param names   vertex names in alphabetical order
+     * @param offsets start of each vertex's neighbor range (length n + 1)
+     * @param targets neighbor ids, sorted within each range
+     */
+    CompactGraph(String[] names, int[] offsets, int[] targets) {
+        this(names, offsets, targets, null);
+    }
+
+    /**
+     * Creates a snapshot from CSR arrays and the connected components they form
+     *
+     * @param names      vertex names in alphabetical order
+     * @param offsets    start of each vertex's neighbor range (length n + 1)
+     * @param targets    neighbor ids, sorted within each range
+     * @param components the same id for every vertex of a component (null if not
+     *                   known)
+     */
+    CompactGraph(String[] names, int[] offsets, int[] targets, int[] components) {
+        this.names = new VertexDictionary(names);
+        this.names.trim();
+        this.offsets = offsets;
+        this.targets = targets;
+        this.components = components;
+        contexts = new SearchContext.Pool(names.length);
+    }
+
+    /**
+     * Reads a snapshot written by save
+     *
+     * @param filename the file to read
+     * @return the snapshot stored in the file
+     * @throws IOException the file does not exist or is not a valid graph file
+     */
+    static CompactGraph load(String filename) throws IOException {
+        GraphFile file = GraphFile.read(filename, GraphFile.UNWEIGHTED);
+        return new CompactGraph(file.names, file.offsets, file.targets);
+    }
+
+    /**
+     * Writes the snapshot to a binary file
+     *
+     * @param filename the file to write
+     * @throws IOException the file cannot be written
+     */
+    void save(String filename) throws IOException {
+        GraphFile.write(filename, names.names(), offsets, targets, null);
+    }
+
+    /**
+     * @return the number of vertices in the snapshot
+     */
+    public int vertexCount() {
+        return names.size();
+    }
+
+    /**
+     * @return the number of undirected edges in the snapshot
+     */
+    public int edgeCount() {
+        return targets.length / 2;
+    }
+
+    /**
+     * Checks whether two nodes are connected by an edge
+     *
+     * @param from the first node
+     * @param to   the second node
+     * @return true if the edge exists, false otherwise (including when either node
+     *         does not exist)
+     */
+    public boolean hasEdge(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        return source != -1 && target != -1 && edgeSlot(source, target) != -1;
+    }
+
+    /**
+     * Checks the components published with the snapshot, without searching
+     *
+     * @param from the first node
+     * @param to   the second node
+     * @return true if the nodes are known to be in different components, false if
+     *         they are in the same one, either does not exist, or components are
+     *         not known
+     */
+    boolean separated(String from, String to) {
+        if (components == null)
+            return false;
+        int source = names.id(from);
+        int target = names.id(to);
+        return source != -1 && target != -1 && components[source] != components[target];
+    }
+
+    /**
+     * Returns the path between two nodes using Depth First Search
+     *
+     * @param from          the start node
+     * @param to            the end node
+     * @param neighborOrder either "alphabetical" or "reverse" to specify priority
+     *                      of DFS
+     * @return String array representing the path between two nodes (empty array if
+     *         no path exists or invalid arguments)
+     */
+    public String[] DFS(String from, String to, String neighborOrder) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return new String[0];
+        boolean alphabetical;
+        if (neighborOrder.equals("alphabetical"))
+            alphabetical = true;
+        else if (neighborOrder.equals("reverse"))
+            alphabetical = false;
+        else
+            return new String[0];
+        SearchContext context = contexts.acquire();
+        try {
+            return toNames(depthFirstSearch(context, source, target, alphabetical));
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Private helper method for DFS
+     * *Uses an explicit stack of (vertex, next neighbor slot) frames in place of
+     * recursion, so path-like graphs of any depth cannot overflow the thread stack
+     * *Neighbor ranges are already sorted, and the search stops as soon as the end
+     * node is reached, at which point the stack holds the path
+     *
+     * @param context      search state for this query
+     * @param source       the start node
+     * @param target       the end node
+     * @param alphabetical true or false indicating alphabetical or reverse
+     * @return vertex ids along the path, start node first (empty if no path)
+     */
+    private int[] depthFirstSearch(SearchContext context, int source, int target, boolean alphabetical) {
+        int[] stack = context.queue;
+        int[] cursor = context.secondQueue();
+        int top = 0;
+        stack[0] = source;
+        cursor[0] = alphabetical ? offsets[source] : offsets[source + 1] - 1;
+        context.reach(source, -1);
+        if (source == target)
+            return new int[] {source};
+        while (top >= 0) {
+            int vertex = stack[top];
+            int e = cursor[top];
+            // all neighbors of the vertex on top have been tried
+            if (alphabetical ? e >= offsets[vertex + 1] : e < offsets[vertex]) {
+                top--;
+                continue;
+            }
+            cursor[top] = alphabetical ? e + 1 : e - 1;
+            int next = targets[e];
+            // only consider non-visited neighbors
+            if (context.isReached(next))
+                continue;
+            context.reach(next, vertex);
+            stack[++top] = next;
+            cursor[top] = alphabetical ? offsets[next] : offsets[next + 1] - 1;
+            if (next == target)
+                return Arrays.copyOf(stack, top + 1);
+        }
+        return new int[0];
+    }
+
+    /**
+     * Returns the path between two nodes using Breadth First Search
+     *
+     * @param from          the start node
+     * @param to            the end node
+     * @param neighborOrder either "alphabetical" or "reverse" to specify priority
+     *                      of BFS
+     * @return String array representing the path between two nodes (empty array if
+     *         no path exists or invalid arguments)
+     */
+    public String[] BFS(String from, String to, String neighborOrder) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return new String[0];
+        boolean alphabetical;
+        if (neighborOrder.equals("alphabetical"))
+            alphabetical = true;
+        else if (neighborOrder.equals("reverse"))
+            alphabetical = false;
+        else
+            return new String[0];
+        SearchContext context = contexts.acquire();
+        try {
+            if (!breadthFirstSearch(context, source, new int[] {target}, alphabetical, null))
+                return new String[0];
+            return toNames(context.pathTo(target));
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Private helper method for BFS, skipping masked edge slots
+     * *Vertices are expanded in FIFO order from an array-backed queue, and each
+     * neighbor range is walked forwards or backwards to give alphabetical or
+     * reverse priority within a level
+     *
+     * @param context      search state for this query, left holding the parents
+     * @param source       the start node
+     * @param stopAt       sorted, distinct end nodes; the search stops once all are
+     *                     reached
+     * @param alphabetical true or false indicating alphabetical or reverse
+     * @param masked       flags for edge slots that may not be used (null if none)
+     * @return true if every end node was reached
+     */
+    private boolean breadthFirstSearch(SearchContext context, int source, int[] stopAt, boolean alphabetical,
+            boolean[] masked) {
+        int[] vQueue = context.queue;
+        int head = 0;
+        int tail = 0;
+        int remaining = stopAt.length;
+        vQueue[tail++] = source;
+        context.reach(source, -1);
+        if (Arrays.binarySearch(stopAt, source) >= 0 && --remaining == 0)
+            return true;
+        while (head < tail) {
+            int vertex = vQueue[head++];
+            int first = alphabetical ? offsets[vertex] : offsets[vertex + 1] - 1;
+            int step = alphabetical ? 1 : -1;
+            // add neighboring nodes to queue
+            for (int i = offsets[vertex + 1] - offsets[vertex], e = first; i > 0; i--, e += step) {
+                int next = targets[e];
+                if (!context.isReached(next) && (masked == null || !masked[e])) {
+                    context.reach(next, vertex);
+                    // parent of an end node is final once it is discovered
+                    if (Arrays.binarySearch(stopAt, next) >= 0 && --remaining == 0)
+                        return true;
+                    vQueue[tail++] = next;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Answers a batch of path queries in parallel on the common fork-join pool
+     *
+     * @param queries the (from, to) pairs to answer
+     * @return BFS paths (alphabetical priority) in the same order as the queries
+     */
+    public List<String[]> shortestPaths(List<PathQuery> queries) {
+        return shortestPathsAsync(queries, ForkJoinPool.commonPool()).join();
+    }
+
+    /**
+     * Answers a batch of path queries in parallel
+     * *Queries sharing a start node are grouped so that one BFS from that node
+     * answers all of them, and each group runs as a separate task
+     *
+     * @param queries  the (from, to) pairs to answer
+     * @param executor runs the per-group searches
+     * @return a future of BFS paths (alphabetical priority) in the same order as the
+     *         queries, with empty arrays for invalid or unreachable pairs
+     */
+    public CompletableFuture<List<String[]>> shortestPathsAsync(List<PathQuery> queries, Executor executor) {
+        String[][] results = new String[queries.size()][];
+        // group query positions by start node
+        LinkedHashMap<Integer, ArrayList<Integer>> groups = new LinkedHashMap<Integer, ArrayList<Integer>>();
+        for (int i = 0; i < queries.size(); i++) {
+            int source = names.id(queries.get(i).getFrom());
+            if (source == -1 || names.id(queries.get(i).getTo()) == -1)
+                results[i] = new String[0];
+            else
+                groups.computeIfAbsent(source, key -> new ArrayList<Integer>()).add(i);
+        }
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[groups.size()];
+        int g = 0;
+        for (Map.Entry<Integer, ArrayList<Integer>> group : groups.entrySet()) {
+            tasks[g++] = CompletableFuture.runAsync(
+                    () -> answerGroup(group.getKey(), group.getValue(), queries, results), executor);
+        }
+        return CompletableFuture.allOf(tasks).thenApply(done -> Arrays.asList(results));
+    }
+
+    /**
+     * Answers every query of a group with one BFS from their shared start node
+     *
+     * @param source    the shared start node
+     * @param positions positions of the group's queries in the batch
+     * @param queries   the whole batch
+     * @param results   filled with the path of each query in the group
+     */
+    private void answerGroup(int source, List<Integer> positions, List<PathQuery> queries, String[][] results) {
+        int[] stopAt = new int[positions.size()];
+        for (int i = 0; i < stopAt.length; i++)
+            stopAt[i] = names.id(queries.get(positions.get(i)).getTo());
+        Arrays.sort(stopAt);
+        SearchContext context = contexts.acquire();
+        try {
+            breadthFirstSearch(context, source, distinct(stopAt), true, null);
+            for (int position : positions) {
+                int target = names.id(queries.get(position).getTo());
+                results[position] = context.isReached(target) ? toNames(context.pathTo(target)) : new String[0];
+            }
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * @param sorted a sorted array of ids
+     * @return the array without repeated ids
+     */
+    private static int[] distinct(int[] sorted) {
+        int length = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1])
+                sorted[length++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, length);
+    }
+
+    /**
+     * Returns a path with the fewest edges between two nodes using bidirectional
+     * Breadth First Search
+     * *Searches from both ends one level at a time, always expanding the smaller
+     * frontier, and stops when the two searches meet
+     *
+     * @param from the start node
+     * @param to   the end node
+     * @return String array representing the path between two nodes (empty array if
+     *         no path exists or invalid arguments)
+     */
+    public String[] bidirectionalBFS(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return new String[0];
+        if (source == target)
+            return new String[] {from};
+        // each direction keeps its own visited flags, parents and queue
+        SearchContext forwardSearch = contexts.acquire();
+        SearchContext backwardSearch = contexts.acquire();
+        try {
+            int[] result = bidirectionalSearch(forwardSearch, backwardSearch, source, target);
+            return toNames(result);
+        } finally {
+            contexts.release(forwardSearch);
+            contexts.release(backwardSearch);
+        }
+    }
+
+    /**
+     * Private helper method for bidirectionalBFS
+     *
+     * @param forwardSearch  search state for the search from the start node
+     * @param backwardSearch search state for the search from the end node
+     * @param source         the start node
+     * @param target         the end node
+     * @return vertex ids along the path, start node first (empty if no path)
+     */
+    private int[] bidirectionalSearch(SearchContext forwardSearch, SearchContext backwardSearch, int source,
+            int target) {
+        int forwardHead = 0;
+        int forwardTail = 0;
+        int backwardHead = 0;
+        int backwardTail = 0;
+        forwardSearch.queue[forwardTail++] = source;
+        backwardSearch.queue[backwardTail++] = target;
+        forwardSearch.reach(source, -1);
+        backwardSearch.reach(target, -1);
+        while (forwardHead < forwardTail && backwardHead < backwardTail) {
+            boolean forward = forwardTail - forwardHead <= backwardTail - backwardHead;
+            SearchContext mySearch = forward ? forwardSearch : backwardSearch;
+            SearchContext otherSearch = forward ? backwardSearch : forwardSearch;
+            int[] queue = mySearch.queue;
+            int head = forward ? forwardHead : backwardHead;
+            int tail = forward ? forwardTail : backwardTail;
+            // expand one full level of the chosen side
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int vertex = queue[head++];
+                for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                    int next = targets[e];
+                    if (mySearch.isReached(next))
+                        continue;
+                    mySearch.reach(next, vertex);
+                    // first contact between the two searches is on a shortest path
+                    if (otherSearch.isReached(next))
+                        return joinPaths(forwardSearch, backwardSearch, next);
+                    queue[tail++] = next;
+                }
+            }
+            if (forward) {
+                forwardHead = head;
+                forwardTail = tail;
+            } else {
+                backwardHead = head;
+                backwardTail = tail;
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Joins the two halves of a bidirectional search at a vertex both reached
+     *
+     * @param forwardSearch  search state holding parents towards the start node
+     * @param backwardSearch search state holding parents towards the end node
+     * @param meeting        the vertex reached by both searches
+     * @return vertex ids along the path, start node first
+     */
+    private int[] joinPaths(SearchContext forwardSearch, SearchContext backwardSearch, int meeting) {
+        int[] firstHalf = forwardSearch.pathTo(meeting);
+        int length = firstHalf.length;
+        for (int trav = backwardSearch.parent[meeting]; trav != -1; trav = backwardSearch.parent[trav])
+            length++;
+        int[] path = Arrays.copyOf(firstHalf, length);
+        int i = firstHalf.length;
+        for (int trav = backwardSearch.parent[meeting]; trav != -1; trav = backwardSearch.parent[trav])
+            path[i++] = trav;
+        return path;
+    }
+
+    /**
+     * Returns the second shortest path from one node to another node
+     * *Edges are masked out of a per-query overlay rather than removed, so the
+     * snapshot is never modified
+     *
+     * @param from the start node
+     * @param to   the end node
+     * @return String array representing the second shortest path (empty if doesn't
+     *         exist or invalid arguments)
+     */
+    public String[] secondShortestPath(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return new String[0];
+        SearchContext context = contexts.acquire();
+        try {
+            return secondShortestPath(context, source, target, new boolean[targets.length]);
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Private recursive helper method for secondShortestPath
+     *
+     * @param context search state reused by every BFS of this query
+     * @param source  the start node
+     * @param target  the end node
+     * @param masked  flags for edge slots that are currently severed
+     * @return the second shortest path
+     */
+    private String[] secondShortestPath(SearchContext context, int source, int target, boolean[] masked) {
+        // establish a shortest path
+        int[] shortestPath = maskedShortestPath(context, source, target, masked);
+        String[] nextPath = new String[0];
+        // at every node in the shortest path, sever an edge and try BFS to find an
+        // alternate path
+        for (int i = shortestPath.length - 1; i > 0; i--) {
+            int forward = edgeSlot(shortestPath[i], shortestPath[i - 1]);
+            int backward = edgeSlot(shortestPath[i - 1], shortestPath[i]);
+            masked[forward] = true;
+            masked[backward] = true;
+            int[] candidate = maskedShortestPath(context, source, target, masked);
+            // if another shortest path is encountered, keep edges severed until no more
+            // paths or longer path is found
+            String[] candidatePath;
+            if (candidate.length == shortestPath.length)
+                candidatePath = secondShortestPath(context, source, target, masked);
+            else
+                candidatePath = toNames(candidate);
+            if (candidatePath.length != 0)
+                nextPath = candidatePath;
+            masked[forward] = false;
+            masked[backward] = false;
+        }
+        return nextPath;
+    }
+
+    /**
+     * Runs an alphabetical BFS that skips masked edge slots
+     *
+     * @param context search state, reset by this call
+     * @param source  the start node
+     * @param target  the end node
+     * @param masked  flags for edge slots that may not be used
+     * @return vertex ids along the path, start node first (empty if no path)
+     */
+    private int[] maskedShortestPath(SearchContext context, int source, int target, boolean[] masked) {
+        context.begin();
+        if (!breadthFirstSearch(context, source, new int[] {target}, true, masked))
+            return new int[0];
+        return context.pathTo(target);
+    }
+
+    /**
+     * Finds the k shortest loopless paths between two nodes using Yen's algorithm,
+     * where the cost of a path is its number of edges
+     * *Spur searches mask edges and vertices per query instead of removing them,
+     * and reuse one BFS tree grown from the end node: a spur path follows the tree
+     * directly when no mask blocks it
+     *
+     * @param from the start node
+     * @param to   the end node
+     * @param k    the number of paths wanted
+     * @return up to k paths with their costs, cheapest first (empty if no path
+     *         exists or invalid arguments)
+     */
+    public List<Path> kShortestPaths(String from, String to, int k) {
+        int source = names.id(from);
+        int target = names.id(to);
+        ArrayList<Path> paths = new ArrayList<Path>();
+        if (source == -1 || target == -1 || k < 1)
+            return paths;
+        SearchContext context = contexts.acquire();
+        SearchContext tree = contexts.acquire();
+        try {
+            // undirected, so a BFS from the end node gives every vertex's next hop to it
+            breadthFirstSearch(tree, target, new int[0], true, null);
+            if (!tree.isReached(source))
+                return paths;
+            int[] shortest = maskedShortestPath(context, source, target, new boolean[targets.length]);
+            KShortestPaths.SpurGraph spurGraph = new KShortestPaths.SpurGraph() {
+                @Override
+                public int[] spurPath(int spur, int end, boolean[] maskedSlots, boolean[] maskedVertices) {
+                    return spurSearch(context, tree, spur, end, maskedSlots, maskedVertices);
+                }
+
+                @Override
+                public int edgeSlot(int start, int end) {
+                    return CompactGraph.this.edgeSlot(start, end);
+                }
+
+                @Override
+                public long edgeCost(int slot) {
+                    return 1;
+                }
+            };
+            for (KShortestPaths.Candidate found : KShortestPaths.find(spurGraph, shortest, k, names.size(),
+                    targets.length))
+                paths.add(new Path(toNames(found.path), found.cost));
+            return paths;
+        } finally {
+            contexts.release(context);
+            contexts.release(tree);
+        }
+    }
+
+    /**
+     * Private helper method for kShortestPaths finding one spur path
+     *
+     * @param context        search state for the spur search
+     * @param tree           BFS tree grown from the end node
+     * @param spur           the start of the spur path
+     * @param target         the end node
+     * @param maskedSlots    flags for edge slots that may not be used
+     * @param maskedVertices flags for vertices that may not be visited
+     * @return vertex ids from spur to target, or null if no path exists
+     */
+    private int[] spurSearch(SearchContext context, SearchContext tree, int spur, int target,
+            boolean[] maskedSlots, boolean[] maskedVertices) {
+        // the tree path has the fewest edges whenever none of it is masked
+        int length = 1;
+        int trav = spur;
+        while (trav != target) {
+            int next = tree.parent[trav];
+            if (maskedVertices[next] || maskedSlots[edgeSlot(trav, next)])
+                break;
+            trav = next;
+            length++;
+        }
+        if (trav == target) {
+            int[] path = new int[length];
+            path[0] = spur;
+            for (int i = 1; i < length; i++)
+                path[i] = tree.parent[path[i - 1]];
+            return path;
+        }
+        // otherwise BFS around the masked edges and vertices
+        context.begin();
+        int[] vQueue = context.queue;
+        int head = 0;
+        int tail = 0;
+        vQueue[tail++] = spur;
+        context.reach(spur, -1);
+        while (head < tail) {
+            int vertex = vQueue[head++];
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                int next = targets[e];
+                if (maskedSlots[e] || maskedVertices[next] || context.isReached(next))
+                    continue;
+                context.reach(next, vertex);
+                if (next == target)
+                    return context.pathTo(target);
+                vQueue[tail++] = next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the slot of the edge from one vertex to another with binary search
+     *
+     * @param from the vertex whose neighbor range is searched
+     * @param to   the neighbor to look for
+     * @return index into targets, or -1 if the edge does not exist
+     */
+    private int edgeSlot(int from, int to) {
+        int low = offsets[from];
+        int high = offsets[from + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (targets[mid] < to)
+                low = mid + 1;
+            else if (targets[mid] > to)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * @param id a vertex id
+     * @return the name of the vertex
+     */
+    String name(int id) {
+        return names.name(id);
+    }
+
+    /**
+     * @param id a vertex id, or vertexCount() for the end of the last range
+     * @return the first edge slot of the vertex
+     */
+    int edgeStart(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * @param slot an edge slot
+     * @return the vertex the edge leads to
+     */
+    int target(int slot) {
+        return targets[slot];
+    }
+
+    /**
+     * @param path vertex ids
+     * @return the names of the vertices
+     */
+    private String[] toNames(int[] path) {
+        String[] pathArr = new String[path.length];
+        for (int i = 0; i < path.length; i++)
+            pathArr[i] = names.name(path[i]);
+        return pathArr;
+    }
+}
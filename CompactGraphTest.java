@@ -0,0 +1,67 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.util.Arrays;
+
+public class CompactGraphTest {
+    Graph graph = new Graph();
+
+    /**
+     * Builds the graph from example2.txt:
+     * A B D
+     * B C D
+     * C D E
+     * E F
+     */
+    private void buildExample() {
+        String[] names = {"A", "B", "C", "D", "E", "F"};
+        graph.addNodes(names);
+        graph.addEdges("A", new String[] {"B", "D"});
+        graph.addEdges("B", new String[] {"C", "D"});
+        graph.addEdges("C", new String[] {"D", "E"});
+        graph.addEdge("E", "F");
+    }
+
+    @Test
+    public void testFreeze() {
+        buildExample();
+        CompactGraph snapshot = graph.freeze();
+        Assert.assertEquals(6, snapshot.vertexCount());
+        Assert.assertEquals(7, snapshot.edgeCount());
+
+        // snapshot is reused until the graph changes
+        Assert.assertTrue(snapshot == graph.freeze());
+        graph.addEdge("A", "F");
+        Assert.assertTrue(snapshot != graph.freeze());
+        Assert.assertEquals(8, graph.freeze().edgeCount());
+
+        // old snapshot is unaffected by changes to the graph
+        Assert.assertEquals(7, snapshot.edgeCount());
+        Assert.assertEquals("[A, B, C, E, F]", Arrays.toString(snapshot.BFS("A", "F", "alphabetical")));
+        Assert.assertEquals("[A, F]", Arrays.toString(graph.BFS("A", "F", "alphabetical")));
+    }
+
+    @Test
+    public void testSearches() {
+        buildExample();
+        CompactGraph snapshot = graph.freeze();
+        Assert.assertEquals("[B, A, D, C, E, F]", Arrays.toString(snapshot.DFS("B", "F", "alphabetical")));
+        Assert.assertEquals("[B, D, C, E, F]", Arrays.toString(snapshot.DFS("B", "F", "reverse")));
+        Assert.assertEquals("[B, C, E, F]", Arrays.toString(snapshot.BFS("B", "F", "alphabetical")));
+
+        // invalid inputs
+        Assert.assertEquals("[]", Arrays.toString(snapshot.BFS("B", "Z", "alphabetical")));
+        Assert.assertEquals("[]", Arrays.toString(snapshot.DFS("B", "F", "null")));
+    }
+
+    @Test
+    public void testSecondShortestPath() {
+        buildExample();
+        CompactGraph snapshot = graph.freeze();
+        Assert.assertEquals("[A, D, B, C, E, F]", Arrays.toString(snapshot.secondShortestPath("A", "F")));
+
+        // masking edges does not change the snapshot or the graph
+        Assert.assertEquals(7, snapshot.edgeCount());
+        Assert.assertTrue(snapshot == graph.freeze());
+        Assert.assertEquals("[A, B, C, E, F]", Arrays.toString(snapshot.BFS("A", "F", "alphabetical")));
+    }
+}
@@ -0,0 +1,1176 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable compressed-sparse-row snapshot of a directed, weighted graph
+ * *Vertices are numbered 0..n-1 in alphabetical order
+ * *The edges leaving vertex i are the slots offsets[i] to offsets[i + 1] - 1 of
+ * targets and weights, in the order they were added
+ * *Searches keep their state in pooled search contexts, so one snapshot can serve
+ * many threads at once
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class CompactWeightedGraph {
+    /** vertex names and their ids */
+    private final VertexDictionary names;
+
+    /** start of each vertex's edge range (length n + 1) */
+    private final int[] offsets;
+
+    /** end vertex of every edge, stored back to back */
+    private final int[] targets;
+
+    /** weight of every edge, aligned with targets */
+    private final int[] weights;
+
+    /** search contexts shared by queries on this snapshot */
+    private final SearchContext.Pool contexts;
+
+    /** incoming edges of every vertex, built the first time a search needs them */
+    private volatile ReverseIndex reverse;
+
+    /** slots of each vertex's edge range ordered by end vertex, built on first lookup */
+    private volatile int[] sortedSlots;
+
+    /** contraction hierarchy of the snapshot, built the first time it is asked for */
+    private volatile ContractionHierarchy hierarchy;
+
+    /** strongly connected components of the snapshot, built on first use */
+    private volatile ReachabilityIndex reachability;
+
+    /** hub labels of the snapshot, built the first time they are asked for */
+    private volatile HubLabels labels;
+
+    /**
+     * Incoming edges stored the same way as the outgoing ones
+     * *The edges entering vertex i are sources[offsets[i]] to
+     * sources[offsets[i + 1] - 1], and slots gives each one's index in targets and
+     * weights
+     */
+    private static class ReverseIndex {
+        /** start of each vertex's incoming range (length n + 1) */
+        private final int[] offsets;
+
+        /** start vertex of every incoming edge */
+        private final int[] sources;
+
+        /** outgoing slot of every incoming edge */
+        private final int[] slots;
+
+        /**
+         * @param offsets start of each vertex's incoming range
+         * @param sources start vertex of every incoming edge
+         * @param slots   outgoing slot of every incoming edge
+         */
+        private ReverseIndex(int[] offsets, int[] sources, int[] slots) {
+            this.offsets = offsets;
+            this.sources = sources;
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * Creates a snapshot from CSR arrays
+     *
+     * @param names   vertex names in alphabetical order
+     * @param offsets start of each vertex's edge range (length n + 1)
+     * @param targets end vertex of every edge
+     * @param weights weight of every edge
+     */
+    CompactWeightedGraph(String[] names, int[] offsets, int[] targets, int[] weights) {
+        this.names = new VertexDictionary(names);
+        this.names.trim();
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        contexts = new SearchContext.Pool(names.length);
+    }
+
+    /**
+     * Creates a snapshot that differs from another one only in its edge weights,
+     * sharing everything else
+     *
+     * @param base    the snapshot to copy
+     * @param weights weight of every edge, aligned with the base's targets
+     */
+    private CompactWeightedGraph(CompactWeightedGraph base, int[] weights) {
+        names = base.names;
+        offsets = base.offsets;
+        targets = base.targets;
+        this.weights = weights;
+        contexts = base.contexts;
+        // incoming edges, edge order and components do not depend on weights
+        reverse = base.reverse;
+        sortedSlots = base.sortedSlots;
+        reachability = base.reachability;
+    }
+
+    /**
+     * Reads a snapshot written by save
+     *
+     * @param filename the file to read
+     * @return the snapshot stored in the file
+     * @throws IOException the file does not exist or is not a valid weighted graph file
+     */
+    static CompactWeightedGraph load(String filename) throws IOException {
+        GraphFile file = GraphFile.read(filename, GraphFile.WEIGHTED);
+        return new CompactWeightedGraph(file.names, file.offsets, file.targets, file.weights);
+    }
+
+    /**
+     * Writes the snapshot to a binary file
+     *
+     * @param filename the file to write
+     * @throws IOException the file cannot be written
+     */
+    void save(String filename) throws IOException {
+        GraphFile.write(filename, names.names(), offsets, targets, weights);
+    }
+
+    /**
+     * @return the number of vertices in the snapshot
+     */
+    public int vertexCount() {
+        return names.size();
+    }
+
+    /**
+     * @return the number of directed edges in the snapshot
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Checks whether a directed edge exists
+     *
+     * @param from start node
+     * @param to   end node
+     * @return true if the edge exists, false otherwise (including when either node
+     *         does not exist)
+     */
+    public boolean hasEdge(String from, String to) {
+        return getWeight(from, to) != -1;
+    }
+
+    /**
+     * Returns the weight of a directed edge, binary searching the start node's
+     * edges by end vertex
+     *
+     * @param from start node
+     * @param to   end node
+     * @return the weight of the edge, or -1 if the edge or either node does not
+     *         exist
+     */
+    public int getWeight(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return -1;
+        int slot = edgeSlot(source, target);
+        return slot == -1 ? -1 : weights[slot];
+    }
+
+    /**
+     * Returns the contraction hierarchy of the snapshot, preprocessing it on first
+     * use
+     *
+     * @return the hierarchy, cached for the life of the snapshot
+     * @throws ArithmeticException a shortcut would weigh more than Integer.MAX_VALUE
+     */
+    public ContractionHierarchy contractionHierarchy() {
+        ContractionHierarchy current = hierarchy;
+        if (current != null)
+            return current;
+        synchronized (this) {
+            if (hierarchy == null)
+                hierarchy = ContractionHierarchy.build(this);
+            return hierarchy;
+        }
+    }
+
+    /**
+     * Returns the hub labels of the snapshot, preprocessing them on first use
+     *
+     * @return the labels, cached for the life of the snapshot
+     * @throws ArithmeticException a distance is larger than Integer.MAX_VALUE
+     */
+    public HubLabels hubLabels() {
+        HubLabels current = labels;
+        if (current != null)
+            return current;
+        synchronized (this) {
+            if (labels == null)
+                labels = HubLabels.build(this);
+            return labels;
+        }
+    }
+
+    /**
+     * Returns the reachability index of the snapshot, finding its strongly
+     * connected components on first use
+     *
+     * @return the index, cached for the life of the snapshot
+     */
+    public ReachabilityIndex reachabilityIndex() {
+        ReachabilityIndex current = reachability;
+        if (current != null)
+            return current;
+        synchronized (this) {
+            if (reachability == null)
+                reachability = ReachabilityIndex.build(this);
+            return reachability;
+        }
+    }
+
+    /**
+     * @param from start node
+     * @param to   end node
+     * @return true if the end node can be reached from the start node (false if
+     *         either node does not exist)
+     */
+    public boolean isReachable(String from, String to) {
+        return reachabilityIndex().isReachable(from, to);
+    }
+
+    /**
+     * Computes the cost of the shortest path from every start node to every end
+     * node with the contraction hierarchy of the snapshot
+     *
+     * @param sources start nodes, one per row
+     * @param targets end nodes, one per column
+     * @return the cost of the shortest path between every pair (-1 if no path
+     *         exists or invalid arguments)
+     */
+    public long[][] distanceTable(String[] sources, String[] targets) {
+        return contractionHierarchy().distanceTable(sources, targets);
+    }
+
+    /**
+     * Finds the shortest path between two nodes by searching forward from the start
+     * node and backward from the end node at the same time
+     * *Each step expands the side with the cheaper unsettled vertex, and the search
+     * stops once the two cheapest unsettled costs add up to at least the best
+     * meeting cost, so both sides together settle about half of what Dijkstra does
+     * *The path costs the same as the one shortestPath returns, but ties between
+     * equally cheap paths may be broken differently
+     *
+     * @param from start node
+     * @param to   end node
+     * @return String array representing the shortest path between two nodes (empty
+     *         array if no path exists or invalid arguments)
+     */
+    public String[] bidirectionalDijkstra(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return new String[0];
+        if (source == target)
+            return new String[] {from};
+        ReverseIndex in = reverseIndex();
+        // each direction keeps its own costs, parents and heap
+        SearchContext forwardSearch = contexts.acquire();
+        SearchContext backwardSearch = contexts.acquire();
+        try {
+            IndexedMinHeap forwardHeap = forwardSearch.heap();
+            IndexedMinHeap backwardHeap = backwardSearch.heap();
+            long[] forwardCost = forwardSearch.cost();
+            long[] backwardCost = backwardSearch.cost();
+            forwardSearch.reach(source, -1, 0);
+            forwardHeap.insertOrDecrease(source, 0);
+            backwardSearch.reach(target, -1, 0);
+            backwardHeap.insertOrDecrease(target, 0);
+            long best = Long.MAX_VALUE;
+            int meeting = -1;
+            while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()
+                    && forwardHeap.peekKey() + backwardHeap.peekKey() < best) {
+                if (forwardHeap.peekKey() <= backwardHeap.peekKey()) {
+                    int vertex = forwardHeap.poll();
+                    forwardSearch.settle(vertex);
+                    for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                        int next = targets[e];
+                        long newCost = forwardCost[vertex] + weights[e];
+                        if (forwardSearch.isSettled(next))
+                            continue;
+                        if (!forwardSearch.isReached(next) || newCost < forwardCost[next]) {
+                            forwardSearch.reach(next, vertex, newCost);
+                            forwardHeap.insertOrDecrease(next, newCost);
+                        }
+                        // an edge into the backward search closes a path
+                        if (backwardSearch.isReached(next) && newCost + backwardCost[next] < best) {
+                            best = newCost + backwardCost[next];
+                            meeting = next;
+                        }
+                    }
+                } else {
+                    int vertex = backwardHeap.poll();
+                    backwardSearch.settle(vertex);
+                    for (int e = in.offsets[vertex]; e < in.offsets[vertex + 1]; e++) {
+                        int previous = in.sources[e];
+                        long newCost = backwardCost[vertex] + weights[in.slots[e]];
+                        if (backwardSearch.isSettled(previous))
+                            continue;
+                        if (!backwardSearch.isReached(previous) || newCost < backwardCost[previous]) {
+                            backwardSearch.reach(previous, vertex, newCost);
+                            backwardHeap.insertOrDecrease(previous, newCost);
+                        }
+                        if (forwardSearch.isReached(previous) && newCost + forwardCost[previous] < best) {
+                            best = newCost + forwardCost[previous];
+                            meeting = previous;
+                        }
+                    }
+                }
+            }
+            if (meeting == -1)
+                return new String[0];
+            return toNames(joinPaths(forwardSearch, backwardSearch, meeting));
+        } finally {
+            contexts.release(forwardSearch);
+            contexts.release(backwardSearch);
+        }
+    }
+
+    /**
+     * Joins the forward path to a meeting vertex with the backward path from it
+     *
+     * @param forwardSearch  the search from the start node
+     * @param backwardSearch the search from the end node, whose parents point
+     *                       toward the end node
+     * @param meeting        a vertex reached by both searches
+     * @return vertex ids from the start node to the end node
+     */
+    private int[] joinPaths(SearchContext forwardSearch, SearchContext backwardSearch, int meeting) {
+        int[] firstHalf = forwardSearch.pathTo(meeting);
+        int length = firstHalf.length;
+        for (int trav = backwardSearch.parent[meeting]; trav != -1; trav = backwardSearch.parent[trav])
+            length++;
+        int[] path = Arrays.copyOf(firstHalf, length);
+        int i = firstHalf.length;
+        for (int trav = backwardSearch.parent[meeting]; trav != -1; trav = backwardSearch.parent[trav])
+            path[i++] = trav;
+        return path;
+    }
+
+    /**
+     * Finds the shortest path between two nodes using A* search
+     * *With an admissible heuristic the path costs the same as the one shortestPath
+     * returns; a vertex settled too early by an inconsistent heuristic is reopened
+     * when a cheaper path reaches it
+     *
+     * @param from      start node
+     * @param to        end node
+     * @param heuristic lower bounds on the cost of reaching the end node
+     * @return the path with its cost and the number of vertices settled (no nodes
+     *         and a cost of -1 if no path exists or invalid arguments)
+     */
+    public Path aStar(String from, String to, Heuristic heuristic) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1 || heuristic == null)
+            return new Path(new String[0], -1);
+        SearchContext context = contexts.acquire();
+        try {
+            IndexedMinHeap vHeap = context.heap();
+            long[] cost = context.cost();
+            int settled = 0;
+            context.reach(source, -1, 0);
+            vHeap.insertOrDecrease(source, estimate(heuristic, source, target));
+            while (!vHeap.isEmpty()) {
+                int vertex = vHeap.poll();
+                context.settle(vertex);
+                settled++;
+                if (vertex == target)
+                    return new Path(toNames(context.pathTo(target)), cost[target], settled);
+                for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                    int next = targets[e];
+                    long newCost = cost[vertex] + weights[e];
+                    if (!context.isReached(next) || newCost < cost[next]) {
+                        context.reach(next, vertex, newCost);
+                        vHeap.insertOrDecrease(next, newCost + estimate(heuristic, next, target));
+                    }
+                }
+            }
+            return new Path(new String[0], -1, settled);
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * @param heuristic lower bounds on the cost of reaching the end node
+     * @param vertex    a vertex id
+     * @param target    the id of the end node
+     * @return the estimate for the vertex, clamped so adding a path cost cannot
+     *         overflow
+     */
+    private long estimate(Heuristic heuristic, int vertex, int target) {
+        long estimate;
+        // landmark tables built for this snapshot are indexed by id directly
+        if (heuristic instanceof LandmarkIndex && ((LandmarkIndex) heuristic).graph() == this)
+            estimate = ((LandmarkIndex) heuristic).estimate(vertex, target);
+        else
+            estimate = heuristic.estimate(names.name(vertex), names.name(target));
+        return Math.max(0, Math.min(estimate, Long.MAX_VALUE / 2));
+    }
+
+    /**
+     * Finds the shortest path between two nodes using Dijkstra's Algorithm
+     * *Once the reachability index has been built, pairs its labels rule out
+     * return without searching
+     *
+     * @param from start node
+     * @param to   end node
+     * @return String array representing the shortest path between two nodes (empty
+     *         array if no path exists or invalid arguments)
+     */
+    public String[] shortestPath(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return new String[0];
+        // pairs the component labels rule out would otherwise search everything,
+        // but building the index is left to isReachable
+        ReachabilityIndex index = reachability;
+        if (index != null && index.excludes(source, target))
+            return new String[0];
+        SearchContext context = contexts.acquire();
+        try {
+            if (dijkstra(context, source, target, null) == Long.MAX_VALUE)
+                return new String[0];
+            return toNames(context.pathTo(target));
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Finds the shortest paths from one node to every node it can reach
+     *
+     * @param from start node
+     * @return the costs and parents of every reachable node (null if the node does
+     *         not exist)
+     */
+    public ShortestPathTree shortestPathTree(String from) {
+        int source = names.id(from);
+        if (source == -1)
+            return null;
+        return new ShortestPathTree(this, source);
+    }
+
+    /**
+     * Finds the shortest paths from one node to every node it can reach using
+     * delta-stepping, which relaxes the edges of many vertices at once on a
+     * fork-join pool
+     * *Smaller deltas do less wasted work, larger ones give each step more
+     * vertices to share between threads
+     *
+     * @param from  start node
+     * @param delta width of each bucket of tentative costs (at least 1)
+     * @param pool  runs the relaxations
+     * @return the same costs and parents shortestPathTree returns (null if the node
+     *         does not exist)
+     */
+    public ShortestPathTree deltaStepping(String from, int delta, ForkJoinPool pool) {
+        if (delta < 1)
+            throw new IllegalArgumentException("delta must be at least 1");
+        int source = names.id(from);
+        if (source == -1)
+            return null;
+        return DeltaStepping.run(this, source, delta, pool);
+    }
+
+    /**
+     * Finds the shortest paths from one node to every node it can reach using
+     * delta-stepping on the common fork-join pool
+     *
+     * @param from  start node
+     * @param delta width of each bucket of tentative costs (at least 1)
+     * @return the same costs and parents shortestPathTree returns (null if the node
+     *         does not exist)
+     */
+    public ShortestPathTree deltaStepping(String from, int delta) {
+        return deltaStepping(from, delta, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Private helper method running Dijkstra's Algorithm to a single end node
+     *
+     * @param context search state for this query, left holding costs and parents
+     * @param source  the start node
+     * @param target  the end node
+     * @param masked  flags for edge slots that may not be used (null if none)
+     * @return the cost of the shortest path (Long.MAX_VALUE if no path exists)
+     */
+    private long dijkstra(SearchContext context, int source, int target, boolean[] masked) {
+        dijkstra(context, source, new int[] {target}, masked);
+        return context.isSettled(target) ? context.cost()[target] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Private helper method running Dijkstra's Algorithm with an indexed heap
+     * *Vertices are settled in order of cost (ties broken by id), and the search
+     * stops as soon as every end node is settled
+     *
+     * @param context search state for this query, left holding costs and parents
+     * @param source  the start node
+     * @param stopAt  sorted, distinct end nodes (null to settle every reachable node)
+     * @param masked  flags for edge slots that may not be used (null if none)
+     */
+    private void dijkstra(SearchContext context, int source, int[] stopAt, boolean[] masked) {
+        IndexedMinHeap vHeap = context.heap();
+        long[] cost = context.cost();
+        int remaining = stopAt == null ? -1 : stopAt.length;
+        context.reach(source, -1, 0);
+        vHeap.insertOrDecrease(source, 0);
+        while (!vHeap.isEmpty()) {
+            // cost of a vertex is final once it leaves the heap
+            int vertex = vHeap.poll();
+            context.settle(vertex);
+            if (stopAt != null && Arrays.binarySearch(stopAt, vertex) >= 0 && --remaining == 0)
+                return;
+            // relax edges to unsettled neighbors
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                int next = targets[e];
+                if (context.isSettled(next) || (masked != null && masked[e]))
+                    continue;
+                long newCost = cost[vertex] + weights[e];
+                if (!context.isReached(next) || newCost < cost[next]) {
+                    context.reach(next, vertex, newCost);
+                    vHeap.insertOrDecrease(next, newCost);
+                }
+            }
+        }
+    }
+
+    /**
+     * Settles every vertex reachable from a vertex, or in reverse every vertex that
+     * can reach it
+     *
+     * @param vertex  the start node, or the end node in reverse
+     * @param reverse true to search backward over incoming edges
+     * @param costs   filled with the cost of each vertex (Long.MAX_VALUE if not
+     *                reached)
+     * @param parents filled with the previous vertex on each path, or the next hop
+     *                in reverse (-1 at the vertex itself and for unreached
+     *                vertices); null if not needed
+     */
+    void searchAll(int vertex, boolean reverse, long[] costs, int[] parents) {
+        SearchContext context = contexts.acquire();
+        try {
+            if (reverse)
+                reverseDijkstra(context, vertex);
+            else
+                dijkstra(context, vertex, null, null);
+            long[] cost = context.cost();
+            for (int i = 0; i < names.size(); i++) {
+                boolean settled = context.isSettled(i);
+                costs[i] = settled ? cost[i] : Long.MAX_VALUE;
+                if (parents != null)
+                    parents[i] = settled ? context.parent[i] : -1;
+            }
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Copies the snapshot with one edge reweighted, in time proportional to the
+     * number of edges and without rebuilding names or incoming edges
+     *
+     * @param from   start of the edge
+     * @param to     end of the edge
+     * @param weight the new weight
+     * @return the reweighted snapshot (this snapshot if the edge does not exist)
+     */
+    CompactWeightedGraph withWeight(String from, String to, int weight) {
+        int source = id(from);
+        int target = id(to);
+        int slot = source == -1 || target == -1 ? -1 : edgeSlot(source, target);
+        if (slot == -1)
+            return this;
+        int[] reweighted = weights.clone();
+        reweighted[slot] = weight;
+        return new CompactWeightedGraph(this, reweighted);
+    }
+
+    /**
+     * Repairs the costs and parents of a shortest-path tree after the weight of one
+     * edge changed to its weight in this snapshot
+     * *A cheaper edge starts a search from its end vertex that only goes where
+     * costs drop; a dearer edge that the tree used detaches the subtree below it,
+     * whose vertices are re-costed from their edges outside the subtree and then
+     * by a search confined to the subtree
+     * *Parents are then picked again, as the tight predecessor with the smallest
+     * (cost, id), for the vertices whose costs changed and the vertices they lead
+     * to, which keeps them equal to the ones searchAll finds
+     *
+     * @param source    the start node of the tree
+     * @param costs     cost of each vertex before the change, repaired in place
+     * @param parents   parent of each vertex before the change, repaired in place
+     * @param from      start of the changed edge
+     * @param to        end of the changed edge
+     * @param oldWeight weight of the edge before the change
+     */
+    void repairTree(int source, long[] costs, int[] parents, int from, int to, int oldWeight) {
+        int newWeight = weights[edgeSlot(from, to)];
+        if (costs[from] == Long.MAX_VALUE || newWeight == oldWeight)
+            return;
+        if (newWeight > oldWeight && parents[to] != from) {
+            // the tree did not use the edge, and a dearer edge cannot become a parent
+            return;
+        }
+        ReverseIndex in = reverseIndex();
+        SearchContext context = contexts.acquire();
+        try {
+            IndexedMinHeap heap = context.heap();
+            // vertices whose costs may have changed, in the order they were found
+            int[] changed = new int[16];
+            int count = 0;
+            if (newWeight < oldWeight) {
+                if (costs[from] + newWeight < costs[to]) {
+                    costs[to] = costs[from] + newWeight;
+                    heap.insertOrDecrease(to, costs[to]);
+                }
+                changed[count++] = to;
+            } else {
+                // mark the subtree below the edge with parent -2
+                parents[to] = -2;
+                changed[count++] = to;
+                for (int i = 0; i < count; i++) {
+                    int vertex = changed[i];
+                    for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                        int next = targets[e];
+                        if (parents[next] == vertex) {
+                            parents[next] = -2;
+                            if (count == changed.length)
+                                changed = Arrays.copyOf(changed, count * 2);
+                            changed[count++] = next;
+                        }
+                    }
+                }
+                // re-cost the subtree from the edges entering it
+                for (int i = 0; i < count; i++) {
+                    int vertex = changed[i];
+                    costs[vertex] = Long.MAX_VALUE;
+                    for (int k = in.offsets[vertex]; k < in.offsets[vertex + 1]; k++) {
+                        int previous = in.sources[k];
+                        if (parents[previous] != -2 && costs[previous] != Long.MAX_VALUE)
+                            costs[vertex] = Math.min(costs[vertex], costs[previous] + weights[in.slots[k]]);
+                    }
+                    if (costs[vertex] != Long.MAX_VALUE)
+                        heap.insertOrDecrease(vertex, costs[vertex]);
+                }
+            }
+            // costs outside the subtree can only drop when the edge got cheaper
+            boolean confined = newWeight > oldWeight;
+            while (!heap.isEmpty()) {
+                int vertex = heap.poll();
+                for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                    int next = targets[e];
+                    long newCost = costs[vertex] + weights[e];
+                    if (newCost < costs[next] && (!confined || parents[next] == -2)) {
+                        if (!confined) {
+                            if (count == changed.length)
+                                changed = Arrays.copyOf(changed, count * 2);
+                            changed[count++] = next;
+                        }
+                        costs[next] = newCost;
+                        heap.insertOrDecrease(next, newCost);
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int vertex = changed[i];
+                parents[vertex] = tightParent(in, source, costs, vertex);
+            }
+            for (int i = 0; i < count; i++) {
+                int vertex = changed[i];
+                for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++)
+                    parents[targets[e]] = tightParent(in, source, costs, targets[e]);
+            }
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Picks the parent Dijkstra's Algorithm settles a vertex with, by scanning its
+     * incoming edges; reads only shared arrays, so threads may call it at once for
+     * different vertices
+     *
+     * @param source the start node of the search
+     * @param costs  final cost of each vertex
+     * @param vertex a vertex
+     * @return the tight predecessor with the smallest (cost, id) (-1 at the start
+     *         node and for unreached vertices)
+     */
+    int tightParent(int source, long[] costs, int vertex) {
+        return tightParent(reverseIndex(), source, costs, vertex);
+    }
+
+    /**
+     * Private helper method picking the parent Dijkstra's Algorithm settles a
+     * vertex with
+     *
+     * @param in     the incoming-edge index
+     * @param source the start node of the search
+     * @param costs  final cost of each vertex
+     * @param vertex a vertex
+     * @return the tight predecessor with the smallest (cost, id) (-1 at the start
+     *         node and for unreached vertices)
+     */
+    private int tightParent(ReverseIndex in, int source, long[] costs, int vertex) {
+        if (vertex == source || costs[vertex] == Long.MAX_VALUE)
+            return -1;
+        int best = -1;
+        for (int k = in.offsets[vertex]; k < in.offsets[vertex + 1]; k++) {
+            int previous = in.sources[k];
+            if (costs[previous] == Long.MAX_VALUE || costs[previous] + weights[in.slots[k]] != costs[vertex])
+                continue;
+            if (best == -1 || costs[previous] < costs[best] || (costs[previous] == costs[best] && previous < best))
+                best = previous;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the incoming-edge index, building it on first use
+     *
+     * @return the incoming edges of every vertex
+     */
+    private ReverseIndex reverseIndex() {
+        ReverseIndex current = reverse;
+        if (current != null)
+            return current;
+        synchronized (this) {
+            if (reverse == null) {
+                // count in-degrees, then place edges in order of start vertex
+                int[] inOffsets = new int[names.size() + 1];
+                for (int target : targets)
+                    inOffsets[target + 1]++;
+                for (int i = 0; i < names.size(); i++)
+                    inOffsets[i + 1] += inOffsets[i];
+                int[] next = Arrays.copyOf(inOffsets, names.size());
+                int[] sources = new int[targets.length];
+                int[] slots = new int[targets.length];
+                for (int vertex = 0; vertex < names.size(); vertex++) {
+                    for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                        int position = next[targets[e]]++;
+                        sources[position] = vertex;
+                        slots[position] = e;
+                    }
+                }
+                reverse = new ReverseIndex(inOffsets, sources, slots);
+            }
+            return reverse;
+        }
+    }
+
+    /**
+     * Private helper method running Dijkstra's Algorithm backwards over incoming
+     * edges, settling every vertex that can reach the end node
+     * *Afterwards the context's parent of each vertex is its next hop towards the
+     * end node
+     *
+     * @param context search state, left holding costs to the end node
+     * @param target  the end node
+     */
+    private void reverseDijkstra(SearchContext context, int target) {
+        ReverseIndex in = reverseIndex();
+        IndexedMinHeap vHeap = context.heap();
+        long[] cost = context.cost();
+        context.reach(target, -1, 0);
+        vHeap.insertOrDecrease(target, 0);
+        while (!vHeap.isEmpty()) {
+            int vertex = vHeap.poll();
+            context.settle(vertex);
+            for (int e = in.offsets[vertex]; e < in.offsets[vertex + 1]; e++) {
+                int previous = in.sources[e];
+                if (context.isSettled(previous))
+                    continue;
+                long newCost = cost[vertex] + weights[in.slots[e]];
+                if (!context.isReached(previous) || newCost < cost[previous]) {
+                    context.reach(previous, vertex, newCost);
+                    vHeap.insertOrDecrease(previous, newCost);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the k shortest loopless paths between two nodes using Yen's algorithm
+     * *Spur searches mask edges and vertices per query instead of removing them,
+     * and reuse one backward shortest-path tree from the end node: a spur path
+     * follows the tree directly when no mask blocks it, and otherwise the tree's
+     * costs guide an A* search
+     *
+     * @param from start node
+     * @param to   end node
+     * @param k    the number of paths wanted
+     * @return up to k paths with their costs, cheapest first (empty if no path
+     *         exists or invalid arguments)
+     */
+    public List<Path> kShortestPaths(String from, String to, int k) {
+        int source = names.id(from);
+        int target = names.id(to);
+        ArrayList<Path> paths = new ArrayList<Path>();
+        if (source == -1 || target == -1 || k < 1)
+            return paths;
+        SearchContext context = contexts.acquire();
+        SearchContext tree = contexts.acquire();
+        try {
+            if (dijkstra(context, source, target, null) == Long.MAX_VALUE)
+                return paths;
+            int[] shortest = context.pathTo(target);
+            reverseDijkstra(tree, target);
+            KShortestPaths.SpurGraph spurGraph = new KShortestPaths.SpurGraph() {
+                @Override
+                public int[] spurPath(int spur, int end, boolean[] maskedSlots, boolean[] maskedVertices) {
+                    return spurSearch(context, tree, spur, end, maskedSlots, maskedVertices);
+                }
+
+                @Override
+                public int edgeSlot(int start, int end) {
+                    return CompactWeightedGraph.this.edgeSlot(start, end);
+                }
+
+                @Override
+                public long edgeCost(int slot) {
+                    return weights[slot];
+                }
+            };
+            for (KShortestPaths.Candidate found : KShortestPaths.find(spurGraph, shortest, k, names.size(),
+                    targets.length))
+                paths.add(new Path(toNames(found.path), found.cost));
+            return paths;
+        } finally {
+            contexts.release(context);
+            contexts.release(tree);
+        }
+    }
+
+    /**
+     * Private helper method for kShortestPaths finding one spur path
+     *
+     * @param context        search state for the spur search
+     * @param tree           backward shortest-path tree from the end node
+     * @param spur           the start of the spur path
+     * @param target         the end node
+     * @param maskedSlots    flags for edge slots that may not be used
+     * @param maskedVertices flags for vertices that may not be visited
+     * @return vertex ids from spur to target, or null if no path exists
+     */
+    private int[] spurSearch(SearchContext context, SearchContext tree, int spur, int target,
+            boolean[] maskedSlots, boolean[] maskedVertices) {
+        if (!tree.isReached(spur))
+            return null;
+        // the tree path is optimal whenever none of its edges or vertices are masked
+        int length = 1;
+        int trav = spur;
+        while (trav != target) {
+            int next = tree.parent[trav];
+            if (maskedVertices[next] || maskedSlots[edgeSlot(trav, next)])
+                break;
+            trav = next;
+            length++;
+        }
+        if (trav == target) {
+            int[] path = new int[length];
+            path[0] = spur;
+            for (int i = 1; i < length; i++)
+                path[i] = tree.parent[path[i - 1]];
+            return path;
+        }
+        // A* search using exact unmasked costs to the end node as lower bounds
+        long[] toTarget = tree.cost();
+        context.begin();
+        IndexedMinHeap vHeap = context.heap();
+        long[] cost = context.cost();
+        context.reach(spur, -1, 0);
+        vHeap.insertOrDecrease(spur, toTarget[spur]);
+        while (!vHeap.isEmpty()) {
+            int vertex = vHeap.poll();
+            context.settle(vertex);
+            if (vertex == target)
+                return context.pathTo(target);
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                int next = targets[e];
+                if (maskedSlots[e] || maskedVertices[next] || context.isSettled(next) || !tree.isReached(next))
+                    continue;
+                long newCost = cost[vertex] + weights[e];
+                if (!context.isReached(next) || newCost < cost[next]) {
+                    context.reach(next, vertex, newCost);
+                    vHeap.insertOrDecrease(next, newCost + toTarget[next]);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Answers a batch of path queries in parallel on the common fork-join pool
+     *
+     * @param queries the (from, to) pairs to answer
+     * @return shortest paths in the same order as the queries
+     */
+    public List<String[]> shortestPaths(List<PathQuery> queries) {
+        return shortestPathsAsync(queries, ForkJoinPool.commonPool()).join();
+    }
+
+    /**
+     * Answers a batch of path queries in parallel
+     * *Queries sharing a start node are grouped so that one Dijkstra search from
+     * that node answers all of them, and each group runs as a separate task
+     *
+     * @param queries  the (from, to) pairs to answer
+     * @param executor runs the per-group searches
+     * @return a future of shortest paths in the same order as the queries, with
+     *         empty arrays for invalid or unreachable pairs
+     */
+    public CompletableFuture<List<String[]>> shortestPathsAsync(List<PathQuery> queries, Executor executor) {
+        String[][] results = new String[queries.size()][];
+        // group query positions by start node
+        LinkedHashMap<Integer, ArrayList<Integer>> groups = new LinkedHashMap<Integer, ArrayList<Integer>>();
+        for (int i = 0; i < queries.size(); i++) {
+            int source = names.id(queries.get(i).getFrom());
+            if (source == -1 || names.id(queries.get(i).getTo()) == -1)
+                results[i] = new String[0];
+            else
+                groups.computeIfAbsent(source, key -> new ArrayList<Integer>()).add(i);
+        }
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[groups.size()];
+        int g = 0;
+        for (Map.Entry<Integer, ArrayList<Integer>> group : groups.entrySet()) {
+            tasks[g++] = CompletableFuture.runAsync(
+                    () -> answerGroup(group.getKey(), group.getValue(), queries, results), executor);
+        }
+        return CompletableFuture.allOf(tasks).thenApply(done -> Arrays.asList(results));
+    }
+
+    /**
+     * Answers every query of a group with one search from their shared start node
+     *
+     * @param source    the shared start node
+     * @param positions positions of the group's queries in the batch
+     * @param queries   the whole batch
+     * @param results   filled with the path of each query in the group
+     */
+    private void answerGroup(int source, List<Integer> positions, List<PathQuery> queries, String[][] results) {
+        int[] stopAt = new int[positions.size()];
+        for (int i = 0; i < stopAt.length; i++)
+            stopAt[i] = names.id(queries.get(positions.get(i)).getTo());
+        Arrays.sort(stopAt);
+        SearchContext context = contexts.acquire();
+        try {
+            dijkstra(context, source, distinct(stopAt), null);
+            for (int position : positions) {
+                int target = names.id(queries.get(position).getTo());
+                results[position] = context.isSettled(target) ? toNames(context.pathTo(target)) : new String[0];
+            }
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * @param sorted a sorted array of ids
+     * @return the array without repeated ids
+     */
+    private static int[] distinct(int[] sorted) {
+        int length = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1])
+                sorted[length++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, length);
+    }
+
+    /**
+     * Returns the second shortest path from one node to another node
+     * *Edges are masked out of a per-query overlay rather than removed, so the
+     * snapshot is never modified
+     *
+     * @param from start node
+     * @param to   end node
+     * @return String array representing the second shortest path (empty if doesn't
+     *         exist or invalid arguments)
+     */
+    public String[] secondShortestPath(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return new String[0];
+        SearchContext context = contexts.acquire();
+        try {
+            return secondShortestPath(context, source, target, new boolean[targets.length]);
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Private recursive helper method for secondShortestPath
+     *
+     * @param context search state reused by every search of this query
+     * @param source  the start node
+     * @param target  the end node
+     * @param masked  flags for edge slots that are currently severed
+     * @return the second shortest path
+     */
+    private String[] secondShortestPath(SearchContext context, int source, int target, boolean[] masked) {
+        // establish a shortest path
+        context.begin();
+        long leastCost = dijkstra(context, source, target, masked);
+        int[] shortestPath = leastCost == Long.MAX_VALUE ? new int[0] : context.pathTo(target);
+        String[] nextPath = new String[0];
+        // at every node in the shortest path, sever an edge and try Dijkstra's
+        // algorithm to find alternate path
+        for (int i = shortestPath.length - 1; i > 0; i--) {
+            int slot = edgeSlot(shortestPath[i - 1], shortestPath[i]);
+            masked[slot] = true;
+            context.begin();
+            long candidateCost = dijkstra(context, source, target, masked);
+            String[] candidatePath = candidateCost == Long.MAX_VALUE ? new String[0]
+                    : toNames(context.pathTo(target));
+            if (candidateCost == leastCost)
+                candidatePath = secondShortestPath(context, source, target, masked);
+            if (candidatePath.length != 0)
+                nextPath = candidatePath;
+            masked[slot] = false;
+        }
+        return nextPath;
+    }
+
+    /**
+     * Finds the slot of the edge from one vertex to another with binary search
+     * over the vertex's slots ordered by end vertex
+     *
+     * @param from the start of the edge
+     * @param to   the end of the edge
+     * @return index into targets and weights, or -1 if the edge does not exist
+     */
+    private int edgeSlot(int from, int to) {
+        int[] sorted = sortedSlots();
+        int low = offsets[from];
+        int high = offsets[from + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int end = targets[sorted[mid]];
+            if (end < to)
+                low = mid + 1;
+            else if (end > to)
+                high = mid - 1;
+            else
+                return sorted[mid];
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the edge slots ordered by end vertex within each vertex's range,
+     * building them on first use; slots themselves keep the order edges were
+     * added in, which searches depend on
+     *
+     * @return slot indices, sorted by end vertex within each range
+     */
+    private int[] sortedSlots() {
+        int[] current = sortedSlots;
+        if (current != null)
+            return current;
+        synchronized (this) {
+            if (sortedSlots == null) {
+                int[] sorted = new int[targets.length];
+                long[] keys = new long[0];
+                for (int vertex = 0; vertex < names.size(); vertex++) {
+                    int start = offsets[vertex];
+                    int degree = offsets[vertex + 1] - start;
+                    if (keys.length < degree)
+                        keys = new long[Math.max(degree, keys.length * 2)];
+                    // end vertex in the high half, slot in the low half
+                    for (int k = 0; k < degree; k++)
+                        keys[k] = (long) targets[start + k] << 32 | (start + k);
+                    Arrays.sort(keys, 0, degree);
+                    for (int k = 0; k < degree; k++)
+                        sorted[start + k] = (int) keys[k];
+                }
+                sortedSlots = sorted;
+            }
+            return sortedSlots;
+        }
+    }
+
+    /**
+     * @param name a node name
+     * @return true if the snapshot has the node
+     */
+    boolean contains(String name) {
+        return names.id(name) != -1;
+    }
+
+    /**
+     * @param name a node name
+     * @return the id of the node, or -1 if the snapshot does not have it
+     */
+    int id(String name) {
+        return names.id(name);
+    }
+
+    /**
+     * @return the names of the snapshot and their ids, shared with hierarchies
+     *         built from it
+     */
+    VertexDictionary names() {
+        return names;
+    }
+
+    /**
+     * @param id a vertex id
+     * @return the name of the vertex
+     */
+    String name(int id) {
+        return names.name(id);
+    }
+
+    /**
+     * @param id a vertex id, or vertexCount() for the end of the last range
+     * @return the first edge slot of the vertex
+     */
+    int edgeStart(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * @param slot an edge slot
+     * @return the vertex the edge leads to
+     */
+    int target(int slot) {
+        return targets[slot];
+    }
+
+    /**
+     * @param slot an edge slot
+     * @return the weight of the edge
+     */
+    int weight(int slot) {
+        return weights[slot];
+    }
+
+    /**
+     * @param path vertex ids
+     * @return the names of the vertices
+     */
+    private String[] toNames(int[] path) {
+        String[] pathArr = new String[path.length];
+        for (int i = 0; i < path.length; i++)
+            pathArr[i] = names.name(path[i]);
+        return pathArr;
+    }
+}
@@ -0,0 +1,77 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.util.Arrays;
+
+public class CompactWeightedGraphTest {
+    WeightedGraph graph = new WeightedGraph();
+
+    /**
+     * Builds the graph from weightedExample2.txt:
+     * A 5 B 3 C
+     * B 1 G 2 C 3 E
+     * C 7 D 7 E
+     * D 1 A 6 F
+     * E 1 F 2 D
+     * G 1 E
+     */
+    private void buildExample() {
+        String[] names = {"A", "B", "C", "D", "E", "F", "G"};
+        graph.addNodes(names);
+        graph.addWeightedEdges("A", new String[] {"B", "C"}, new int[] {5, 3});
+        graph.addWeightedEdges("B", new String[] {"G", "C", "E"}, new int[] {1, 2, 3});
+        graph.addWeightedEdges("C", new String[] {"D", "E"}, new int[] {7, 7});
+        graph.addWeightedEdges("D", new String[] {"A", "F"}, new int[] {1, 6});
+        graph.addWeightedEdges("E", new String[] {"F", "D"}, new int[] {1, 2});
+        graph.addWeightedEdge("G", "E", 1);
+    }
+
+    @Test
+    public void testFreeze() {
+        buildExample();
+        CompactWeightedGraph snapshot = graph.freeze();
+        Assert.assertEquals(7, snapshot.vertexCount());
+        Assert.assertEquals(12, snapshot.edgeCount());
+
+        // snapshot is reused until the graph changes
+        Assert.assertTrue(snapshot == graph.freeze());
+        graph.addWeightedEdge("A", "D", 1);
+        Assert.assertTrue(snapshot != graph.freeze());
+
+        // old snapshot keeps answering from the old edges
+        Assert.assertEquals("[A, B, G, E, D]", Arrays.toString(snapshot.shortestPath("A", "D")));
+        Assert.assertEquals("[A, D]", Arrays.toString(graph.shortestPath("A", "D")));
+    }
+
+    @Test
+    public void testAStarReopens() {
+        String[] names = {"S", "A", "B", "T"};
+        graph.addNodes(names);
+        graph.addWeightedEdge("S", "A", 4);
+        graph.addWeightedEdge("S", "B", 1);
+        graph.addWeightedEdge("B", "A", 1);
+        graph.addWeightedEdge("A", "T", 5);
+        // admissible but inconsistent: B looks far away, so A is settled at cost 4
+        // before B shows the cheaper way to A
+        Heuristic heuristic = (node, target) -> node.equals("B") ? 5 : 0;
+        Path path = graph.freeze().aStar("S", "T", heuristic);
+        Assert.assertEquals("[S, B, A, T] (7)", path.toString());
+        Assert.assertEquals(5, path.getSettled());
+
+        // no path and invalid arguments
+        Assert.assertEquals(-1, graph.freeze().aStar("T", "S", heuristic).getCost());
+        Assert.assertEquals(0, graph.freeze().aStar("S", "Z", heuristic).getNodes().length);
+        Assert.assertEquals(0, graph.freeze().aStar("S", "T", null).getNodes().length);
+    }
+
+    @Test
+    public void testSecondShortestPath() {
+        buildExample();
+        CompactWeightedGraph snapshot = graph.freeze();
+        Assert.assertEquals("[A, B, C]", Arrays.toString(snapshot.secondShortestPath("A", "C")));
+
+        // masking edges does not change the snapshot
+        Assert.assertEquals(12, snapshot.edgeCount());
+        Assert.assertTrue(snapshot == graph.freeze());
+        Assert.assertEquals("[A, C]", Arrays.toString(snapshot.shortestPath("A", "C")));
+    }
+}
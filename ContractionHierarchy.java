@@ -0,0 +1,793 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Contraction hierarchy over a snapshot of a directed, weighted graph
+ * *Preprocessing contracts the vertices one at a time, lowest edge difference
+ * first, and adds a shortcut between two neighbors of the contracted vertex
+ * whenever a witness search finds no path around it as cheap as the path through
+ * it
+ * *Each vertex keeps only its edges to vertices contracted after it: slots
+ * offsets[i] to splits[i] - 1 are edges leaving i, and slots splits[i] to
+ * offsets[i + 1] - 1 are edges entering i, stored by their start vertex
+ * *Queries search upward from both ends, so they settle a few hundred vertices
+ * even on country-sized road graphs, then unpack shortcuts through their middle
+ * vertices
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class ContractionHierarchy {
+    /** most vertices a witness search settles while contracting */
+    private static final int WITNESS_LIMIT = 500;
+
+    /** most vertices a witness search settles while estimating a priority */
+    private static final int ESTIMATE_LIMIT = 50;
+
+    /** vertex names and their ids */
+    private final VertexDictionary names;
+
+    /** position of each vertex in the contraction order */
+    private final int[] ranks;
+
+    /** start of each vertex's edge range (length n + 1) */
+    private final int[] offsets;
+
+    /** first incoming slot of each vertex */
+    private final int[] splits;
+
+    /** other end of every edge (the end of outgoing edges, the start of incoming ones) */
+    private final int[] targets;
+
+    /** weight of every edge */
+    private final int[] weights;
+
+    /** vertex each shortcut bypasses (-1 for edges of the graph itself) */
+    private final int[] middles;
+
+    /** search contexts shared by queries on this hierarchy */
+    private final SearchContext.Pool contexts;
+
+    /**
+     * Creates a hierarchy from its arrays
+     *
+     * @param names   vertex names, numbered in alphabetical order
+     * @param ranks   position of each vertex in the contraction order
+     * @param offsets start of each vertex's edge range (length n + 1)
+     * @param splits  first incoming slot of each vertex
+     * @param targets other end of every edge
+     * @param weights weight of every edge
+     * @param middles vertex each shortcut bypasses, or -1
+     */
+    private ContractionHierarchy(VertexDictionary names, int[] ranks, int[] offsets, int[] splits, int[] targets,
+            int[] weights, int[] middles) {
+        this.names = names;
+        this.ranks = ranks;
+        this.offsets = offsets;
+        this.splits = splits;
+        this.targets = targets;
+        this.weights = weights;
+        this.middles = middles;
+        contexts = new SearchContext.Pool(names.size());
+    }
+
+    /**
+     * Contracts every vertex of a snapshot
+     *
+     * @param graph the snapshot to preprocess
+     * @return the hierarchy of the snapshot
+     * @throws ArithmeticException a shortcut would weigh more than Integer.MAX_VALUE
+     */
+    static ContractionHierarchy build(CompactWeightedGraph graph) {
+        int n = graph.vertexCount();
+        Contraction contraction = new Contraction(graph);
+        contraction.run();
+        // lay out each vertex's outgoing then incoming edges
+        int[] offsets = new int[n + 1];
+        int[] splits = new int[n];
+        for (int i = 0; i < n; i++) {
+            splits[i] = offsets[i] + contraction.out[i].size;
+            offsets[i + 1] = splits[i] + contraction.in[i].size;
+        }
+        int[] targets = new int[offsets[n]];
+        int[] weights = new int[offsets[n]];
+        int[] middles = new int[offsets[n]];
+        for (int i = 0; i < n; i++) {
+            contraction.out[i].copyTo(targets, weights, middles, offsets[i]);
+            contraction.in[i].copyTo(targets, weights, middles, splits[i]);
+        }
+        return new ContractionHierarchy(graph.names(), contraction.ranks, offsets, splits, targets, weights, middles);
+    }
+
+    /**
+     * Reads a hierarchy written by save
+     *
+     * @param filename the file to read
+     * @return the hierarchy stored in the file
+     * @throws IOException the file does not exist or is not a valid contraction
+     *                     hierarchy file
+     */
+    public static ContractionHierarchy load(String filename) throws IOException {
+        GraphFile file = GraphFile.read(filename, GraphFile.CONTRACTED);
+        ContractionHierarchy hierarchy = new ContractionHierarchy(new VertexDictionary(file.names), file.sections[2], file.offsets,
+                file.sections[3], file.targets, file.sections[0], file.sections[1]);
+        hierarchy.validate(filename);
+        return hierarchy;
+    }
+
+    /**
+     * Writes the hierarchy to a binary file, so preprocessing runs once per graph
+     *
+     * @param filename the file to write
+     * @throws IOException the file cannot be written
+     */
+    public void save(String filename) throws IOException {
+        GraphFile.write(filename, GraphFile.CONTRACTED, names.names(), offsets, targets, weights, middles, ranks, splits);
+    }
+
+    /**
+     * Checks that the edges climb the contraction order and that every shortcut
+     * can be unpacked, so queries on a loaded hierarchy always terminate
+     *
+     * @param filename the file the hierarchy came from
+     * @throws IOException the arrays are inconsistent
+     */
+    private void validate(String filename) throws IOException {
+        boolean[] ranked = new boolean[names.size()];
+        for (int rank : ranks) {
+            if (rank < 0 || rank >= names.size() || ranked[rank])
+                throw new IOException(filename + " is corrupted (bad ranks)");
+            ranked[rank] = true;
+        }
+        for (int vertex = 0; vertex < names.size(); vertex++) {
+            if (splits[vertex] < offsets[vertex] || splits[vertex] > offsets[vertex + 1])
+                throw new IOException(filename + " is corrupted (bad splits)");
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                int middle = middles[e];
+                if (ranks[targets[e]] <= ranks[vertex] || weights[e] < 1)
+                    throw new IOException(filename + " is corrupted (bad edge)");
+                if (middle == -1)
+                    continue;
+                if (middle < 0 || middle >= names.size() || ranks[middle] >= ranks[vertex])
+                    throw new IOException(filename + " is corrupted (bad shortcut)");
+                // both halves of a shortcut must exist
+                int from = e < splits[vertex] ? vertex : targets[e];
+                int to = e < splits[vertex] ? targets[e] : vertex;
+                if (edgeSlot(from, middle) == -1 || edgeSlot(middle, to) == -1)
+                    throw new IOException(filename + " is corrupted (bad shortcut)");
+            }
+        }
+    }
+
+    /**
+     * @return the number of vertices in the hierarchy
+     */
+    public int vertexCount() {
+        return names.size();
+    }
+
+    /**
+     * @param vertex a vertex id
+     * @return the position of the vertex in the contraction order
+     */
+    int rank(int vertex) {
+        return ranks[vertex];
+    }
+
+    /**
+     * @return the number of shortcuts added by preprocessing
+     */
+    public int shortcutCount() {
+        int count = 0;
+        for (int middle : middles) {
+            if (middle != -1)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the cost of the shortest path between two nodes
+     *
+     * @param from start node
+     * @param to   end node
+     * @return the total weight of the shortest path (-1 if no path exists or invalid
+     *         arguments)
+     */
+    public long distance(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return -1;
+        SearchContext forwardSearch = contexts.acquire();
+        SearchContext backwardSearch = contexts.acquire();
+        try {
+            int meeting = search(forwardSearch, backwardSearch, source, target);
+            if (meeting == -1)
+                return -1;
+            return forwardSearch.cost()[meeting] + backwardSearch.cost()[meeting];
+        } finally {
+            contexts.release(forwardSearch);
+            contexts.release(backwardSearch);
+        }
+    }
+
+    /**
+     * Finds the shortest path between two nodes by searching upward from both ends
+     * *The path costs the same as the one shortestPath returns, but ties between
+     * equally cheap paths may be broken differently
+     *
+     * @param from start node
+     * @param to   end node
+     * @return String array representing the shortest path between two nodes (empty
+     *         array if no path exists or invalid arguments)
+     */
+    public String[] shortestPath(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return new String[0];
+        SearchContext forwardSearch = contexts.acquire();
+        SearchContext backwardSearch = contexts.acquire();
+        try {
+            int meeting = search(forwardSearch, backwardSearch, source, target);
+            if (meeting == -1)
+                return new String[0];
+            // join the upward path from the start node with the one from the end node
+            int[] firstHalf = forwardSearch.pathTo(meeting);
+            int length = firstHalf.length;
+            for (int trav = backwardSearch.parent[meeting]; trav != -1; trav = backwardSearch.parent[trav])
+                length++;
+            int[] packed = Arrays.copyOf(firstHalf, length);
+            int i = firstHalf.length;
+            for (int trav = backwardSearch.parent[meeting]; trav != -1; trav = backwardSearch.parent[trav])
+                packed[i++] = trav;
+            return unpack(packed);
+        } finally {
+            contexts.release(forwardSearch);
+            contexts.release(backwardSearch);
+        }
+    }
+
+    /**
+     * Computes the cost of the shortest path from every start node to every end
+     * node with bucket-based many-to-many search
+     * *An upward search backward from each end node leaves an (end node, cost)
+     * entry in the bucket of every vertex it settles; an upward search forward from
+     * each start node then scans the buckets of the vertices it settles, so the
+     * table costs one upward search per node rather than one query per pair
+     * *The searches of each side run in parallel on the common fork-join pool
+     *
+     * @param sources start nodes, one per row
+     * @param ends    end nodes, one per column
+     * @return the cost of the shortest path between every pair (-1 if no path
+     *         exists or invalid arguments)
+     */
+    public long[][] distanceTable(String[] sources, String[] ends) {
+        int[][] settled = new int[ends.length][];
+        long[][] settledCosts = new long[ends.length][];
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[ends.length];
+        for (int j = 0; j < ends.length; j++) {
+            int column = j;
+            tasks[j] = CompletableFuture.runAsync(() -> {
+                int target = names.id(ends[column]);
+                settled[column] = new int[0];
+                settledCosts[column] = new long[0];
+                if (target == -1)
+                    return;
+                SearchContext search = contexts.acquire();
+                try {
+                    settled[column] = searchUpward(search, target, false);
+                    settledCosts[column] = new long[settled[column].length];
+                    for (int i = 0; i < settled[column].length; i++)
+                        settledCosts[column][i] = search.cost()[settled[column][i]];
+                } finally {
+                    contexts.release(search);
+                }
+            }, ForkJoinPool.commonPool());
+        }
+        CompletableFuture.allOf(tasks).join();
+
+        // group the entries by vertex, in the layout of the edge arrays
+        int[] bucketOffsets = new int[names.size() + 1];
+        for (int[] vertices : settled) {
+            for (int vertex : vertices)
+                bucketOffsets[vertex + 1]++;
+        }
+        for (int i = 0; i < names.size(); i++)
+            bucketOffsets[i + 1] += bucketOffsets[i];
+        int[] fill = Arrays.copyOf(bucketOffsets, names.size());
+        int[] bucketColumns = new int[bucketOffsets[names.size()]];
+        long[] bucketCosts = new long[bucketOffsets[names.size()]];
+        for (int j = 0; j < ends.length; j++) {
+            for (int i = 0; i < settled[j].length; i++) {
+                int slot = fill[settled[j][i]]++;
+                bucketColumns[slot] = j;
+                bucketCosts[slot] = settledCosts[j][i];
+            }
+        }
+
+        long[][] table = new long[sources.length][];
+        tasks = new CompletableFuture<?>[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            int row = i;
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                long[] costs = new long[ends.length];
+                Arrays.fill(costs, Long.MAX_VALUE);
+                int source = names.id(sources[row]);
+                if (source != -1) {
+                    SearchContext search = contexts.acquire();
+                    try {
+                        for (int vertex : searchUpward(search, source, true)) {
+                            long cost = search.cost()[vertex];
+                            for (int b = bucketOffsets[vertex]; b < bucketOffsets[vertex + 1]; b++) {
+                                if (cost + bucketCosts[b] < costs[bucketColumns[b]])
+                                    costs[bucketColumns[b]] = cost + bucketCosts[b];
+                            }
+                        }
+                    } finally {
+                        contexts.release(search);
+                    }
+                }
+                for (int j = 0; j < costs.length; j++) {
+                    if (costs[j] == Long.MAX_VALUE)
+                        costs[j] = -1;
+                }
+                table[row] = costs;
+            }, ForkJoinPool.commonPool());
+        }
+        CompletableFuture.allOf(tasks).join();
+        return table;
+    }
+
+    /**
+     * Private helper method settling every vertex an upward search from one node
+     * reaches
+     *
+     * @param search  search state, left holding the cost of each settled vertex
+     * @param start   the node the search starts from
+     * @param forward true to follow edges leaving vertices, false to follow them
+     *                backward
+     * @return the settled vertices that are not stalled, in the order they were
+     *         settled
+     */
+    private int[] searchUpward(SearchContext search, int start, boolean forward) {
+        IndexedMinHeap heap = search.heap();
+        long[] cost = search.cost();
+        search.reach(start, -1, 0);
+        heap.insertOrDecrease(start, 0);
+        int[] settled = new int[16];
+        int count = 0;
+        while (!heap.isEmpty()) {
+            int vertex = heap.poll();
+            search.settle(vertex);
+            if (isStalled(search, vertex, forward))
+                continue;
+            if (count == settled.length)
+                settled = Arrays.copyOf(settled, count * 2);
+            settled[count++] = vertex;
+            int end = forward ? splits[vertex] : offsets[vertex + 1];
+            for (int e = forward ? offsets[vertex] : splits[vertex]; e < end; e++) {
+                int next = targets[e];
+                long newCost = cost[vertex] + weights[e];
+                if (!search.isSettled(next) && (!search.isReached(next) || newCost < cost[next])) {
+                    search.reach(next, vertex, newCost);
+                    heap.insertOrDecrease(next, newCost);
+                }
+            }
+        }
+        return Arrays.copyOf(settled, count);
+    }
+
+    /**
+     * Private helper method running the upward searches from both ends
+     * *Each side only follows edges to vertices contracted later, and keeps going
+     * while its cheapest unsettled vertex is cheaper than the best meeting cost
+     *
+     * @param forwardSearch  search state for the start node
+     * @param backwardSearch search state for the end node, whose parents point
+     *                       toward the end node
+     * @param source         the start node
+     * @param target         the end node
+     * @return the vertex where the shortest path peaks (-1 if no path exists)
+     */
+    private int search(SearchContext forwardSearch, SearchContext backwardSearch, int source, int target) {
+        IndexedMinHeap forwardHeap = forwardSearch.heap();
+        IndexedMinHeap backwardHeap = backwardSearch.heap();
+        forwardSearch.reach(source, -1, 0);
+        forwardHeap.insertOrDecrease(source, 0);
+        backwardSearch.reach(target, -1, 0);
+        backwardHeap.insertOrDecrease(target, 0);
+        long best = source == target ? 0 : Long.MAX_VALUE;
+        int meeting = source == target ? source : -1;
+        while (true) {
+            boolean forward = !forwardHeap.isEmpty() && forwardHeap.peekKey() < best;
+            boolean backward = !backwardHeap.isEmpty() && backwardHeap.peekKey() < best;
+            if (!forward && !backward)
+                return meeting;
+            if (forward && backward)
+                forward = forwardHeap.peekKey() <= backwardHeap.peekKey();
+            SearchContext near = forward ? forwardSearch : backwardSearch;
+            SearchContext far = forward ? backwardSearch : forwardSearch;
+            IndexedMinHeap heap = near.heap();
+            long[] cost = near.cost();
+            int vertex = heap.poll();
+            near.settle(vertex);
+            if (isStalled(near, vertex, forward))
+                continue;
+            int end = forward ? splits[vertex] : offsets[vertex + 1];
+            for (int e = forward ? offsets[vertex] : splits[vertex]; e < end; e++) {
+                int next = targets[e];
+                long newCost = cost[vertex] + weights[e];
+                if (near.isSettled(next))
+                    continue;
+                if (!near.isReached(next) || newCost < cost[next]) {
+                    near.reach(next, vertex, newCost);
+                    heap.insertOrDecrease(next, newCost);
+                }
+                // a vertex reached from both ends closes a path
+                if (far.isReached(next) && newCost + far.cost()[next] < best) {
+                    best = newCost + far.cost()[next];
+                    meeting = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a settled vertex is reached more cheaply through an edge from
+     * a later contracted vertex, which the upward search cannot follow
+     * *Such a vertex cannot be on the shortest path, so its edges are not relaxed
+     * (stall-on-demand)
+     *
+     * @param search  the search that settled the vertex
+     * @param vertex  a settled vertex
+     * @param forward true for the search from the start node
+     * @return true if the vertex's edges can be skipped
+     */
+    private boolean isStalled(SearchContext search, int vertex, boolean forward) {
+        long[] cost = search.cost();
+        // edges the other direction's search would follow lead into the vertex from above
+        int end = forward ? offsets[vertex + 1] : splits[vertex];
+        for (int e = forward ? splits[vertex] : offsets[vertex]; e < end; e++) {
+            int higher = targets[e];
+            if (search.isReached(higher) && cost[higher] + weights[e] < cost[vertex])
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replaces every shortcut on a path with the two edges it stands for, until
+     * only edges of the graph remain
+     *
+     * @param packed vertex ids of a path over the hierarchy's edges
+     * @return the names of the vertices along the unpacked path
+     */
+    private String[] unpack(int[] packed) {
+        int[] path = new int[packed.length];
+        int length = 0;
+        path[length++] = packed[0];
+        // pending edges, the next one to unpack on top
+        int[] stack = new int[16];
+        for (int i = 1; i < packed.length; i++) {
+            int top = 0;
+            stack[top++] = packed[i - 1];
+            stack[top++] = packed[i];
+            while (top > 0) {
+                int to = stack[--top];
+                int from = stack[--top];
+                int middle = middles[edgeSlot(from, to)];
+                if (middle == -1) {
+                    if (length == path.length)
+                        path = Arrays.copyOf(path, length * 2);
+                    path[length++] = to;
+                    continue;
+                }
+                if (top + 4 > stack.length)
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[top++] = middle;
+                stack[top++] = to;
+                stack[top++] = from;
+                stack[top++] = middle;
+            }
+        }
+        String[] pathArr = new String[length];
+        for (int i = 0; i < length; i++)
+            pathArr[i] = names.name(path[i]);
+        return pathArr;
+    }
+
+    /**
+     * Finds the slot of an edge, which is stored at whichever end was contracted
+     * first
+     *
+     * @param from the start of the edge
+     * @param to   the end of the edge
+     * @return index into targets, weights and middles, or -1 if the edge does not
+     *         exist
+     */
+    private int edgeSlot(int from, int to) {
+        if (ranks[from] < ranks[to]) {
+            for (int e = offsets[from]; e < splits[from]; e++) {
+                if (targets[e] == to)
+                    return e;
+            }
+        } else {
+            for (int e = splits[to]; e < offsets[to + 1]; e++) {
+                if (targets[e] == from)
+                    return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Edges of one vertex in one direction while the graph is being contracted
+     */
+    private static class Edges {
+        /** the number of edges */
+        private int size;
+
+        /** other end of every edge */
+        private int[] other;
+
+        /** weight of every edge */
+        private int[] weight;
+
+        /** vertex each shortcut bypasses (-1 for edges of the graph itself) */
+        private int[] middle;
+
+        /**
+         * @param capacity the number of edges to make room for
+         */
+        private Edges(int capacity) {
+            other = new int[Math.max(capacity, 2)];
+            weight = new int[other.length];
+            middle = new int[other.length];
+        }
+
+        /**
+         * @param vertex a vertex id
+         * @return the index of the edge to or from the vertex, or -1
+         */
+        private int indexOf(int vertex) {
+            for (int i = 0; i < size; i++) {
+                if (other[i] == vertex)
+                    return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Adds an edge to the end of the list
+         */
+        private void add(int vertex, int edgeWeight, int edgeMiddle) {
+            if (size == other.length) {
+                other = Arrays.copyOf(other, size * 2);
+                weight = Arrays.copyOf(weight, size * 2);
+                middle = Arrays.copyOf(middle, size * 2);
+            }
+            other[size] = vertex;
+            weight[size] = edgeWeight;
+            middle[size++] = edgeMiddle;
+        }
+
+        /**
+         * Removes an edge by moving the last edge into its place
+         *
+         * @param index the index of the edge
+         */
+        private void remove(int index) {
+            size--;
+            other[index] = other[size];
+            weight[index] = weight[size];
+            middle[index] = middle[size];
+        }
+
+        /**
+         * Copies the edges into the hierarchy's arrays
+         */
+        private void copyTo(int[] targets, int[] weights, int[] middles, int start) {
+            System.arraycopy(other, 0, targets, start, size);
+            System.arraycopy(weight, 0, weights, start, size);
+            System.arraycopy(middle, 0, middles, start, size);
+        }
+    }
+
+    /**
+     * State of the preprocessing, which contracts vertices in order of priority
+     * *The priority of a vertex is its edge difference (shortcuts added minus edges
+     * removed) plus the number of its neighbors already contracted, which keeps
+     * the contracted vertices spread across the graph
+     * *Priorities are recomputed for the neighbors of each contracted vertex, and
+     * lazily for the cheapest vertex before contracting it
+     */
+    private static class Contraction {
+        /** edges leaving each vertex, to vertices that are not contracted yet */
+        private final Edges[] out;
+
+        /** edges entering each vertex, from vertices that are not contracted yet */
+        private final Edges[] in;
+
+        /** position of each vertex in the contraction order (-1 until contracted) */
+        private final int[] ranks;
+
+        /** number of contracted neighbors of each vertex */
+        private final int[] contractedNeighbors;
+
+        /** state of the witness searches */
+        private final SearchContext witness;
+
+        /**
+         * Copies the edges of a snapshot
+         *
+         * @param graph the snapshot to preprocess
+         */
+        private Contraction(CompactWeightedGraph graph) {
+            int n = graph.vertexCount();
+            out = new Edges[n];
+            in = new Edges[n];
+            int[] inDegrees = new int[n];
+            for (int e = 0; e < graph.edgeCount(); e++)
+                inDegrees[graph.target(e)]++;
+            for (int i = 0; i < n; i++) {
+                out[i] = new Edges(graph.edgeStart(i + 1) - graph.edgeStart(i));
+                in[i] = new Edges(inDegrees[i]);
+            }
+            for (int i = 0; i < n; i++) {
+                for (int e = graph.edgeStart(i); e < graph.edgeStart(i + 1); e++)
+                    connect(i, graph.target(e), graph.weight(e), -1);
+            }
+            ranks = new int[n];
+            Arrays.fill(ranks, -1);
+            contractedNeighbors = new int[n];
+            witness = new SearchContext(n);
+        }
+
+        /**
+         * Adds an edge, or lowers the weight of an existing edge between the same
+         * vertices
+         *
+         * @param from   the start of the edge
+         * @param to     the end of the edge
+         * @param weight the weight of the edge
+         * @param middle the vertex a shortcut bypasses, or -1
+         */
+        private void connect(int from, int to, int weight, int middle) {
+            int i = out[from].indexOf(to);
+            if (i == -1) {
+                out[from].add(to, weight, middle);
+                in[to].add(from, weight, middle);
+            } else if (weight < out[from].weight[i]) {
+                int j = in[to].indexOf(from);
+                out[from].weight[i] = weight;
+                out[from].middle[i] = middle;
+                in[to].weight[j] = weight;
+                in[to].middle[j] = middle;
+            }
+        }
+
+        /**
+         * Contracts every vertex, cheapest priority first
+         */
+        private void run() {
+            int n = ranks.length;
+            IndexedMinHeap queue = new IndexedMinHeap(n);
+            for (int vertex = 0; vertex < n; vertex++)
+                queue.insertOrDecrease(vertex, priority(vertex));
+            int rank = 0;
+            while (!queue.isEmpty()) {
+                int vertex = queue.poll();
+                // contracting earlier vertices may have raised this one's priority
+                long current = priority(vertex);
+                if (!queue.isEmpty() && current > queue.peekKey()) {
+                    queue.insertOrDecrease(vertex, current);
+                    continue;
+                }
+                shortcut(vertex, false);
+                ranks[vertex] = rank++;
+                // the vertex keeps its own edges, which now all lead upward
+                Edges outgoing = out[vertex];
+                Edges incoming = in[vertex];
+                for (int i = 0; i < outgoing.size; i++) {
+                    int next = outgoing.other[i];
+                    in[next].remove(in[next].indexOf(vertex));
+                    contractedNeighbors[next]++;
+                }
+                for (int i = 0; i < incoming.size; i++) {
+                    int previous = incoming.other[i];
+                    out[previous].remove(out[previous].indexOf(vertex));
+                    contractedNeighbors[previous]++;
+                }
+                for (int i = 0; i < outgoing.size; i++)
+                    queue.insertOrDecrease(outgoing.other[i], priority(outgoing.other[i]));
+                for (int i = 0; i < incoming.size; i++)
+                    queue.insertOrDecrease(incoming.other[i], priority(incoming.other[i]));
+            }
+        }
+
+        /**
+         * @param vertex a vertex that is not contracted yet
+         * @return the priority of contracting the vertex next (lower goes first)
+         */
+        private long priority(int vertex) {
+            int edgeDifference = shortcut(vertex, true) - out[vertex].size - in[vertex].size;
+            return 2L * edgeDifference + contractedNeighbors[vertex];
+        }
+
+        /**
+         * Finds the shortcuts needed to contract a vertex, adding them unless only
+         * counting
+         *
+         * @param vertex   a vertex that is not contracted yet
+         * @param estimate true to only count the shortcuts, with shorter witness
+         *                 searches
+         * @return the number of shortcuts needed
+         * @throws ArithmeticException a shortcut would weigh more than
+         *                             Integer.MAX_VALUE
+         */
+        private int shortcut(int vertex, boolean estimate) {
+            Edges incoming = in[vertex];
+            Edges outgoing = out[vertex];
+            int shortcuts = 0;
+            for (int i = 0; i < incoming.size; i++) {
+                int previous = incoming.other[i];
+                long maxCost = -1;
+                for (int j = 0; j < outgoing.size; j++) {
+                    if (outgoing.other[j] != previous)
+                        maxCost = Math.max(maxCost, (long) incoming.weight[i] + outgoing.weight[j]);
+                }
+                if (maxCost == -1)
+                    continue;
+                witnessSearch(previous, vertex, maxCost, estimate ? ESTIMATE_LIMIT : WITNESS_LIMIT);
+                for (int j = 0; j < outgoing.size; j++) {
+                    int next = outgoing.other[j];
+                    long through = (long) incoming.weight[i] + outgoing.weight[j];
+                    // a path around the vertex that is no more expensive makes the shortcut unnecessary
+                    if (next == previous || witness.costOf(next) <= through)
+                        continue;
+                    shortcuts++;
+                    if (!estimate)
+                        connect(previous, next, Math.toIntExact(through), vertex);
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Runs Dijkstra's Algorithm from a vertex without passing through the
+         * vertex being contracted, stopping at a cost or settle limit
+         *
+         * @param source   the start of the search
+         * @param skipped  the vertex being contracted
+         * @param maxCost  the cost of the most expensive path through the skipped
+         *                 vertex
+         * @param limit    the most vertices to settle
+         */
+        private void witnessSearch(int source, int skipped, long maxCost, int limit) {
+            witness.begin();
+            IndexedMinHeap heap = witness.heap();
+            long[] cost = witness.cost();
+            witness.reach(source, -1, 0);
+            heap.insertOrDecrease(source, 0);
+            int settled = 0;
+            while (!heap.isEmpty() && heap.peekKey() <= maxCost && settled++ < limit) {
+                int vertex = heap.poll();
+                witness.settle(vertex);
+                Edges edges = out[vertex];
+                for (int i = 0; i < edges.size; i++) {
+                    int next = edges.other[i];
+                    if (next == skipped || witness.isSettled(next))
+                        continue;
+                    long newCost = cost[vertex] + edges.weight[i];
+                    if (!witness.isReached(next) || newCost < cost[next]) {
+                        witness.reach(next, vertex, newCost);
+                        heap.insertOrDecrease(next, newCost);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContractionHierarchyTest {
+    WeightedGraph graph = new WeightedGraph();
+
+    /**
+     * @param path nodes along a path in graph
+     * @return the total weight of the path's edges, or -1 if it uses a missing edge
+     */
+    private long pathCost(String[] path) {
+        long cost = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            int weight = graph.getWeight(path[i], path[i + 1]);
+            if (weight == -1)
+                return -1;
+            cost += weight;
+        }
+        return cost;
+    }
+
+    /**
+     * Checks the hierarchy against Dijkstra's Algorithm between every pair of nodes
+     *
+     * @param hierarchy a hierarchy of graph
+     * @param names     the nodes of graph
+     */
+    private void assertMatchesDijkstra(ContractionHierarchy hierarchy, String[] names) {
+        for (String from : names) {
+            for (String to : names) {
+                String[] expected = graph.shortestPath(from, to);
+                String[] path = hierarchy.shortestPath(from, to);
+                if (expected.length == 0) {
+                    Assert.assertEquals(0, path.length);
+                    Assert.assertEquals(-1, hierarchy.distance(from, to));
+                    continue;
+                }
+                // unpacked paths use only the graph's own edges
+                Assert.assertEquals(from, path[0]);
+                Assert.assertEquals(to, path[path.length - 1]);
+                Assert.assertEquals(pathCost(expected), pathCost(path));
+                Assert.assertEquals(pathCost(expected), hierarchy.distance(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void testExample() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\weightedExample2.txt");
+        ContractionHierarchy hierarchy = graph.contractionHierarchy();
+        Assert.assertEquals(7, hierarchy.vertexCount());
+        Assert.assertEquals("[]", Arrays.toString(hierarchy.shortestPath(null, "A")));
+        Assert.assertEquals("[A]", Arrays.toString(hierarchy.shortestPath("A", "A")));
+        Assert.assertEquals(0, hierarchy.distance("A", "A"));
+        Assert.assertEquals("[A, B, G, E, D]", Arrays.toString(hierarchy.shortestPath("A", "D")));
+        Assert.assertEquals(4, hierarchy.distance("B", "D"));
+        // edges are directed, so F reaches nothing
+        Assert.assertEquals("[]", Arrays.toString(hierarchy.shortestPath("F", "A")));
+        assertMatchesDijkstra(hierarchy, new String[] {"A", "B", "C", "D", "E", "F", "G"});
+
+        // the hierarchy is kept until the graph changes
+        Assert.assertTrue(hierarchy == graph.contractionHierarchy());
+        graph.addWeightedEdge("A", "D", 1);
+        Assert.assertTrue(hierarchy != graph.contractionHierarchy());
+        Assert.assertEquals(9, hierarchy.distance("A", "D"));
+        Assert.assertEquals(1, graph.contractionHierarchy().distance("A", "D"));
+    }
+
+    @Test
+    public void testRandomGraphs() {
+        Random random = new Random(233);
+        for (int round = 0; round < 30; round++) {
+            graph = new WeightedGraph();
+            String[] names = new String[2 + random.nextInt(30)];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = "v" + i;
+                graph.addNode(names[i]);
+            }
+            // small weights make many ties, large ones make shortcuts necessary
+            int maxWeight = round % 2 == 0 ? 3 : 100;
+            for (int i = random.nextInt(names.length * 4); i > 0; i--) {
+                graph.addWeightedEdge(names[random.nextInt(names.length)], names[random.nextInt(names.length)],
+                        1 + random.nextInt(maxWeight));
+            }
+            assertMatchesDijkstra(graph.contractionHierarchy(), names);
+        }
+    }
+
+    @Test
+    public void testDistanceTable() {
+        Random random = new Random(233);
+        for (int round = 0; round < 20; round++) {
+            graph = new WeightedGraph();
+            String[] names = new String[2 + random.nextInt(40)];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = "v" + i;
+                graph.addNode(names[i]);
+            }
+            for (int i = random.nextInt(names.length * 4); i > 0; i--) {
+                graph.addWeightedEdge(names[random.nextInt(names.length)], names[random.nextInt(names.length)],
+                        1 + random.nextInt(round % 2 == 0 ? 3 : 100));
+            }
+            // repeated and unknown nodes are allowed on both sides
+            String[] sources = new String[1 + random.nextInt(10)];
+            String[] targets = new String[1 + random.nextInt(10)];
+            for (int i = 0; i < sources.length; i++)
+                sources[i] = i == 0 ? "missing" : names[random.nextInt(names.length)];
+            for (int j = 0; j < targets.length; j++)
+                targets[j] = names[random.nextInt(names.length)];
+            long[][] table = graph.distanceTable(sources, targets);
+            Assert.assertEquals(sources.length, table.length);
+            for (int i = 0; i < sources.length; i++) {
+                Assert.assertEquals(targets.length, table[i].length);
+                for (int j = 0; j < targets.length; j++) {
+                    String[] path = graph.shortestPath(sources[i], targets[j]);
+                    Assert.assertEquals(path.length == 0 ? -1 : pathCost(path), table[i][j]);
+                }
+            }
+        }
+        Assert.assertEquals(0, graph.distanceTable(new String[0], new String[] {"v0"}).length);
+        Assert.assertEquals(0, graph.distanceTable(new String[] {"v0"}, new String[0])[0].length);
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        File file = File.createTempFile("hierarchy", ".bin");
+        file.deleteOnExit();
+        ContractionHierarchy hierarchy = graph.contractionHierarchy();
+        hierarchy.save(file.getPath());
+        ContractionHierarchy loaded = ContractionHierarchy.load(file.getPath());
+        Assert.assertEquals(hierarchy.vertexCount(), loaded.vertexCount());
+        Assert.assertEquals(hierarchy.shortcutCount(), loaded.shortcutCount());
+        Assert.assertEquals(899, loaded.distance("Rzeszow", "Szczecin"));
+        String[] cities = {"Warsaw", "Gdynia", "Szczecin", "Walbrzych", "Rzeszow", "Bialystok", "Kielce"};
+        assertMatchesDijkstra(loaded, cities);
+
+        // a graph file is not a hierarchy
+        file = File.createTempFile("weighted", ".bin");
+        file.deleteOnExit();
+        graph.save(file.getPath());
+        try {
+            ContractionHierarchy.load(file.getPath());
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            // not a contraction hierarchy
+        }
+    }
+}
@@ -0,0 +1,303 @@
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel single-source shortest paths by delta-stepping
+ * *Vertices wait in buckets of width delta by tentative cost; the cheapest bucket
+ * is emptied by relaxing its light edges (weight at most delta) in parallel until
+ * no vertex falls back into it, then the heavy edges of everything it held are
+ * relaxed once
+ * *Costs are lowered with compare-and-set, so relaxations of the same bucket run
+ * on a fork-join pool without locks
+ * *Once costs are final, each vertex's parent is its tight predecessor with the
+ * smallest (cost, id), which is the parent Dijkstra's Algorithm settles it with,
+ * so the tree matches shortestPath exactly; each task picks the parents of its
+ * own range of vertices from their incoming edges, so no two write the same slot
+ *
+ * @author <i>Charlie Lin</i>
+ */
+class DeltaStepping {
+    /** vertices one task relaxes before it stops splitting */
+    private static final int GRAIN = 256;
+
+    /** the snapshot being searched */
+    private final CompactWeightedGraph graph;
+
+    /** width of each bucket */
+    private final int delta;
+
+    /** tentative cost of each vertex (Long.MAX_VALUE if not reached) */
+    private final AtomicLongArray costs;
+
+    /** relaxation round in which each vertex was last recorded as changed */
+    private final AtomicIntegerArray recorded;
+
+    /** vertices whose cost was lowered in the current round */
+    private final int[] changed;
+
+    /** number of entries of changed in use */
+    private final AtomicInteger changedCount;
+
+    /** the current relaxation round */
+    private int round;
+
+    /** vertex lists keyed by bucket index; entries may be stale */
+    private final TreeMap<Long, VertexList> buckets;
+
+    /**
+     * @param graph the snapshot to search
+     * @param delta width of each bucket
+     */
+    private DeltaStepping(CompactWeightedGraph graph, int delta) {
+        this.graph = graph;
+        this.delta = delta;
+        int n = graph.vertexCount();
+        costs = new AtomicLongArray(n);
+        for (int i = 0; i < n; i++)
+            costs.set(i, Long.MAX_VALUE);
+        recorded = new AtomicIntegerArray(n);
+        changed = new int[n];
+        changedCount = new AtomicInteger();
+        round = 0;
+        buckets = new TreeMap<Long, VertexList>();
+    }
+
+    /**
+     * Finds the shortest paths from one vertex to every vertex it can reach
+     *
+     * @param graph  the snapshot to search
+     * @param source the start node
+     * @param delta  width of each bucket (at least 1)
+     * @param pool   runs the relaxations
+     * @return the costs and parents of every vertex
+     */
+    static ShortestPathTree run(CompactWeightedGraph graph, int source, int delta, ForkJoinPool pool) {
+        DeltaStepping search = new DeltaStepping(graph, delta);
+        search.costs.set(source, 0);
+        search.bucket(0).add(source);
+        int n = graph.vertexCount();
+        // stamps of the last frontier and the last bucket each vertex was part of
+        int[] inFrontier = new int[n];
+        int[] inBucket = new int[n];
+        int frontierStamp = 0;
+        int bucketStamp = 0;
+        while (!search.buckets.isEmpty()) {
+            long index = search.buckets.firstKey();
+            bucketStamp++;
+            VertexList emptied = new VertexList();
+            VertexList bucket;
+            while ((bucket = search.buckets.remove(index)) != null) {
+                frontierStamp++;
+                // skip repeats and vertices that have since moved to a cheaper bucket
+                VertexList frontier = new VertexList();
+                for (int i = 0; i < bucket.size; i++) {
+                    int vertex = bucket.items[i];
+                    if (inFrontier[vertex] == frontierStamp || search.costs.get(vertex) / delta != index)
+                        continue;
+                    inFrontier[vertex] = frontierStamp;
+                    frontier.add(vertex);
+                    if (inBucket[vertex] != bucketStamp) {
+                        inBucket[vertex] = bucketStamp;
+                        emptied.add(vertex);
+                    }
+                }
+                search.relax(frontier.toArray(), true, pool);
+            }
+            search.relax(emptied.toArray(), false, pool);
+        }
+        long[] finalCosts = new long[n];
+        for (int i = 0; i < n; i++)
+            finalCosts[i] = search.costs.get(i);
+        int[] parents = new int[n];
+        pool.invoke(new ParentTask(graph, source, finalCosts, parents, 0, n));
+        return new ShortestPathTree(graph, source, finalCosts, parents);
+    }
+
+    /**
+     * @param index a bucket index
+     * @return the bucket, created if it does not exist
+     */
+    private VertexList bucket(long index) {
+        return buckets.computeIfAbsent(index, key -> new VertexList());
+    }
+
+    /**
+     * Relaxes the light or heavy edges of some vertices in parallel, then moves
+     * every vertex whose cost dropped into its new bucket
+     *
+     * @param vertices the vertices whose edges are relaxed
+     * @param light    true for edges of weight at most delta, false for the rest
+     * @param pool     runs the relaxations
+     */
+    private void relax(int[] vertices, boolean light, ForkJoinPool pool) {
+        round++;
+        changedCount.set(0);
+        if (vertices.length <= GRAIN)
+            new RelaxTask(vertices, 0, vertices.length, light).compute();
+        else
+            pool.invoke(new RelaxTask(vertices, 0, vertices.length, light));
+        for (int i = 0; i < changedCount.get(); i++) {
+            int vertex = changed[i];
+            bucket(costs.get(vertex) / delta).add(vertex);
+        }
+    }
+
+    /**
+     * Relaxes the edges of a range of vertices, splitting the range between tasks
+     */
+    private class RelaxTask extends RecursiveAction {
+        /** version of the serialized form */
+        private static final long serialVersionUID = 1L;
+
+        /** the vertices being relaxed */
+        private final int[] vertices;
+
+        /** first position of the range */
+        private final int from;
+
+        /** end of the range, exclusive */
+        private final int to;
+
+        /** true for edges of weight at most delta, false for the rest */
+        private final boolean light;
+
+        /**
+         * @param vertices the vertices being relaxed
+         * @param from     first position of the range
+         * @param to       end of the range, exclusive
+         * @param light    true for light edges, false for heavy ones
+         */
+        private RelaxTask(int[] vertices, int from, int to, boolean light) {
+            this.vertices = vertices;
+            this.from = from;
+            this.to = to;
+            this.light = light;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RelaxTask(vertices, from, middle, light), new RelaxTask(vertices, middle, to, light));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                int vertex = vertices[i];
+                long cost = costs.get(vertex);
+                for (int e = graph.edgeStart(vertex); e < graph.edgeStart(vertex + 1); e++) {
+                    int weight = graph.weight(e);
+                    if ((weight <= delta) == light)
+                        lower(graph.target(e), cost + weight);
+                }
+            }
+        }
+
+        /**
+         * Lowers the cost of a vertex if the new cost is smaller, recording it once
+         * per round
+         *
+         * @param vertex  the end of the relaxed edge
+         * @param newCost the cost through the edge
+         */
+        private void lower(int vertex, long newCost) {
+            long current = costs.get(vertex);
+            while (newCost < current) {
+                if (costs.compareAndSet(vertex, current, newCost)) {
+                    if (recorded.getAndSet(vertex, round) != round)
+                        changed[changedCount.getAndIncrement()] = vertex;
+                    return;
+                }
+                current = costs.get(vertex);
+            }
+        }
+    }
+
+    /**
+     * Picks the parent of every vertex in a range, splitting the range between
+     * tasks
+     */
+    private static class ParentTask extends RecursiveAction {
+        /** version of the serialized form */
+        private static final long serialVersionUID = 1L;
+
+        /** the snapshot being searched */
+        private final CompactWeightedGraph graph;
+
+        /** the start node */
+        private final int source;
+
+        /** final cost of each vertex */
+        private final long[] costs;
+
+        /** parent of each vertex, filled in */
+        private final int[] parents;
+
+        /** first vertex of the range */
+        private final int from;
+
+        /** end of the range, exclusive */
+        private final int to;
+
+        /**
+         * @param graph   the snapshot being searched
+         * @param source  the start node
+         * @param costs   final cost of each vertex
+         * @param parents parent of each vertex, filled in
+         * @param from    first vertex of the range
+         * @param to      end of the range, exclusive
+         */
+        private ParentTask(CompactWeightedGraph graph, int source, long[] costs, int[] parents, int from, int to) {
+            this.graph = graph;
+            this.source = source;
+            this.costs = costs;
+            this.parents = parents;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN * 16) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParentTask(graph, source, costs, parents, from, middle),
+                        new ParentTask(graph, source, costs, parents, middle, to));
+                return;
+            }
+            // each vertex's slot is written by the one task owning it
+            for (int vertex = from; vertex < to; vertex++)
+                parents[vertex] = graph.tightParent(source, costs, vertex);
+        }
+    }
+
+    /**
+     * Growable list of vertex ids
+     */
+    private static class VertexList {
+        /** the ids */
+        private int[] items = new int[8];
+
+        /** the number of ids in use */
+        private int size;
+
+        /**
+         * @param vertex an id to append
+         */
+        private void add(int vertex) {
+            if (size == items.length)
+                items = Arrays.copyOf(items, size * 2);
+            items[size++] = vertex;
+        }
+
+        /**
+         * @return the ids in order
+         */
+        private int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times delta-stepping against Dijkstra's Algorithm on a road-like grid, for a
+ * growing number of threads
+ * *Usage: java DeltaSteppingBenchmark [side] [delta] [repeats]
+ * *Speedup is the Dijkstra time divided by the delta-stepping time; it can only
+ * grow with the thread count up to the number of cores
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class DeltaSteppingBenchmark {
+    /**
+     * Builds a side by side grid with two-way edges of random weight between
+     * neighbours
+     *
+     * @param side nodes along each side of the grid
+     * @return the frozen grid
+     */
+    private static CompactWeightedGraph grid(int side) {
+        Random random = new Random(233);
+        WeightedGraph graph = new WeightedGraph();
+        String[] names = new String[side * side];
+        for (int i = 0; i < names.length; i++)
+            names[i] = "n" + i;
+        graph.addNodes(names);
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int node = row * side + col;
+                if (col + 1 < side) {
+                    int weight = 10 + random.nextInt(90);
+                    graph.addWeightedEdge(names[node], names[node + 1], weight);
+                    graph.addWeightedEdge(names[node + 1], names[node], weight);
+                }
+                if (row + 1 < side) {
+                    int weight = 10 + random.nextInt(90);
+                    graph.addWeightedEdge(names[node], names[node + side], weight);
+                    graph.addWeightedEdge(names[node + side], names[node], weight);
+                }
+            }
+        }
+        return graph.freeze();
+    }
+
+    /**
+     * @param graph   the graph to search
+     * @param source  start node
+     * @param delta   bucket width, or 0 for Dijkstra's Algorithm
+     * @param pool    runs delta-stepping's relaxations
+     * @param repeats number of timed searches
+     * @return the fastest time of one search in milliseconds
+     */
+    private static double time(CompactWeightedGraph graph, String source, int delta, ForkJoinPool pool,
+            int repeats) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < repeats; i++) {
+            long start = System.nanoTime();
+            if (delta == 0)
+                graph.shortestPathTree(source);
+            else
+                graph.deltaStepping(source, delta, pool);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int delta = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int repeats = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int cores = Runtime.getRuntime().availableProcessors();
+        CompactWeightedGraph graph = grid(side);
+        String source = "n" + (side / 2 * side + side / 2);
+        System.out.println(graph.vertexCount() + " nodes, " + graph.edgeCount() + " edges, delta " + delta + ", "
+                + cores + " cores");
+
+        // warm up both searches before timing
+        time(graph, source, 0, null, repeats);
+        double dijkstra = time(graph, source, 0, null, repeats);
+        System.out.printf("dijkstra          %9.2f ms%n", dijkstra);
+        for (int threads = 1; threads <= Math.max(cores, 1) * 2; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                time(graph, source, delta, pool, repeats);
+                double stepping = time(graph, source, delta, pool, repeats);
+                System.out.printf("%2d threads        %9.2f ms  speedup %.2fx%n", threads, stepping,
+                        dijkstra / stepping);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeltaSteppingTest {
+    WeightedGraph graph = new WeightedGraph();
+
+    /**
+     * Checks a delta-stepping tree against Dijkstra's Algorithm from its start node
+     * to every node
+     *
+     * @param tree  a tree grown by delta-stepping
+     * @param names the nodes of graph
+     */
+    private void assertMatchesDijkstra(ShortestPathTree tree, String[] names) {
+        ShortestPathTree expected = graph.freeze().shortestPathTree(tree.getSource());
+        for (String to : names) {
+            Assert.assertEquals(expected.distanceTo(to), tree.distanceTo(to));
+            Assert.assertEquals(expected.getParent(to), tree.getParent(to));
+            Assert.assertEquals(Arrays.toString(graph.shortestPath(tree.getSource(), to)),
+                    Arrays.toString(tree.pathTo(to)));
+        }
+    }
+
+    @Test
+    public void testPoland() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        String[] cities = {"Warsaw", "Lublin", "Bialystok", "Radom", "Torun", "Poznan", "Kielce", "Bydgoszcz",
+                "Gdansk", "Gdynia", "Koszalin", "Szczecin", "Wroclaw", "Walbrzych", "Krakow", "Tarnow", "Rzeszow",
+                "Gliwice"};
+        ShortestPathTree tree = graph.deltaStepping("Rzeszow", 100);
+        Assert.assertEquals("Rzeszow", tree.getSource());
+        Assert.assertEquals(899, tree.distanceTo("Szczecin"));
+        Assert.assertEquals("Poznan", tree.getParent("Szczecin"));
+        for (int delta : new int[] {1, 50, 1000, Integer.MAX_VALUE}) {
+            for (String from : cities)
+                assertMatchesDijkstra(graph.deltaStepping(from, delta), cities);
+            // unknown end nodes have no distance
+            Assert.assertEquals(-1, graph.deltaStepping("Warsaw", delta).distanceTo("Berlin"));
+        }
+
+        Assert.assertNull(graph.deltaStepping("Berlin", 100));
+        try {
+            graph.deltaStepping("Warsaw", 0);
+            Assert.assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            // buckets need a positive width
+        }
+    }
+
+    @Test
+    public void testRandomGraphs() {
+        Random random = new Random(233);
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                graph = new WeightedGraph();
+                // large graphs split relaxations between tasks
+                String[] names = new String[2 + random.nextInt(round < 16 ? 30 : 3000)];
+                for (int i = 0; i < names.length; i++)
+                    names[i] = "v" + i;
+                graph.addNodes(names);
+                // small weights make many ties
+                int maxWeight = round % 2 == 0 ? 3 : 100;
+                for (int i = random.nextInt(names.length * 4); i > 0; i--) {
+                    graph.addWeightedEdge(names[random.nextInt(names.length)], names[random.nextInt(names.length)],
+                            1 + random.nextInt(maxWeight));
+                }
+                String from = names[random.nextInt(names.length)];
+                int delta = 1 + random.nextInt(maxWeight * 2);
+                assertMatchesDijkstra(graph.deltaStepping(from, delta, single), names);
+                assertMatchesDijkstra(graph.deltaStepping(from, delta, pool), names);
+            }
+        } finally {
+            single.shutdown();
+            pool.shutdown();
+        }
+    }
+}
@@ -1,25 +1,36 @@
-import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.PriorityQueue;
-import java.util.Scanner;
-import java.util.Stack;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Graph implementation for P6
  * *Node and vertex and used interchangeably in documentation
+ * *Searches run on an immutable snapshot of the graph, so any number of threads
+ * can query one graph while another thread modifies it
  * 
  * @author <i>Charlie Lin</i>
  */
 public class Graph {
-    /** adjacency list using hashmap */
-    private HashMap<String, Vertex> adjList;
+    /**
+     * adjacency list keyed by vertex name, in the order vertices were added (null
+     * until first needed when the graph was loaded from a binary file)
+     */
+    private LinkedHashMap<String, Vertex> adjList;
+
+    /** CSR snapshot used by searches (null if the graph changed since the last freeze) */
+    private volatile CompactGraph snapshot;
 
-    /** list of vertex names */
-    private LinkedList<String> vertices;
+    /** number of connected components (valid unless componentsStale) */
+    private int components;
+
+    /** true if a node was removed since the component index was last built */
+    private boolean componentsStale;
 
     /**
      * Vertex/node representation for a graph
@@ -28,14 +39,14 @@ public class Graph {
         /** the name of this vertex */
         private String name;
 
-        /** all edges connected to this vertex */
-        private LinkedList<Edge> edges;
+        /** all edges connected to this vertex, keyed by neighbor */
+        private LinkedHashMap<Vertex, Edge> edges;
 
-        /** true if the vertex has been encountered in graph traversal */
-        private boolean visited;
+        /** parent in the union-find forest of components (itself at a root) */
+        private Vertex leader;
 
-        /** the parent of this vertex in graph traversal */
-        private Vertex parent;
+        /** upper bound on the height of the vertex's union-find tree */
+        private int rank;
 
         /**
          * Constructor for vertex with specified name
@@ -44,16 +55,15 @@ public class Graph {
          */
         private Vertex(String name) {
             this.name = name;
-            edges = new LinkedList<Edge>();
-            visited = false;
-            parent = null;
+            edges = new LinkedHashMap<Vertex, Edge>();
+            leader = this;
         }
     }
 
     /**
      * Undirected, unweighted edge representation for a graph
      */
-    private class Edge implements Comparable<Edge> {
+    private class Edge {
         /** the first vertex connected by this edge */
         Vertex v1;
 
@@ -70,32 +80,58 @@ public class Graph {
             this.v1 = v1;
             this.v2 = v2;
         }
-
-        /** used to compare edges and avoid redundant edges */
-        @Override
-        public boolean equals(Object o) {
-            if (o instanceof Edge) {
-                Edge compareEdge = (Edge) o;
-                if (v1.name.equals(compareEdge.v1.name) && v2.name.equals(compareEdge.v2.name))
-                    return true;
-                else if (v1.name.equals(compareEdge.v2.name) && v2.name.equals(compareEdge.v1.name))
-                    return true;
-            }
-            return false;
-        }
-
-        @Override
-        public int compareTo(Edge edge) {
-            return v2.name.compareTo(edge.v2.name);
-        }
     }
 
     /**
      * Creates a new Graph
      */
     public Graph() {
-        adjList = new HashMap<String, Vertex>();
-        vertices = new LinkedList<String>();
+        adjList = new LinkedHashMap<String, Vertex>();
+    }
+
+    /**
+     * Creates a new Graph with room for the given number of nodes
+     * 
+     * @param expectedNodes the number of nodes the graph will hold
+     */
+    private Graph(long expectedNodes) {
+        adjList = new LinkedHashMap<String, Vertex>((int) Math.min(expectedNodes * 4 / 3 + 1, 1 << 30));
+    }
+
+    /**
+     * Creates a Graph backed by a snapshot, without building the adjacency list
+     * 
+     * @param snapshot the snapshot holding the graph
+     */
+    private Graph(CompactGraph snapshot) {
+        this.snapshot = snapshot;
+        componentsStale = true;
+    }
+
+    /**
+     * Returns the adjacency list, building it from the snapshot first if the graph
+     * was loaded from a binary file
+     * 
+     * @return the adjacency list
+     */
+    private LinkedHashMap<String, Vertex> adjacency() {
+        if (adjList == null) {
+            CompactGraph current = snapshot;
+            Vertex[] vertices = new Vertex[current.vertexCount()];
+            adjList = new LinkedHashMap<String, Vertex>((int) Math.min(vertices.length * 4L / 3 + 1, 1 << 30));
+            for (int i = 0; i < vertices.length; i++) {
+                vertices[i] = new Vertex(current.name(i));
+                adjList.put(vertices[i].name, vertices[i]);
+            }
+            // each edge is stored in the ranges of both of its nodes
+            for (int i = 0; i < vertices.length; i++) {
+                for (int e = current.edgeStart(i); e < current.edgeStart(i + 1); e++) {
+                    Vertex neighbor = vertices[current.target(e)];
+                    vertices[i].edges.put(neighbor, new Edge(vertices[i], neighbor));
+                }
+            }
+        }
+        return adjList;
     }
 
     /**
@@ -104,18 +140,35 @@ public class Graph {
      * @param name the name of the node to be added
      * @return true if node is successfully added
      */
-    public boolean addNode(String name) {
+    public synchronized boolean addNode(String name) {
         if (name == null)
             return false;
         // check for duplicate, constant access with map
-        if (adjList.get(name) == null) {
+        if (adjacency().get(name) == null) {
             adjList.put(name, new Vertex(name));
-            vertices.add(name);
+            components++;
+            snapshot = null;
             return true;
         }
         return false;
     }
 
+    /**
+     * Private helper method for read to find a node, adding it if it is new
+     * 
+     * @param name the name of the node
+     * @return the vertex of the node
+     */
+    private Vertex vertexFor(String name) {
+        Vertex vertex = adjList.get(name);
+        if (vertex == null) {
+            vertex = new Vertex(name);
+            adjList.put(name, vertex);
+            components++;
+        }
+        return vertex;
+    }
+
     /**
      * Adds a list of nodes to the graph if the node does not already exist in the
      * graph
@@ -123,7 +176,7 @@ public class Graph {
      * @param names the list of names of the nodes to be added
      * @return true if all nodes are successfully added, false otherwise
      */
-    public boolean addNodes(String[] names) {
+    public synchronized boolean addNodes(String[] names) {
         if (names == null)
             return false;
         int dupCount = 0;
@@ -142,20 +195,117 @@ public class Graph {
      * @param to   the second node to be connected
      * @return true if the edge is successfully added, false otherwise
      */
-    public boolean addEdge(String from, String to) {
-        // at least one of the vertices does not exist or from equals to
-        if (adjList.get(from) == null || adjList.get(to) == null || from.equals(to))
+    public synchronized boolean addEdge(String from, String to) {
+        Vertex v1 = adjacency().get(from);
+        Vertex v2 = adjList.get(to);
+        // at least one of the vertices does not exist
+        if (v1 == null || v2 == null)
             return false;
-        // check if edge exists in edge lists of from and to
-        Edge newEdge1 = new Edge(adjList.get(from), adjList.get(to));
-        Edge newEdge2 = new Edge(adjList.get(to), adjList.get(from));
-        if (adjList.get(from).edges.contains(newEdge1))
+        return connect(v1, v2);
+    }
+
+    /**
+     * Private helper method for addEdge and read to connect two vertices
+     * 
+     * @param v1 the first vertex
+     * @param v2 the second vertex
+     * @return true if the edge is added, false if it exists or v1 equals v2
+     */
+    private boolean connect(Vertex v1, Vertex v2) {
+        // constant time check against the neighbor map of v1
+        if (v1 == v2 || v1.edges.containsKey(v2))
             return false;
-        adjList.get(from).edges.add(newEdge1);
-        adjList.get(to).edges.add(newEdge2);
+        v1.edges.put(v2, new Edge(v1, v2));
+        v2.edges.put(v1, new Edge(v2, v1));
+        union(v1, v2);
+        snapshot = null;
         return true;
     }
 
+    /**
+     * Private helper method finding the root of a vertex's union-find tree,
+     * pointing every other vertex on the way at its grandparent (path halving)
+     * 
+     * @param vertex a vertex
+     * @return the vertex representing its component
+     */
+    private Vertex find(Vertex vertex) {
+        while (vertex.leader != vertex) {
+            vertex.leader = vertex.leader.leader;
+            vertex = vertex.leader;
+        }
+        return vertex;
+    }
+
+    /**
+     * Private helper method merging the components of two vertices, hanging the
+     * shorter tree under the taller one
+     * 
+     * @param v1 the first vertex
+     * @param v2 the second vertex
+     */
+    private void union(Vertex v1, Vertex v2) {
+        Vertex root1 = find(v1);
+        Vertex root2 = find(v2);
+        if (root1 == root2)
+            return;
+        if (root1.rank < root2.rank) {
+            Vertex swap = root1;
+            root1 = root2;
+            root2 = swap;
+        }
+        root2.leader = root1;
+        if (root1.rank == root2.rank)
+            root1.rank++;
+        components--;
+    }
+
+    /**
+     * Private helper method rebuilding the component index from every edge, since
+     * union-find cannot split a component when a node is removed
+     */
+    private void rebuildComponents() {
+        Collection<Vertex> vertices = adjacency().values();
+        for (Vertex vertex : vertices) {
+            vertex.leader = vertex;
+            vertex.rank = 0;
+        }
+        components = vertices.size();
+        for (Vertex vertex : vertices) {
+            for (Vertex neighbor : vertex.edges.keySet())
+                union(vertex, neighbor);
+        }
+        componentsStale = false;
+    }
+
+    /**
+     * Checks whether there is a path between two nodes in nearly constant time
+     * *Components are merged as edges are added; removing a node rebuilds them on
+     * the next call
+     * 
+     * @param from the first node
+     * @param to   the second node
+     * @return true if the nodes are in the same connected component, false
+     *         otherwise (including when either node does not exist)
+     */
+    public synchronized boolean connected(String from, String to) {
+        if (componentsStale)
+            rebuildComponents();
+        Vertex v1 = adjacency().get(from);
+        Vertex v2 = adjList.get(to);
+        return v1 != null && v2 != null && find(v1) == find(v2);
+    }
+
+    /**
+     * @return the number of connected components, counting each isolated node as
+     *         one
+     */
+    public synchronized int componentCount() {
+        if (componentsStale)
+            rebuildComponents();
+        return components;
+    }
+
     /**
      * Adds multiple edges from one node to a list of others
      * 
@@ -163,7 +313,7 @@ public class Graph {
      * @param tolist the list of nodes to connect to the node of origin
      * @return true if all edges are added successfully, false otherwise
      */
-    public boolean addEdges(String from, String[] tolist) {
+    public synchronized boolean addEdges(String from, String[] tolist) {
         if (tolist == null)
             return false;
         int nullCount = 0;
@@ -181,16 +331,16 @@ public class Graph {
      * @param name the node to be removed
      * @return true if the node is successfully removed, false otherwise
      */
-    public boolean removeNode(String name) {
-        if (adjList.get(name) == null)
+    public synchronized boolean removeNode(String name) {
+        Vertex vertex = adjacency().remove(name);
+        if (vertex == null)
             return false;
-        // visit node and remove all edges
-        for (Edge edge : adjList.get(name).edges) {
-            edge.v2.edges.remove(edge);
-        }
-        // remove from array and hashmap
-        vertices.remove(name);
-        adjList.remove(name);
+        // visit each neighbor and remove its edge back to this node
+        for (Vertex neighbor : vertex.edges.keySet())
+            neighbor.edges.remove(vertex);
+        // the component may have split
+        componentsStale = true;
+        snapshot = null;
         return true;
     }
 
@@ -200,7 +350,7 @@ public class Graph {
      * @param nodelist the list of nodes to be removed
      * @return true if all nodes are successfully removed, false otherwise
      */
-    public boolean removeNodes(String[] nodelist) {
+    public synchronized boolean removeNodes(String[] nodelist) {
         if (nodelist == null)
             return false;
         int removedCount = 0;
@@ -212,11 +362,29 @@ public class Graph {
         return removedCount == nodelist.length;
     }
 
+    /**
+     * Checks whether two nodes are connected by an edge in constant time
+     * 
+     * @param from the first node
+     * @param to   the second node
+     * @return true if the edge exists, false otherwise (including when either node
+     *         does not exist)
+     */
+    public synchronized boolean hasEdge(String from, String to) {
+        // a loaded graph answers from its snapshot
+        if (adjList == null)
+            return snapshot.hasEdge(from, to);
+        Vertex v1 = adjList.get(from);
+        Vertex v2 = adjList.get(to);
+        return v1 != null && v2 != null && v1.edges.containsKey(v2);
+    }
+
     /**
      * Prints a graph with all nodes and neighbors in alphabetical order
      */
-    public void printGraph() {
-        Collections.sort(vertices);
+    public synchronized void printGraph() {
+        String[] vertices = adjacency().keySet().toArray(new String[0]);
+        Arrays.sort(vertices);
         StringBuilder textGraph = new StringBuilder();
         Vertex curVertex;
         String[] neighbors;
@@ -227,10 +395,8 @@ public class Graph {
             neighbors = new String[curVertex.edges.size()];
             int i = 0;
             // access neighbors of vertex, sort in alphabetical order
-            for (Edge edge : curVertex.edges) {
-                if (edge.v2 != null)
-                    neighbors[i++] = edge.v2.name;
-            }
+            for (Vertex neighbor : curVertex.edges.keySet())
+                neighbors[i++] = neighbor.name;
             Arrays.sort(neighbors);
             for (String name : neighbors)
                 textGraph.append(name + " ");
@@ -241,30 +407,144 @@ public class Graph {
 
     /**
      * Constructs a graph from a txt file
+     * *The file is memory-mapped and split into tokens without Scanner; blank
+     * lines are skipped
      * 
      * @param filename the name of the txt file
      * @return a graph read from a txt file
      * @throws FileNotFoundException file does not exist
      */
     public Graph read(String filename) throws FileNotFoundException {
-        Scanner scan = new Scanner(new File(filename));
-        Graph outGraph = new Graph();
-        // iterate through lines and add respective nodes and edges
-        while (scan.hasNextLine()) {
-            Scanner lineScan = new Scanner(scan.nextLine());
-            LinkedList<String> lineList = new LinkedList<String>();
-            // add each token into list
-            while (lineScan.hasNext())
-                lineList.add(lineScan.next());
-            // turn list into array for ease of adding to graph
-            String[] lineArr = new String[0];
-            lineArr = lineList.toArray(lineArr);
-            outGraph.addNodes(lineArr);
-            outGraph.addEdges(lineArr[0], lineArr);
+        AdjacencyReader reader = new AdjacencyReader(filename);
+        // each node has its own line, so the line count presizes the map
+        Graph outGraph = new Graph(reader.lineCount());
+        // connect the first node of each line to every other node on it
+        reader.forEachLine(line -> {
+            Vertex from = outGraph.vertexFor(line.name(0));
+            for (int i = 1; i < line.count(); i++)
+                outGraph.connect(from, outGraph.vertexFor(line.name(i)));
+        });
+        return outGraph;
+    }
+
+    /**
+     * Constructs a graph from a txt file, parsing the file in parallel
+     * *Chunks of whole lines are parsed on the common fork-join pool, then merged
+     * in file order, so the graph is the same one read returns
+     * 
+     * @param filename the name of the txt file
+     * @return a graph read from a txt file
+     * @throws FileNotFoundException file does not exist
+     */
+    public Graph readParallel(String filename) throws FileNotFoundException {
+        List<AdjacencyReader.Chunk> chunks = new AdjacencyReader(filename).parseChunks(false);
+        long lines = 0;
+        for (AdjacencyReader.Chunk chunk : chunks)
+            lines += chunk.lineCount();
+        Graph outGraph = new Graph(lines);
+        for (AdjacencyReader.Chunk chunk : chunks) {
+            Vertex[] vertices = new Vertex[chunk.names().length];
+            // connect the first node of each line to every other node on it
+            for (int line = 0; line < chunk.lineCount(); line++) {
+                int first = chunk.lineStart(line);
+                Vertex from = outGraph.vertexFor(chunk, first, vertices);
+                for (int t = first + 1; t < chunk.lineEnd(line); t++)
+                    outGraph.connect(from, outGraph.vertexFor(chunk, t, vertices));
+            }
         }
         return outGraph;
     }
 
+    /**
+     * Private helper method for readParallel to find the node of a token, looking
+     * each name up once per chunk
+     * 
+     * @param chunk    a parsed chunk
+     * @param token    the index of a token in the chunk
+     * @param vertices vertices found so far, indexed by the chunk's name ids
+     * @return the vertex of the token
+     */
+    private Vertex vertexFor(AdjacencyReader.Chunk chunk, int token, Vertex[] vertices) {
+        int id = chunk.token(token);
+        if (vertices[id] == null)
+            vertices[id] = vertexFor(chunk.names()[id]);
+        return vertices[id];
+    }
+
+    /**
+     * Writes the graph to a binary file that load reads back
+     * *The file holds the vertex names, the CSR arrays and a checksum, so loading it
+     * does not parse text or rebuild the adjacency list
+     * 
+     * @param filename the name of the file to write
+     * @throws IOException the file cannot be written
+     */
+    public void save(String filename) throws IOException {
+        freeze().save(filename);
+    }
+
+    /**
+     * Constructs a graph from a binary file written by save
+     * *The file is memory-mapped and copied into a snapshot, so the graph can be
+     * searched right away; the adjacency list is only built on the first change
+     * 
+     * @param filename the name of the file to read
+     * @return the graph stored in the file
+     * @throws IOException file does not exist or is not a valid graph file
+     */
+    public Graph load(String filename) throws IOException {
+        return new Graph(CompactGraph.load(filename));
+    }
+
+    /**
+     * Returns an immutable compressed-sparse-row snapshot of the graph
+     * *The snapshot is cached until the graph is next modified
+     * 
+     * @return the CSR snapshot of the graph
+     */
+    public CompactGraph freeze() {
+        CompactGraph current = snapshot;
+        if (current != null)
+            return current;
+        synchronized (this) {
+            if (snapshot == null)
+                snapshot = buildSnapshot();
+            return snapshot;
+        }
+    }
+
+    /**
+     * Private helper method for freeze to build the CSR arrays
+     * 
+     * @return a new snapshot of the graph
+     */
+    private CompactGraph buildSnapshot() {
+        // number vertices in alphabetical order
+        String[] names = adjList.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        HashMap<String, Integer> ids = new HashMap<String, Integer>(names.length * 2);
+        for (int i = 0; i < names.length; i++)
+            ids.put(names[i], i);
+        // prefix sums of degrees give each vertex's neighbor range
+        int[] offsets = new int[names.length + 1];
+        for (int i = 0; i < names.length; i++)
+            offsets[i + 1] = offsets[i] + adjList.get(names[i]).edges.size();
+        int[] targets = new int[offsets[names.length]];
+        for (int i = 0; i < names.length; i++) {
+            int e = offsets[i];
+            for (Vertex neighbor : adjList.get(names[i]).edges.keySet())
+                targets[e++] = ids.get(neighbor.name);
+            Arrays.sort(targets, offsets[i], offsets[i + 1]);
+        }
+        // publish components with the snapshot, so searches never take the lock
+        if (componentsStale)
+            rebuildComponents();
+        int[] componentIds = new int[names.length];
+        for (int i = 0; i < names.length; i++)
+            componentIds[i] = ids.get(find(adjList.get(names[i])).name);
+        return new CompactGraph(names, offsets, targets, componentIds);
+    }
+
     /**
      * Returns the path between two nodes using Depth First Search
      * 
@@ -276,68 +556,11 @@ public class Graph {
      *         no path exists or invalid arguments)
      */
     public String[] DFS(String from, String to, String neighborOrder) {
-        // empty path if from or to do not exist in the graph
-        if (adjList.get(from) == null || adjList.get(to) == null)
-            return new String[0];
-        resetVertices();
-        Stack<String> path = new Stack<String>();
-        // determine neighbor priority (empty path if invalid input)
-        if (neighborOrder.equals("alphabetical")) {
-            depthFirstSearch(from, null, to, true, path);
-        } else if (neighborOrder.equals("reverse")) {
-            depthFirstSearch(from, null, to, false, path);
-        } else
+        CompactGraph current = freeze();
+        // nodes in different components cannot have a path
+        if (current.separated(from, to))
             return new String[0];
-        String[] pathArr = new String[path.size()];
-        int i = 0;
-        // copy stack into array
-        while (!path.isEmpty())
-            pathArr[i++] = path.pop();
-        return pathArr;
-    }
-
-    /**
-     * Private recursive helper method for DFS
-     * 
-     * @param vertex        the current vertex whose neighbors need to be checked
-     * @param parent        the parent of the current vertex
-     * @param to            the end node
-     * @param neighborOrder true or false indicating alphabetical or reverse
-     * @param path          a stack containing the nodes in the path
-     */
-    private void depthFirstSearch(String vertex, String parent, String to, boolean neighborOrder, Stack<String> path) {
-        Vertex currentVertex = adjList.get(vertex);
-        // mark vertex as visited and set parent
-        currentVertex.visited = true;
-        currentVertex.parent = adjList.get(parent);
-        // base case (to node found)
-        if (vertex.equals(to)) {
-            Vertex trav = adjList.get(vertex);
-            // put path into stack
-            while (trav != null) {
-                path.push(trav.name);
-                trav = trav.parent;
-            }
-            return;
-        }
-        // sort edge list lexicographically
-        Collections.sort(currentVertex.edges);
-        if (neighborOrder) {
-            // iterate alphabetically
-            for (Edge edge : currentVertex.edges) {
-                // only consider non-visited edges
-                if (!edge.v2.visited)
-                    depthFirstSearch(edge.v2.name, vertex, to, neighborOrder, path);
-            }
-            return;
-        } else {
-            // iterate reverse alphabetically
-            for (int i = currentVertex.edges.size() - 1; i >= 0; i--) {
-                if (!currentVertex.edges.get(i).v2.visited)
-                    depthFirstSearch(currentVertex.edges.get(i).v2.name, vertex, to, neighborOrder, path);
-            }
-            return;
-        }
+        return current.DFS(from, to, neighborOrder);
     }
 
     /**
@@ -351,136 +574,74 @@ public class Graph {
      *         no path exists or invalid arguments)
      */
     public String[] BFS(String from, String to, String neighborOrder) {
-        // empty path if invalid inputs
-        if (adjList.get(from) == null || adjList.get(to) == null)
-            return new String[0];
-        resetVertices();
-        Stack<String> path = new Stack<String>();
-        Vertex currentVertex;
-        if (neighborOrder.equals("alphabetical")) {
-            // max on top
-            PriorityQueue<String> vQueue = new PriorityQueue<String>();
-            vQueue.add(from);
-            while (!vQueue.isEmpty()) {
-                // mark current node as true and set parent as previous node
-                currentVertex = adjList.get(vQueue.poll());
-                currentVertex.visited = true;
-                // once to node is found, construct path in stack
-                if (currentVertex.name.equals(to)) {
-                    Vertex trav = currentVertex;
-                    while (trav != null) {
-                        path.push(trav.name);
-                        trav = trav.parent;
-                    }
-                    break;
-                }
-                // add neighboring nodes to queue
-                for (Edge edge : currentVertex.edges) {
-                    if (!edge.v2.visited) {
-                        vQueue.add(edge.v2.name);
-                        edge.v2.visited = true;
-                        edge.v2.parent = currentVertex;
-                    }
-                }
-            }
-        } else if (neighborOrder.equals("reverse")) {
-            // min on top
-            PriorityQueue<String> vQueue = new PriorityQueue<String>(Collections.reverseOrder());
-            vQueue.add(from);
-            while (!vQueue.isEmpty()) {
-                // mark current node as true and set parent as previous node
-                currentVertex = adjList.get(vQueue.poll());
-                currentVertex.visited = true;
-                // once to node is found, construct path in stack
-                if (currentVertex.name.equals(to)) {
-                    Vertex trav = currentVertex;
-                    while (trav != null) {
-                        path.push(trav.name);
-                        trav = trav.parent;
-                    }
-                    break;
-                }
-                // add neighboring nodes to queue
-                for (Edge edge : currentVertex.edges) {
-                    if (!edge.v2.visited) {
-                        vQueue.add(edge.v2.name);
-                        edge.v2.visited = true;
-                        edge.v2.parent = currentVertex;
-                    }
-                }
-            }
-        } else
+        CompactGraph current = freeze();
+        if (current.separated(from, to))
             return new String[0];
-        String[] pathArr = new String[path.size()];
-        // copy stack into array
-        int i = 0;
-        while (!path.isEmpty())
-            pathArr[i++] = path.pop();
-        return pathArr;
+        return current.BFS(from, to, neighborOrder);
     }
 
     /**
-     * Returns the second shortest path from one node to another node
+     * Returns a path with the fewest edges between two nodes, searching from both
+     * ends at once
      * 
      * @param from the start node
      * @param to   the end node
-     * @return String array representing the second shortest path (empty if doesn't
-     *         exist or invalid arguments)
+     * @return String array representing the path between two nodes (empty array if
+     *         no path exists or invalid arguments)
      */
-    public String[] secondShortestPath(String from, String to) {
-        // establish a shortest path
-        String[] shortestPath = BFS(from, to, "alphabetical");
-        LinkedList<String[]> pathList = new LinkedList<String[]>();
-        // at every node in the shortest path, disconnect an edge and try BFS to find an
-        // alternate path
-        for (int i = shortestPath.length - 1; i > 0; i--) {
-            removeEdge(shortestPath[i], shortestPath[i - 1]);
-            String[] nextPath = BFS(from, to, "alphabetical");
-            // if another shortest path is encountered, keep edges severed until no more
-            // paths or longer path is found
-            if (nextPath.length == shortestPath.length)
-                nextPath = secondShortestPath(from, to);
-            if (nextPath.length != 0)
-                pathList.add(nextPath);
-            addEdge(shortestPath[i], shortestPath[i - 1]);
-        }
-        // look for shortest path in the path list
-        int i = 0;
-        int shortestInd = -1;
-        int shortestLength = Integer.MAX_VALUE;
-        for (String[] path : pathList) {
-            if (path.length < shortestLength)
-                shortestInd = i;
-            i++;
-        }
-        if (shortestInd == -1)
+    public String[] bidirectionalBFS(String from, String to) {
+        CompactGraph current = freeze();
+        if (current.separated(from, to))
             return new String[0];
-        return pathList.get(shortestInd);
+        return current.bidirectionalBFS(from, to);
     }
 
     /**
-     * Private helper method for secondShortestPath to remove edges
+     * Answers a batch of path queries in parallel, grouping queries that share a
+     * start node so one search answers all of them
      * 
-     * @param v1 the start node of the edge to be removed
-     * @param v2 the end node of the edge to be removed
-     * @return the removed edge
+     * @param queries the (from, to) pairs to answer
+     * @return BFS paths (alphabetical priority) in the same order as the queries (empty arrays
+     *         for invalid or unreachable pairs)
      */
-    private Edge removeEdge(String v1, String v2) {
-        Edge edge = new Edge(adjList.get(v1), adjList.get(v2));
-        adjList.get(v1).edges.remove(edge);
-        adjList.get(v2).edges.remove(edge);
-        return edge;
+    public List<String[]> shortestPaths(List<PathQuery> queries) {
+        return freeze().shortestPaths(queries);
     }
 
     /**
-     * Private helper method for search methods
-     * Resets all <i>visited</i> flags to false and <i>parent</i> pointers to null
+     * Answers a batch of path queries in parallel without blocking the caller
+     * 
+     * @param queries  the (from, to) pairs to answer
+     * @param executor runs the per-group searches
+     * @return a future of BFS paths (alphabetical priority) in the same order as the queries
      */
-    private void resetVertices() {
-        for (String vertex : vertices) {
-            adjList.get(vertex).visited = false;
-            adjList.get(vertex).parent = null;
-        }
+    public CompletableFuture<List<String[]>> shortestPathsAsync(List<PathQuery> queries, Executor executor) {
+        return freeze().shortestPathsAsync(queries, executor);
+    }
+
+    /**
+     * Returns the second shortest path from one node to another node
+     * 
+     * @param from the start node
+     * @param to   the end node
+     * @return String array representing the second shortest path (empty if doesn't
+     *         exist or invalid arguments)
+     */
+    public String[] secondShortestPath(String from, String to) {
+        return freeze().secondShortestPath(from, to);
+    }
+
+    /**
+     * Finds the k shortest loopless paths between two nodes using Yen's algorithm
+     * 
+     * @param from start node
+     * @param to   end node
+     * @param k    the number of paths wanted
+     * @return up to k paths with their costs (number of edges), cheapest first
+     *         (empty if no path exists or invalid arguments)
+     */
+    public List<Path> kShortestPaths(String from, String to, int k) {
+        return freeze().kShortestPaths(from, to, k);
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,623 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary file format for graph snapshots
+ * *Layout, big-endian: magic, version, kind, vertex count, slot count, name byte
+ * count (long), name lengths, UTF-8 name bytes, CSR offsets, targets, the kind's
+ * extra sections (one int per slot, then one int per vertex), then a CRC32 of
+ * everything before it
+ * *Weighted graphs have one slot section, the weights; contraction hierarchies
+ * add each slot's middle vertex and each vertex's rank and split; landmark tables
+ * give each vertex one slot per landmark, holding the distances from and to it;
+ * hub labels give each vertex one slot per label entry, holding its hub and
+ * distance, and add each vertex's rank and split
+ * *Files are read by memory-mapping them in windows and copying each section into
+ * an array in bulk, so loading never parses text or builds vertex objects
+ * *map leaves the int sections in the mapped file instead, for graphs larger
+ * than the heap
+ * *Slot counts and offsets are ints, so a file holds at most 2^31 - 1 edge
+ * slots; it holds at most VertexDictionary.MAX_NAMES vertices, and each name
+ * must fit in one mapped window of 1 GB
+ *
+ * @author <i>Charlie Lin</i>
+ */
+class GraphFile {
+    /** first four bytes of every graph file */
+    static final int MAGIC = 0x43535247;
+
+    /** the current version of the format */
+    static final int VERSION = 1;
+
+    /** kind of an undirected, unweighted graph */
+    static final int UNWEIGHTED = 0;
+
+    /** kind of a directed, weighted graph */
+    static final int WEIGHTED = 1;
+
+    /** kind of a contraction hierarchy overlay */
+    static final int CONTRACTED = 2;
+
+    /** kind of landmark distance tables */
+    static final int LANDMARKS = 3;
+
+    /** kind of hub labels */
+    static final int HUB_LABELS = 4;
+
+    /** what each kind holds, for error messages */
+    private static final String[] KIND_NAMES = {"an unweighted graph", "a weighted graph",
+            "a contraction hierarchy", "a landmark table", "a hub label table"};
+
+    /** number of sections with one int per edge slot, by kind */
+    private static final int[] SLOT_SECTIONS = {0, 1, 2, 2, 1};
+
+    /** number of sections with one int per vertex, by kind */
+    private static final int[] VERTEX_SECTIONS = {0, 0, 2, 0, 2};
+
+    /** largest number of bytes mapped at once while reading */
+    private static final int WINDOW_SIZE = 1 << 30;
+
+    /** vertex names in alphabetical order */
+    final String[] names;
+
+    /** start of each vertex's edge range (length n + 1) */
+    final int[] offsets;
+
+    /** end vertex of every edge slot */
+    final int[] targets;
+
+    /** weight of every edge slot (null for unweighted graphs) */
+    final int[] weights;
+
+    /** the kind's extra sections in file order, starting with the weights */
+    final int[][] sections;
+
+    /**
+     * @param names    vertex names in alphabetical order
+     * @param offsets  start of each vertex's edge range
+     * @param targets  end vertex of every edge slot
+     * @param sections the kind's extra sections
+     */
+    private GraphFile(String[] names, int[] offsets, int[] targets, int[][] sections) {
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.sections = sections;
+        weights = sections.length > 0 ? sections[0] : null;
+    }
+
+    /**
+     * Writes CSR arrays to a file, replacing it if it exists
+     *
+     * @param filename the file to write
+     * @param names    vertex names in alphabetical order
+     * @param offsets  start of each vertex's edge range
+     * @param targets  end vertex of every edge slot
+     * @param weights  weight of every edge slot, or null for unweighted graphs
+     * @throws IOException the file cannot be written
+     */
+    static void write(String filename, String[] names, int[] offsets, int[] targets, int[] weights)
+            throws IOException {
+        if (weights == null)
+            write(filename, UNWEIGHTED, names, offsets, targets);
+        else
+            write(filename, WEIGHTED, names, offsets, targets, weights);
+    }
+
+    /**
+     * Writes CSR arrays and the extra sections of a kind to a file, replacing it if
+     * it exists
+     *
+     * @param filename the file to write
+     * @param kind     UNWEIGHTED, WEIGHTED, CONTRACTED, LANDMARKS or
+     *                 HUB_LABELS
+     * @param names    vertex names in alphabetical order
+     * @param offsets  start of each vertex's edge range
+     * @param targets  end vertex of every edge slot
+     * @param sections the kind's slot sections followed by its vertex sections
+     * @throws IOException the file cannot be written
+     */
+    static void write(String filename, int kind, String[] names, int[] offsets, int[] targets, int[]... sections)
+            throws IOException {
+        if (sections.length != SLOT_SECTIONS[kind] + VERTEX_SECTIONS[kind])
+            throw new IllegalArgumentException("wrong number of sections for " + KIND_NAMES[kind]);
+        for (int i = 0; i < sections.length; i++) {
+            if (sections[i].length != (i < SLOT_SECTIONS[kind] ? targets.length : names.length))
+                throw new IllegalArgumentException("section " + i + " has the wrong length");
+        }
+        byte[][] encoded = new byte[names.length][];
+        int[] lengths = new int[names.length];
+        long nameBytes = 0;
+        for (int i = 0; i < names.length; i++) {
+            encoded[i] = names[i].getBytes(StandardCharsets.UTF_8);
+            lengths[i] = encoded[i].length;
+            nameBytes += lengths[i];
+        }
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+            file.setLength(0);
+            Output out = new Output(file.getChannel());
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(kind);
+            out.putInt(names.length);
+            out.putInt(targets.length);
+            out.putLong(nameBytes);
+            out.putInts(lengths);
+            for (byte[] name : encoded)
+                out.putBytes(name);
+            out.putInts(offsets);
+            out.putInts(targets);
+            for (int[] section : sections)
+                out.putInts(section);
+            out.finish();
+        }
+    }
+
+    /**
+     * Reads a graph file, checking its header, checksum and structure
+     *
+     * @param filename the file to read
+     * @param kind     UNWEIGHTED, WEIGHTED, CONTRACTED, LANDMARKS or
+     *                 HUB_LABELS
+     * @return the arrays stored in the file
+     * @throws FileNotFoundException the file does not exist
+     * @throws IOException           the file is not a valid graph file of the given
+     *                               kind
+     */
+    static GraphFile read(String filename, int kind) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+            Header header = readHeader(filename, kind, file.getChannel());
+            Input in = header.in;
+            int vertexCount = header.lengths.length;
+            String[] names = new String[vertexCount];
+            for (int i = 0; i < vertexCount; i++)
+                names[i] = in.getString(header.lengths[i]);
+            int[] offsets = in.getInts(vertexCount + 1);
+            int[] targets = in.getInts(header.slotCount);
+            int[][] sections = new int[SLOT_SECTIONS[kind] + VERTEX_SECTIONS[kind]][];
+            for (int i = 0; i < sections.length; i++)
+                sections[i] = in.getInts(i < SLOT_SECTIONS[kind] ? header.slotCount : vertexCount);
+            validate(filename, names, offsets, targets);
+            return new GraphFile(names, offsets, targets, sections);
+        }
+    }
+
+    /**
+     * Memory-maps the int sections of a graph file instead of copying them, and
+     * reads the names into a dictionary without decoding them
+     * *The file is checked as thoroughly as by read, by streaming over the mapped
+     * sections
+     *
+     * @param filename the file to map
+     * @param kind     UNWEIGHTED, WEIGHTED, CONTRACTED, LANDMARKS or
+     *                 HUB_LABELS
+     * @return the names and the mapped sections
+     * @throws FileNotFoundException the file does not exist
+     * @throws IOException           the file is not a valid graph file of the given
+     *                               kind
+     */
+    static Mapped map(String filename, int kind) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+            FileChannel channel = file.getChannel();
+            Header header = readHeader(filename, kind, channel);
+            int vertexCount = header.lengths.length;
+            VertexDictionary names = new VertexDictionary(vertexCount, header.nameBytes);
+            for (int i = 0; i < vertexCount; i++) {
+                // a repeated name gets the id it was first given
+                if (header.in.addName(names, header.lengths[i]) != i)
+                    throw new IOException(filename + " is corrupted (names out of order)");
+            }
+            names.trim();
+            long position = header.in.position();
+            MappedIntArray offsets = new MappedIntArray(channel, position, vertexCount + 1);
+            position += 4L * (vertexCount + 1);
+            MappedIntArray targets = new MappedIntArray(channel, position, header.slotCount);
+            position += 4L * header.slotCount;
+            MappedIntArray[] sections = new MappedIntArray[SLOT_SECTIONS[kind] + VERTEX_SECTIONS[kind]];
+            for (int i = 0; i < sections.length; i++) {
+                long length = i < SLOT_SECTIONS[kind] ? header.slotCount : vertexCount;
+                sections[i] = new MappedIntArray(channel, position, length);
+                position += 4 * length;
+            }
+            validate(filename, names, offsets, targets);
+            return new Mapped(names, offsets, targets, sections);
+        }
+    }
+
+    /**
+     * Private helper method for read and map checking a file's header, checksum
+     * and section sizes, then reading the name lengths
+     *
+     * @param filename the file being read
+     * @param kind     the kind the file must hold
+     * @param channel  the open file
+     * @return the name lengths, name byte count and slot count, with a reader
+     *         positioned at the names
+     * @throws IOException the file is not a valid graph file of the given kind, or
+     *                     has more names than a vertex dictionary can hold
+     */
+    private static Header readHeader(String filename, int kind, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < 32)
+            throw new IOException(filename + " is not a graph file");
+        Input in = new Input(channel, size - 4);
+        if (in.getInt() != MAGIC)
+            throw new IOException(filename + " is not a graph file");
+        int version = in.getInt();
+        if (version != VERSION)
+            throw new IOException(filename + " has unsupported version " + version);
+        if (in.getInt() != kind)
+            throw new IOException(filename + " is not " + KIND_NAMES[kind]);
+        int vertexCount = in.getInt();
+        int slotCount = in.getInt();
+        long nameBytes = in.getLong();
+        // refuse names the dictionary cannot hold before the full checksum pass
+        if (vertexCount > VertexDictionary.MAX_NAMES)
+            throw new IOException(filename + " has more than " + VertexDictionary.MAX_NAMES + " vertices");
+        if (nameBytes > (long) Math.max(vertexCount, 0) * WINDOW_SIZE)
+            throw new IOException(filename + " has names longer than " + WINDOW_SIZE + " bytes");
+        // check the checksum before trusting any of the counts
+        if (checksum(channel, size - 4) != channel.map(FileChannel.MapMode.READ_ONLY, size - 4, 4).getInt())
+            throw new IOException(filename + " is corrupted (checksum mismatch)");
+        long expected = 28 + 4L * vertexCount + nameBytes + 4L * (vertexCount + 1)
+                + 4L * slotCount * (1 + SLOT_SECTIONS[kind]) + 4L * vertexCount * VERTEX_SECTIONS[kind];
+        if (vertexCount < 0 || slotCount < 0 || nameBytes < 0 || expected != size - 4)
+            throw new IOException(filename + " is corrupted (section sizes do not match)");
+        return new Header(in.getInts(vertexCount), nameBytes, slotCount, in);
+    }
+
+    /**
+     * @param channel the file
+     * @param length  the number of leading bytes to check
+     * @return the CRC32 of the first length bytes of the file
+     * @throws IOException the file cannot be mapped
+     */
+    private static int checksum(FileChannel channel, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        for (long position = 0; position < length; position += WINDOW_SIZE)
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, length - position)));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Checks that the arrays form a valid snapshot, so queries cannot index out of
+     * bounds
+     *
+     * @param filename the file the arrays came from
+     * @param names    vertex names
+     * @param offsets  start of each vertex's edge range
+     * @param targets  end vertex of every edge slot
+     * @throws IOException the arrays are inconsistent
+     */
+    private static void validate(String filename, String[] names, int[] offsets, int[] targets) throws IOException {
+        if (offsets[0] != 0 || offsets[names.length] != targets.length)
+            throw new IOException(filename + " is corrupted (bad offsets)");
+        for (int i = 0; i < names.length; i++) {
+            if (offsets[i] > offsets[i + 1])
+                throw new IOException(filename + " is corrupted (bad offsets)");
+            if (i > 0 && names[i - 1].compareTo(names[i]) >= 0)
+                throw new IOException(filename + " is corrupted (names out of order)");
+        }
+        for (int target : targets) {
+            if (target < 0 || target >= names.length)
+                throw new IOException(filename + " is corrupted (bad target)");
+        }
+    }
+
+    /**
+     * Checks that mapped arrays form a valid snapshot, so queries cannot index out
+     * of bounds
+     *
+     * @param filename the file the arrays are mapped from
+     * @param names    vertex names
+     * @param offsets  start of each vertex's edge range
+     * @param targets  end vertex of every edge slot
+     * @throws IOException the arrays are inconsistent
+     */
+    private static void validate(String filename, VertexDictionary names, MappedIntArray offsets,
+            MappedIntArray targets) throws IOException {
+        int vertexCount = names.size();
+        if (offsets.get(0) != 0 || offsets.get(vertexCount) != targets.length())
+            throw new IOException(filename + " is corrupted (bad offsets)");
+        String previous = null;
+        for (int i = 0; i < vertexCount; i++) {
+            if (offsets.get(i) > offsets.get(i + 1))
+                throw new IOException(filename + " is corrupted (bad offsets)");
+            // decode one name at a time
+            String name = names.name(i);
+            if (previous != null && previous.compareTo(name) >= 0)
+                throw new IOException(filename + " is corrupted (names out of order)");
+            previous = name;
+        }
+        for (long e = 0; e < targets.length(); e++) {
+            int target = targets.get(e);
+            if (target < 0 || target >= vertexCount)
+                throw new IOException(filename + " is corrupted (bad target)");
+        }
+    }
+
+    /**
+     * Name lengths and slot count read from the start of a file
+     */
+    private static class Header {
+        /** length of each vertex name in bytes */
+        private final int[] lengths;
+
+        /** total length of the vertex names in bytes */
+        private final long nameBytes;
+
+        /** the number of edge slots */
+        private final int slotCount;
+
+        /** reader positioned at the names */
+        private final Input in;
+
+        /**
+         * @param lengths   length of each vertex name in bytes
+         * @param nameBytes total length of the vertex names in bytes
+         * @param slotCount the number of edge slots
+         * @param in        reader positioned at the names
+         */
+        private Header(int[] lengths, long nameBytes, int slotCount, Input in) {
+            this.lengths = lengths;
+            this.nameBytes = nameBytes;
+            this.slotCount = slotCount;
+            this.in = in;
+        }
+    }
+
+    /**
+     * Sections of a graph file left in the mapped file rather than copied
+     */
+    static class Mapped {
+        /** vertex names, numbered in alphabetical order */
+        final VertexDictionary names;
+
+        /** start of each vertex's edge range (length n + 1) */
+        final MappedIntArray offsets;
+
+        /** end vertex of every edge slot */
+        final MappedIntArray targets;
+
+        /** the kind's extra sections in file order, starting with the weights */
+        final MappedIntArray[] sections;
+
+        /**
+         * @param names    vertex names, numbered in alphabetical order
+         * @param offsets  start of each vertex's edge range
+         * @param targets  end vertex of every edge slot
+         * @param sections the kind's extra sections
+         */
+        private Mapped(VertexDictionary names, MappedIntArray offsets, MappedIntArray targets, MappedIntArray[] sections) {
+            this.names = names;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.sections = sections;
+        }
+    }
+
+    /**
+     * Buffered writer that keeps a running CRC32 of everything written
+     */
+    private static class Output {
+        /** the file being written */
+        private final FileChannel channel;
+
+        /** bytes waiting to be written */
+        private final ByteBuffer buffer;
+
+        /** checksum of the bytes written so far */
+        private final CRC32 crc;
+
+        /**
+         * @param channel the file to write
+         */
+        private Output(FileChannel channel) {
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(1 << 20);
+            crc = new CRC32();
+        }
+
+        /**
+         * @param value an int to write
+         * @throws IOException the file cannot be written
+         */
+        private void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4)
+                flush();
+            buffer.putInt(value);
+        }
+
+        /**
+         * @param value a long to write
+         * @throws IOException the file cannot be written
+         */
+        private void putLong(long value) throws IOException {
+            if (buffer.remaining() < 8)
+                flush();
+            buffer.putLong(value);
+        }
+
+        /**
+         * @param values ints to write in bulk
+         * @throws IOException the file cannot be written
+         */
+        private void putInts(int[] values) throws IOException {
+            int i = 0;
+            while (i < values.length) {
+                if (buffer.remaining() < 4)
+                    flush();
+                int count = Math.min(buffer.remaining() / 4, values.length - i);
+                buffer.asIntBuffer().put(values, i, count);
+                buffer.position(buffer.position() + count * 4);
+                i += count;
+            }
+        }
+
+        /**
+         * @param bytes bytes to write
+         * @throws IOException the file cannot be written
+         */
+        private void putBytes(byte[] bytes) throws IOException {
+            int i = 0;
+            while (i < bytes.length) {
+                if (!buffer.hasRemaining())
+                    flush();
+                int count = Math.min(buffer.remaining(), bytes.length - i);
+                buffer.put(bytes, i, count);
+                i += count;
+            }
+        }
+
+        /**
+         * Writes the buffered bytes, adding them to the checksum
+         *
+         * @throws IOException the file cannot be written
+         */
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer);
+            buffer.rewind();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        /**
+         * Writes the remaining bytes followed by the checksum
+         *
+         * @throws IOException the file cannot be written
+         */
+        private void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Sequential reader over a file mapped one window at a time
+     */
+    private static class Input {
+        /** the file being read */
+        private final FileChannel channel;
+
+        /** the number of bytes that may be read */
+        private final long length;
+
+        /** the mapped window */
+        private MappedByteBuffer window;
+
+        /** file position of the start of the window */
+        private long windowStart;
+
+        /**
+         * @param channel the file to read
+         * @param length  the number of bytes that may be read
+         * @throws IOException the file cannot be mapped
+         */
+        private Input(FileChannel channel, long length) throws IOException {
+            this.channel = channel;
+            this.length = length;
+            windowStart = 0;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_SIZE, length));
+        }
+
+        /**
+         * Makes sure the window holds at least the given number of unread bytes
+         * (or every byte that is left)
+         *
+         * @param bytes the number of bytes about to be read
+         * @throws IOException the file cannot be mapped
+         */
+        private void need(int bytes) throws IOException {
+            if (window.remaining() >= bytes)
+                return;
+            windowStart += window.position();
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(WINDOW_SIZE, length - windowStart));
+            if (window.remaining() < bytes)
+                throw new IOException("unexpected end of graph file");
+        }
+
+        /**
+         * @return file position of the next unread byte
+         */
+        private long position() {
+            return windowStart + window.position();
+        }
+
+        /**
+         * @return the next int
+         * @throws IOException the file cannot be mapped
+         */
+        private int getInt() throws IOException {
+            need(4);
+            return window.getInt();
+        }
+
+        /**
+         * @return the next long
+         * @throws IOException the file cannot be mapped
+         */
+        private long getLong() throws IOException {
+            need(8);
+            return window.getLong();
+        }
+
+        /**
+         * @param count the number of ints to read
+         * @return the next count ints, copied in bulk
+         * @throws IOException the file cannot be mapped
+         */
+        private int[] getInts(int count) throws IOException {
+            int[] values = new int[count];
+            int i = 0;
+            while (i < count) {
+                need(4);
+                int chunk = Math.min(window.remaining() / 4, count - i);
+                window.asIntBuffer().get(values, i, chunk);
+                window.position(window.position() + chunk * 4);
+                i += chunk;
+            }
+            return values;
+        }
+
+        /**
+         * @param bytes the length of the string in bytes
+         * @return the next UTF-8 string
+         * @throws IOException the file cannot be mapped
+         */
+        private String getString(int bytes) throws IOException {
+            if (bytes < 0)
+                throw new IOException("negative name length in graph file");
+            need(bytes);
+            byte[] encoded = new byte[bytes];
+            window.get(encoded);
+            return new String(encoded, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @param dictionary receives the next name without decoding it
+         * @param bytes      the length of the name in bytes
+         * @return the id the dictionary gives the name
+         * @throws IOException the file cannot be mapped
+         */
+        private int addName(VertexDictionary dictionary, int bytes) throws IOException {
+            if (bytes < 0)
+                throw new IOException("negative name length in graph file");
+            need(bytes);
+            int id = dictionary.add(window, window.position(), bytes);
+            window.position(window.position() + bytes);
+            return id;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GraphFileTest {
+    /**
+     * @return a new temporary file that is deleted on exit
+     */
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Checks that reading a file fails with an IOException
+     *
+     * @param file the file to read
+     * @param kind the kind of graph expected
+     */
+    private static void assertRejected(File file, int kind) {
+        try {
+            GraphFile.read(file.getPath(), kind);
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            // rejected
+        }
+    }
+
+    /**
+     * Flips one bit of a byte in a file
+     *
+     * @param file     the file to change
+     * @param position the position of the byte
+     */
+    private static void flip(File file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0x10);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = tempFile();
+        String[] names = {"A", "B", "C\u00e9"};
+        int[] offsets = {0, 2, 3, 4};
+        int[] targets = {1, 2, 2, 0};
+        int[] weights = {5, 1, 2, 1000000};
+        GraphFile.write(file.getPath(), names, offsets, targets, weights);
+        GraphFile read = GraphFile.read(file.getPath(), GraphFile.WEIGHTED);
+        Assert.assertArrayEquals(names, read.names);
+        Assert.assertEquals(Arrays.toString(offsets), Arrays.toString(read.offsets));
+        Assert.assertEquals(Arrays.toString(targets), Arrays.toString(read.targets));
+        Assert.assertEquals(Arrays.toString(weights), Arrays.toString(read.weights));
+
+        // an empty graph has only a header, one offset and a checksum
+        file = tempFile();
+        GraphFile.write(file.getPath(), new String[0], new int[1], new int[0], null);
+        read = GraphFile.read(file.getPath(), GraphFile.UNWEIGHTED);
+        Assert.assertEquals(0, read.names.length);
+        Assert.assertNull(read.weights);
+    }
+
+    @Test
+    public void testSections() throws IOException {
+        File file = tempFile();
+        String[] names = {"A", "B"};
+        int[] offsets = {0, 1, 2};
+        int[] targets = {1, 0};
+        // slot sections come first, then vertex sections
+        int[][] sections = {{3, 4}, {-1, 0}, {1, 0}, {1, 1}};
+        GraphFile.write(file.getPath(), GraphFile.CONTRACTED, names, offsets, targets, sections);
+        GraphFile read = GraphFile.read(file.getPath(), GraphFile.CONTRACTED);
+        Assert.assertEquals(Arrays.deepToString(sections), Arrays.deepToString(read.sections));
+        Assert.assertEquals("[3, 4]", Arrays.toString(read.weights));
+        assertRejected(file, GraphFile.WEIGHTED);
+
+        try {
+            GraphFile.write(file.getPath(), GraphFile.CONTRACTED, names, offsets, targets, sections[0]);
+            Assert.assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            // a contraction hierarchy has four sections
+        }
+    }
+
+    @Test
+    public void testRejected() throws IOException {
+        File file = tempFile();
+        String[] names = {"A", "B"};
+        GraphFile.write(file.getPath(), names, new int[] {0, 1, 2}, new int[] {1, 0}, null);
+        // wrong kind
+        assertRejected(file, GraphFile.WEIGHTED);
+
+        // any flipped byte fails the checksum or the header checks
+        long length = file.length();
+        for (long position = 0; position < length; position++) {
+            flip(file, position);
+            assertRejected(file, GraphFile.UNWEIGHTED);
+            flip(file, position);
+        }
+        Assert.assertEquals(2, GraphFile.read(file.getPath(), GraphFile.UNWEIGHTED).names.length);
+
+        // truncated file (a new one, since mapped files cannot be resized everywhere)
+        file = tempFile();
+        GraphFile.write(file.getPath(), names, new int[] {0, 1, 2}, new int[] {1, 0}, null);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length - 1);
+        }
+        assertRejected(file, GraphFile.UNWEIGHTED);
+    }
+
+    @Test
+    public void testLimits() throws IOException {
+        File file = tempFile();
+        String[] names = {"A", "B"};
+        GraphFile.write(file.getPath(), names, new int[] {0, 1, 2}, new int[] {1, 0}, new int[] {3, 4});
+        // more vertices than a dictionary holds is reported, not a checksum mismatch
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(12);
+            raf.writeInt(VertexDictionary.MAX_NAMES + 1);
+        }
+        try {
+            GraphFile.map(file.getPath(), GraphFile.WEIGHTED);
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("vertices"));
+        }
+
+        // so are names too long to read
+        file = tempFile();
+        GraphFile.write(file.getPath(), names, new int[] {0, 1, 2}, new int[] {1, 0}, new int[] {3, 4});
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(20);
+            raf.writeLong(3L << 30);
+        }
+        try {
+            GraphFile.map(file.getPath(), GraphFile.WEIGHTED);
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("names longer"));
+        }
+        assertRejected(file, GraphFile.WEIGHTED);
+    }
+}
@@ -1,7 +1,11 @@
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import org.junit.Assert;
 import org.junit.Test;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class GraphTest {
     Graph graph = new Graph();
@@ -94,6 +98,30 @@ public class GraphTest {
         Assert.assertEquals(false, graph.removeNodes(nodelist));
     }
 
+    @Test
+    public void testHasEdge() {
+        String[] names = {"A", "B", "C"};
+        graph.addNodes(names);
+        graph.addEdge("A", "B");
+
+        // edges are undirected
+        Assert.assertEquals(true, graph.hasEdge("A", "B"));
+        Assert.assertEquals(true, graph.hasEdge("B", "A"));
+        Assert.assertEquals(false, graph.hasEdge("A", "C"));
+
+        // false if either node does not exist
+        Assert.assertEquals(false, graph.hasEdge("A", "Z"));
+        Assert.assertEquals(false, graph.hasEdge(null, "A"));
+
+        // removing a node removes its edges from its neighbors
+        graph.addEdge("B", "C");
+        graph.removeNode("B");
+        Assert.assertEquals(false, graph.hasEdge("A", "B"));
+        graph.addNode("B");
+        Assert.assertEquals(false, graph.hasEdge("C", "B"));
+        Assert.assertEquals(true, graph.addEdge("C", "B"));
+    }
+
     @Test
     public void testDFS() {
         Graph graph = new Graph();
@@ -134,6 +162,73 @@ public class GraphTest {
         }
     }
 
+    @Test
+    public void testDFSLongChain() {
+        // a path graph far deeper than the thread stack could recurse
+        int length = 200000;
+        String[] names = new String[length];
+        for (int i = 0; i < length; i++)
+            names[i] = String.valueOf(i);
+        graph.addNodes(names);
+        for (int i = 1; i < length; i++)
+            graph.addEdge(names[i - 1], names[i]);
+
+        String[] path = graph.DFS(names[0], names[length - 1], "alphabetical");
+        Assert.assertEquals(length, path.length);
+        Assert.assertEquals(names[length - 1], path[length - 1]);
+
+        path = graph.DFS(names[length - 1], names[0], "reverse");
+        Assert.assertEquals(length, path.length);
+        Assert.assertEquals(names[0], path[length - 1]);
+
+        // search stops at the end node
+        Assert.assertEquals("[0, 1, 2]", Arrays.toString(graph.DFS("0", "2", "alphabetical")));
+    }
+
+    @Test
+    public void testReadParallel() {
+        try {
+            String file = "C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\example2.txt";
+            Graph sequential = graph.read(file);
+            Graph parallel = graph.readParallel(file);
+            // same nodes and edges as the sequential reader
+            Assert.assertEquals(sequential.freeze().vertexCount(), parallel.freeze().vertexCount());
+            Assert.assertEquals(sequential.freeze().edgeCount(), parallel.freeze().edgeCount());
+            String[] names = {"A", "B", "C", "D", "E", "F"};
+            for (String from : names) {
+                for (String to : names)
+                    Assert.assertEquals(sequential.hasEdge(from, to), parallel.hasEdge(from, to));
+            }
+        } catch (FileNotFoundException e) {
+            Assert.assertTrue(false);
+        }
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        graph = graph.read("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\example2.txt");
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        graph.save(file.getPath());
+        Graph loaded = graph.load(file.getPath());
+
+        // the loaded graph answers queries straight from the file's arrays
+        Assert.assertEquals(graph.freeze().vertexCount(), loaded.freeze().vertexCount());
+        Assert.assertEquals(graph.freeze().edgeCount(), loaded.freeze().edgeCount());
+        Assert.assertEquals(true, loaded.hasEdge("E", "C"));
+        Assert.assertEquals(false, loaded.hasEdge("A", "F"));
+        Assert.assertEquals(Arrays.toString(graph.BFS("A", "F", "alphabetical")),
+                Arrays.toString(loaded.BFS("A", "F", "alphabetical")));
+
+        // changing it builds the adjacency list from the snapshot first
+        Assert.assertEquals(false, loaded.addEdge("A", "B"));
+        Assert.assertEquals(true, loaded.addEdge("A", "F"));
+        Assert.assertEquals("[A, F]", Arrays.toString(loaded.BFS("A", "F", "alphabetical")));
+        Assert.assertEquals(true, loaded.removeNode("C"));
+        Assert.assertEquals(false, loaded.hasEdge("E", "C"));
+        Assert.assertEquals(true, loaded.hasEdge("D", "A"));
+    }
+
     @Test
     public void testBFS() {
         Graph graph = new Graph();
@@ -185,6 +280,114 @@ public class GraphTest {
         
     }
 
+    @Test
+    public void testBFSLevelOrder() {
+        String[] names = {"A", "B", "C", "Y", "Z"};
+        graph.addNodes(names);
+        graph.addEdges("A", new String[] {"B", "Z"});
+        graph.addEdge("B", "C");
+        graph.addEdge("C", "Y");
+        graph.addEdge("Z", "Y");
+
+        // fewest edges wins over alphabetical priority
+        Assert.assertEquals("[A, Z, Y]", Arrays.toString(graph.BFS("A", "Y", "alphabetical")));
+        Assert.assertEquals("[A, Z, Y]", Arrays.toString(graph.BFS("A", "Y", "reverse")));
+
+        // ties within a level follow neighbor order
+        graph.addEdge("B", "Y");
+        Assert.assertEquals("[A, B, Y]", Arrays.toString(graph.BFS("A", "Y", "alphabetical")));
+        Assert.assertEquals("[A, Z, Y]", Arrays.toString(graph.BFS("A", "Y", "reverse")));
+    }
+
+    @Test
+    public void testComponents() throws IOException {
+        String[] names = {"A", "B", "C", "D", "E"};
+        graph.addNodes(names);
+        Assert.assertEquals(5, graph.componentCount());
+        Assert.assertEquals(true, graph.connected("A", "A"));
+        Assert.assertEquals(false, graph.connected("A", "B"));
+        Assert.assertEquals(false, graph.connected("A", "Z"));
+
+        // adding edges merges components
+        graph.addEdge("A", "B");
+        graph.addEdge("B", "C");
+        graph.addEdge("D", "E");
+        Assert.assertEquals(2, graph.componentCount());
+        Assert.assertEquals(true, graph.connected("A", "C"));
+        Assert.assertEquals(false, graph.connected("C", "D"));
+        Assert.assertEquals(0, graph.BFS("A", "E", "alphabetical").length);
+        Assert.assertEquals(0, graph.DFS("A", "E", "alphabetical").length);
+        Assert.assertEquals(0, graph.bidirectionalBFS("A", "E").length);
+        Assert.assertEquals(false, graph.addEdge("B", "A"));
+        Assert.assertEquals(2, graph.componentCount());
+
+        // removing a node can split its component
+        graph.removeNode("B");
+        Assert.assertEquals(3, graph.componentCount());
+        Assert.assertEquals(false, graph.connected("A", "C"));
+        graph.removeNode("A");
+        Assert.assertEquals(false, graph.connected("A", "C"));
+        Assert.assertEquals(2, graph.componentCount());
+        graph.addEdge("C", "D");
+        Assert.assertEquals(1, graph.componentCount());
+        Assert.assertEquals("[C, D, E]", Arrays.toString(graph.BFS("C", "E", "alphabetical")));
+
+        // a loaded graph builds its index on the first call
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        graph.addNode("F");
+        graph.save(file.getPath());
+        Graph loaded = graph.load(file.getPath());
+        Assert.assertEquals(0, loaded.BFS("C", "F", "alphabetical").length);
+        Assert.assertEquals(2, loaded.componentCount());
+        Assert.assertEquals(true, loaded.connected("E", "C"));
+        Assert.assertEquals(false, loaded.connected("E", "F"));
+    }
+
+    @Test
+    public void testBidirectionalBFS() {
+        try {
+            graph = graph.read("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\example2.txt");
+
+            // same number of edges as BFS
+            Assert.assertEquals(4, graph.bidirectionalBFS("A", "F").length - 1);
+            Assert.assertEquals("[B, C, E, F]", Arrays.toString(graph.bidirectionalBFS("B", "F")));
+            Assert.assertEquals("[F, E, C, B]", Arrays.toString(graph.bidirectionalBFS("F", "B")));
+            Assert.assertEquals("[A, D]", Arrays.toString(graph.bidirectionalBFS("A", "D")));
+            Assert.assertEquals("[C]", Arrays.toString(graph.bidirectionalBFS("C", "C")));
+
+            // invalid inputs and disconnected nodes
+            Assert.assertEquals("[]", Arrays.toString(graph.bidirectionalBFS("A", "Z")));
+            graph.addNode("Z");
+            Assert.assertEquals("[]", Arrays.toString(graph.bidirectionalBFS("A", "Z")));
+        } catch (FileNotFoundException e) {
+            Assert.assertTrue(false);
+        }
+    }
+
+    @Test
+    public void testShortestPaths() {
+        try {
+            graph = graph.read("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\example2.txt");
+        } catch (FileNotFoundException e) {
+            Assert.assertTrue(false);
+        }
+        List<PathQuery> queries = new ArrayList<PathQuery>();
+        queries.add(new PathQuery("B", "F"));
+        queries.add(new PathQuery("A", "F"));
+        queries.add(new PathQuery("B", "D"));
+        queries.add(new PathQuery("B", "Z"));
+        queries.add(new PathQuery("B", "B"));
+
+        // results come back in input order and match single queries
+        List<String[]> paths = graph.shortestPaths(queries);
+        Assert.assertEquals("[B, C, E, F]", Arrays.toString(paths.get(0)));
+        Assert.assertEquals("[A, B, C, E, F]", Arrays.toString(paths.get(1)));
+        Assert.assertEquals("[B, D]", Arrays.toString(paths.get(2)));
+        Assert.assertEquals("[]", Arrays.toString(paths.get(3)));
+        Assert.assertEquals("[B]", Arrays.toString(paths.get(4)));
+    }
+
     @Test
     public void testSecondShortestPath() {
         try {
@@ -203,6 +406,27 @@ public class GraphTest {
         }
     }
     
+    @Test
+    public void testKShortestPaths() {
+        try {
+            graph = graph.read("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\example2.txt");
+            List<Path> paths = graph.kShortestPaths("A", "F", 4);
+            Assert.assertEquals(4, paths.size());
+            Assert.assertEquals("[A, B, C, E, F] (4)", paths.get(0).toString());
+            Assert.assertEquals("[A, D, C, E, F] (4)", paths.get(1).toString());
+            Assert.assertEquals("[A, B, D, C, E, F] (5)", paths.get(2).toString());
+            Assert.assertEquals("[A, D, B, C, E, F] (5)", paths.get(3).toString());
+
+            // only loopless paths are counted
+            Assert.assertEquals(4, graph.kShortestPaths("A", "F", 10).size());
+
+            Assert.assertEquals(0, graph.kShortestPaths("A", "Z", 3).size());
+            Assert.assertEquals("[A]", Arrays.toString(graph.kShortestPaths("A", "A", 3).get(0).getNodes()));
+        } catch (FileNotFoundException e) {
+            Assert.assertTrue(false);
+        }
+    }
+
     // main method testing of read and printGraph
     public static void main(String[] args) {
         Graph graph = new Graph();
@@ -0,0 +1,61 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A* heuristic using the great-circle distance between node coordinates
+ * *Admissible whenever every edge weight is at least the straight-line distance
+ * between its ends, e.g. road lengths in kilometers
+ * *Nodes without coordinates are estimated at 0
+ *
+ * @author <i>Charlie Lin</i>
+ */
+class GreatCircleHeuristic implements Heuristic {
+    /** mean radius of the earth in kilometers */
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /** latitude and longitude of each node, in radians */
+    private final HashMap<String, double[]> radians;
+
+    /** edge weight per kilometer of distance */
+    private final double weightPerKilometer;
+
+    /**
+     * Creates a heuristic over a copy of the given coordinates
+     *
+     * @param coordinates        latitude and longitude of each node, in degrees
+     * @param weightPerKilometer edge weight per kilometer of distance
+     */
+    GreatCircleHeuristic(Map<String, double[]> coordinates, double weightPerKilometer) {
+        radians = new HashMap<String, double[]>(coordinates.size() * 2);
+        for (Map.Entry<String, double[]> entry : coordinates.entrySet()) {
+            double[] degrees = entry.getValue();
+            radians.put(entry.getKey(), new double[] {Math.toRadians(degrees[0]), Math.toRadians(degrees[1])});
+        }
+        this.weightPerKilometer = weightPerKilometer;
+    }
+
+    @Override
+    public long estimate(String node, String target) {
+        double[] a = radians.get(node);
+        double[] b = radians.get(target);
+        if (a == null || b == null)
+            return 0;
+        return (long) Math.floor(distance(a[0], a[1], b[0], b[1]) * weightPerKilometer);
+    }
+
+    /**
+     * Haversine distance between two points
+     *
+     * @param lat1 latitude of the first point, in radians
+     * @param lon1 longitude of the first point, in radians
+     * @param lat2 latitude of the second point, in radians
+     * @param lon2 longitude of the second point, in radians
+     * @return the great-circle distance in kilometers
+     */
+    static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLon = Math.sin((lon2 - lon1) / 2);
+        double h = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Lower bound on the cost of reaching one node from another, used to guide A*
+ * search
+ * *Estimates must never exceed the true cost (admissible) for A* to return
+ * shortest paths; estimates that also obey the triangle inequality (consistent)
+ * let A* settle every vertex at most once
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public interface Heuristic {
+    /** heuristic that estimates every cost as 0, which turns A* into Dijkstra */
+    Heuristic NONE = (node, target) -> 0;
+
+    /**
+     * @param node   a node reached by the search
+     * @param target the end node of the search
+     * @return a lower bound on the cost of the cheapest path from node to target
+     */
+    long estimate(String node, String target);
+}
@@ -0,0 +1,440 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Exact distance oracle for a snapshot of a directed, weighted graph, built by
+ * pruned landmark labeling
+ * *Every vertex v has an out-label of pairs (h, d(v, h)) and an in-label of pairs
+ * (h, d(h, v)), and for every pair of vertices some hub on a shortest path
+ * between them is in both labels, so a distance is the smallest sum over the
+ * hubs the two labels share, found by one merge of two short sorted runs
+ * *Hubs are processed in order of importance, the reverse of the contraction
+ * hierarchy's order, since vertices contracted last cover the most shortest
+ * paths; each one runs a forward and a backward Dijkstra search that stop
+ * wherever the labels built so far already give the distance, which keeps labels
+ * short
+ * *Labels are stored in primitive arrays: slots offsets[i] to splits[i] - 1 are
+ * the out-label of vertex i and slots splits[i] to offsets[i + 1] - 1 its
+ * in-label, sorted by the rank of their hubs
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class HubLabels {
+    /** vertex names and their ids */
+    private final VertexDictionary names;
+
+    /** position of each vertex in the hub order */
+    private final int[] ranks;
+
+    /** start of each vertex's label range (length n + 1) */
+    private final int[] offsets;
+
+    /** first in-label slot of each vertex */
+    private final int[] splits;
+
+    /** rank of the hub of every label entry */
+    private final int[] hubs;
+
+    /** distance between every label's vertex and its hub */
+    private final int[] distances;
+
+    /**
+     * Creates labels from their arrays
+     *
+     * @param names     vertex names, numbered in alphabetical order
+     * @param ranks     position of each vertex in the hub order
+     * @param offsets   start of each vertex's label range (length n + 1)
+     * @param splits    first in-label slot of each vertex
+     * @param hubs      rank of the hub of every entry
+     * @param distances distance to or from the hub of every entry
+     */
+    private HubLabels(VertexDictionary names, int[] ranks, int[] offsets, int[] splits, int[] hubs,
+            int[] distances) {
+        this.names = names;
+        this.ranks = ranks;
+        this.offsets = offsets;
+        this.splits = splits;
+        this.hubs = hubs;
+        this.distances = distances;
+    }
+
+    /**
+     * Labels every vertex of a snapshot
+     * *Hubs are processed one after another, since each one's searches are pruned
+     * by the labels of the hubs before it; the forward and backward search of each
+     * hub only read those labels, so they run in parallel on the common fork-join
+     * pool
+     * *The hub order comes from the snapshot's contraction hierarchy, which is
+     * built first if it has not been
+     *
+     * @param graph the snapshot to preprocess
+     * @return the labels of the snapshot
+     * @throws ArithmeticException a distance or shortcut is larger than
+     *                             Integer.MAX_VALUE
+     */
+    static HubLabels build(CompactWeightedGraph graph) {
+        int n = graph.vertexCount();
+        Labeling labeling = new Labeling(graph);
+        int[] order = labeling.order;
+        for (int rank = 0; rank < n; rank++) {
+            int hub = order[rank];
+            int finalRank = rank;
+            CompletableFuture<Void> backward = CompletableFuture.runAsync(
+                    () -> labeling.backward.search(hub, finalRank), ForkJoinPool.commonPool());
+            labeling.forward.search(hub, rank);
+            backward.join();
+            // append the new entries only once neither search reads the labels
+            labeling.forward.commit(rank);
+            labeling.backward.commit(rank);
+        }
+        // lay out each vertex's out-label then in-label
+        int[] offsets = new int[n + 1];
+        int[] splits = new int[n];
+        for (int i = 0; i < n; i++) {
+            splits[i] = offsets[i] + labeling.backward.sizes[i];
+            offsets[i + 1] = splits[i] + labeling.forward.sizes[i];
+        }
+        int[] hubs = new int[offsets[n]];
+        int[] distances = new int[offsets[n]];
+        for (int i = 0; i < n; i++) {
+            labeling.backward.copyTo(i, hubs, distances, offsets[i]);
+            labeling.forward.copyTo(i, hubs, distances, splits[i]);
+        }
+        int[] ranks = new int[n];
+        for (int rank = 0; rank < n; rank++)
+            ranks[order[rank]] = rank;
+        return new HubLabels(graph.names(), ranks, offsets, splits, hubs, distances);
+    }
+
+    /**
+     * Reads labels written by save
+     *
+     * @param filename the file to read
+     * @return the labels stored in the file
+     * @throws IOException the file does not exist or is not a valid hub label file
+     */
+    public static HubLabels load(String filename) throws IOException {
+        GraphFile file = GraphFile.read(filename, GraphFile.HUB_LABELS);
+        int[] ranks = file.sections[1];
+        int n = ranks.length;
+        boolean[] ranked = new boolean[n];
+        for (int rank : ranks) {
+            if (rank < 0 || rank >= n || ranked[rank])
+                throw new IOException(filename + " is corrupted (bad ranks)");
+            ranked[rank] = true;
+        }
+        // the file names hubs by vertex, the labels by rank
+        int[] hubs = new int[file.targets.length];
+        for (int e = 0; e < hubs.length; e++)
+            hubs[e] = ranks[file.targets[e]];
+        HubLabels labels = new HubLabels(new VertexDictionary(file.names), ranks, file.offsets, file.sections[2],
+                hubs, file.sections[0]);
+        labels.validate(filename);
+        return labels;
+    }
+
+    /**
+     * Writes the labels to a binary file, so preprocessing runs once per graph
+     *
+     * @param filename the file to write
+     * @throws IOException the file cannot be written
+     */
+    public void save(String filename) throws IOException {
+        int[] order = new int[ranks.length];
+        for (int vertex = 0; vertex < ranks.length; vertex++)
+            order[ranks[vertex]] = vertex;
+        int[] targets = new int[hubs.length];
+        for (int e = 0; e < hubs.length; e++)
+            targets[e] = order[hubs[e]];
+        GraphFile.write(filename, GraphFile.HUB_LABELS, names.names(), offsets, targets, distances, ranks, splits);
+    }
+
+    /**
+     * Checks that every label is sorted by hub rank and that distances are not
+     * negative, so merges on loaded labels stay in bounds
+     *
+     * @param filename the file the labels came from
+     * @throws IOException the arrays are inconsistent
+     */
+    private void validate(String filename) throws IOException {
+        for (int vertex = 0; vertex < ranks.length; vertex++) {
+            if (splits[vertex] < offsets[vertex] || splits[vertex] > offsets[vertex + 1])
+                throw new IOException(filename + " is corrupted (bad splits)");
+            for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+                if (distances[e] < 0 || (e != offsets[vertex] && e != splits[vertex] && hubs[e - 1] >= hubs[e]))
+                    throw new IOException(filename + " is corrupted (bad label)");
+            }
+        }
+    }
+
+    /**
+     * @return the number of vertices labeled
+     */
+    public int vertexCount() {
+        return ranks.length;
+    }
+
+    /**
+     * @return the number of (hub, distance) pairs in all labels together
+     */
+    public long entryCount() {
+        return hubs.length;
+    }
+
+    /**
+     * Finds the cost of the shortest path between two nodes by merging the
+     * out-label of one with the in-label of the other, without searching the graph
+     *
+     * @param from start node
+     * @param to   end node
+     * @return the total weight of the shortest path (-1 if no path exists or invalid
+     *         arguments)
+     */
+    public long distance(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return -1;
+        long best = Long.MAX_VALUE;
+        int i = offsets[source];
+        int end = splits[source];
+        int j = splits[target];
+        int targetEnd = offsets[target + 1];
+        while (i < end && j < targetEnd) {
+            if (hubs[i] < hubs[j]) {
+                i++;
+            } else if (hubs[i] > hubs[j]) {
+                j++;
+            } else {
+                best = Math.min(best, (long) distances[i++] + distances[j++]);
+            }
+        }
+        return best == Long.MAX_VALUE ? -1 : best;
+    }
+
+    /**
+     * State of preprocessing: the hub order and the labels grown so far
+     */
+    private static class Labeling {
+        /** vertices in the order they become hubs */
+        private final int[] order;
+
+        /** grows in-labels by searching along outgoing edges */
+        private final Side forward;
+
+        /** grows out-labels by searching along incoming edges */
+        private final Side backward;
+
+        /**
+         * @param graph the snapshot to label
+         */
+        private Labeling(CompactWeightedGraph graph) {
+            int n = graph.vertexCount();
+            // incoming edges stored the same way as the outgoing ones
+            int[] inOffsets = new int[n + 1];
+            for (int e = 0; e < graph.edgeCount(); e++)
+                inOffsets[graph.target(e) + 1]++;
+            for (int i = 0; i < n; i++)
+                inOffsets[i + 1] += inOffsets[i];
+            int[] next = Arrays.copyOf(inOffsets, n);
+            int[] sources = new int[graph.edgeCount()];
+            int[] inWeights = new int[graph.edgeCount()];
+            for (int vertex = 0; vertex < n; vertex++) {
+                for (int e = graph.edgeStart(vertex); e < graph.edgeStart(vertex + 1); e++) {
+                    int position = next[graph.target(e)]++;
+                    sources[position] = vertex;
+                    inWeights[position] = graph.weight(e);
+                }
+            }
+            int[] outOffsets = new int[n + 1];
+            int[] targets = new int[graph.edgeCount()];
+            int[] weights = new int[graph.edgeCount()];
+            for (int vertex = 0; vertex < n; vertex++) {
+                outOffsets[vertex + 1] = graph.edgeStart(vertex + 1);
+                for (int e = graph.edgeStart(vertex); e < graph.edgeStart(vertex + 1); e++) {
+                    targets[e] = graph.target(e);
+                    weights[e] = graph.weight(e);
+                }
+            }
+            backward = new Side(n, inOffsets, sources, inWeights);
+            forward = new Side(n, outOffsets, targets, weights);
+            // each side prunes with the labels the other one grows
+            forward.opposite = backward;
+            backward.opposite = forward;
+
+            // vertices contracted last lie on the most shortest paths
+            ContractionHierarchy hierarchy = graph.contractionHierarchy();
+            order = new int[n];
+            for (int vertex = 0; vertex < n; vertex++)
+                order[n - 1 - hierarchy.rank(vertex)] = vertex;
+        }
+    }
+
+    /**
+     * One direction of preprocessing: a pruned search over one set of edges and
+     * the labels it grows (in-labels for outgoing edges, out-labels for incoming
+     * ones)
+     */
+    private static class Side {
+        /** start of each vertex's edge range */
+        private final int[] edgeOffsets;
+
+        /** other end of every edge */
+        private final int[] ends;
+
+        /** weight of every edge */
+        private final int[] weights;
+
+        /** hub ranks of each vertex's label, in increasing order */
+        private final int[][] labelHubs;
+
+        /** distances of each vertex's label */
+        private final int[][] labelDistances;
+
+        /** number of entries in each vertex's label */
+        private final int[] sizes;
+
+        /** the side growing the other label of each vertex */
+        private Side opposite;
+
+        /** distance between the current hub and each hub in its other label */
+        private final long[] hubDistances;
+
+        /** vertices the current search labeled */
+        private int[] found;
+
+        /** distances of the found vertices */
+        private int[] foundDistances;
+
+        /** number of found vertices */
+        private int foundCount;
+
+        /** search state, reused by every hub */
+        private final SearchContext context;
+
+        /**
+         * @param n           the number of vertices
+         * @param edgeOffsets start of each vertex's edge range
+         * @param ends        other end of every edge
+         * @param weights     weight of every edge
+         */
+        private Side(int n, int[] edgeOffsets, int[] ends, int[] weights) {
+            this.edgeOffsets = edgeOffsets;
+            this.ends = ends;
+            this.weights = weights;
+            labelHubs = new int[n][];
+            labelDistances = new int[n][];
+            sizes = new int[n];
+            hubDistances = new long[n];
+            Arrays.fill(hubDistances, Long.MAX_VALUE);
+            found = new int[16];
+            foundDistances = new int[16];
+            context = new SearchContext(n);
+        }
+
+        /**
+         * Runs Dijkstra's Algorithm from a hub, labeling every vertex whose
+         * distance the labels of earlier hubs do not already give, and not going
+         * past the ones they do
+         *
+         * @param hub  the vertex the search starts from
+         * @param rank position of the hub in the order
+         */
+        private void search(int hub, int rank) {
+            // index the hub's other label by hub rank, so each check is one pass
+            int[] ownHubs = opposite.labelHubs[hub];
+            for (int k = 0; k < opposite.sizes[hub]; k++)
+                hubDistances[ownHubs[k]] = opposite.labelDistances[hub][k];
+            foundCount = 0;
+            context.begin();
+            IndexedMinHeap vHeap = context.heap();
+            long[] cost = context.cost();
+            context.reach(hub, -1, 0);
+            vHeap.insertOrDecrease(hub, 0);
+            while (!vHeap.isEmpty()) {
+                int vertex = vHeap.poll();
+                context.settle(vertex);
+                if (covered(vertex, cost[vertex]))
+                    continue;
+                found(vertex, Math.toIntExact(cost[vertex]));
+                for (int e = edgeOffsets[vertex]; e < edgeOffsets[vertex + 1]; e++) {
+                    int next = ends[e];
+                    if (context.isSettled(next))
+                        continue;
+                    long newCost = cost[vertex] + weights[e];
+                    if (!context.isReached(next) || newCost < cost[next]) {
+                        context.reach(next, vertex, newCost);
+                        vHeap.insertOrDecrease(next, newCost);
+                    }
+                }
+            }
+            for (int k = 0; k < opposite.sizes[hub]; k++)
+                hubDistances[ownHubs[k]] = Long.MAX_VALUE;
+        }
+
+        /**
+         * @param vertex a vertex settled by the current search
+         * @param cost   its distance from the hub
+         * @return true if a hub shared by the labels gives a distance no larger
+         */
+        private boolean covered(int vertex, long cost) {
+            int[] vertexHubs = labelHubs[vertex];
+            for (int k = 0; k < sizes[vertex]; k++) {
+                long through = hubDistances[vertexHubs[k]];
+                if (through != Long.MAX_VALUE && through + labelDistances[vertex][k] <= cost)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * @param vertex   a vertex to label with the current hub
+         * @param distance its distance from the hub
+         */
+        private void found(int vertex, int distance) {
+            if (foundCount == found.length) {
+                found = Arrays.copyOf(found, foundCount * 2);
+                foundDistances = Arrays.copyOf(foundDistances, foundCount * 2);
+            }
+            found[foundCount] = vertex;
+            foundDistances[foundCount++] = distance;
+        }
+
+        /**
+         * Appends the current hub to the labels of every vertex its search found
+         *
+         * @param rank position of the hub in the order
+         */
+        private void commit(int rank) {
+            for (int i = 0; i < foundCount; i++) {
+                int vertex = found[i];
+                if (labelHubs[vertex] == null) {
+                    labelHubs[vertex] = new int[4];
+                    labelDistances[vertex] = new int[4];
+                } else if (sizes[vertex] == labelHubs[vertex].length) {
+                    labelHubs[vertex] = Arrays.copyOf(labelHubs[vertex], sizes[vertex] * 2);
+                    labelDistances[vertex] = Arrays.copyOf(labelDistances[vertex], sizes[vertex] * 2);
+                }
+                labelHubs[vertex][sizes[vertex]] = rank;
+                labelDistances[vertex][sizes[vertex]++] = foundDistances[i];
+            }
+        }
+
+        /**
+         * Copies a vertex's label into the final arrays
+         *
+         * @param vertex    the vertex
+         * @param hubs      hub rank of every entry
+         * @param distances distance of every entry
+         * @param position  where the label starts
+         */
+        private void copyTo(int vertex, int[] hubs, int[] distances, int position) {
+            if (sizes[vertex] == 0)
+                return;
+            System.arraycopy(labelHubs[vertex], 0, hubs, position, sizes[vertex]);
+            System.arraycopy(labelDistances[vertex], 0, distances, position, sizes[vertex]);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HubLabelsTest {
+    WeightedGraph graph = new WeightedGraph();
+
+    /**
+     * Checks the labels against the contraction hierarchy, whose distances the
+     * hierarchy tests check against Dijkstra's Algorithm
+     *
+     * @param labels labels of graph
+     * @param names  the nodes of graph
+     */
+    private void assertMatchesHierarchy(HubLabels labels, String[] names) {
+        ContractionHierarchy hierarchy = graph.contractionHierarchy();
+        for (String from : names) {
+            for (String to : names)
+                Assert.assertEquals(hierarchy.distance(from, to), labels.distance(from, to));
+        }
+    }
+
+    @Test
+    public void testExample() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\weightedExample2.txt");
+        HubLabels labels = graph.hubLabels();
+        Assert.assertEquals(7, labels.vertexCount());
+        Assert.assertEquals(-1, labels.distance(null, "A"));
+        Assert.assertEquals(-1, labels.distance("A", "Z"));
+        Assert.assertEquals(0, labels.distance("A", "A"));
+        Assert.assertEquals(4, labels.distance("B", "D"));
+        // edges are directed, so F reaches nothing
+        Assert.assertEquals(-1, labels.distance("F", "A"));
+        assertMatchesHierarchy(labels, new String[] {"A", "B", "C", "D", "E", "F", "G"});
+
+        // the labels are kept until the graph changes
+        Assert.assertSame(labels, graph.hubLabels());
+        graph.addWeightedEdge("A", "D", 1);
+        Assert.assertTrue(labels != graph.hubLabels());
+        Assert.assertEquals(9, labels.distance("A", "D"));
+        Assert.assertEquals(1, graph.hubLabels().distance("A", "D"));
+    }
+
+    @Test
+    public void testRandomGraphs() {
+        Random random = new Random(25);
+        for (int round = 0; round < 30; round++) {
+            graph = new WeightedGraph();
+            String[] names = new String[2 + random.nextInt(40)];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = "v" + i;
+                graph.addNode(names[i]);
+            }
+            // small weights make many ties
+            int maxWeight = round % 2 == 0 ? 3 : 100;
+            for (int i = random.nextInt(names.length * 4); i > 0; i--) {
+                graph.addWeightedEdge(names[random.nextInt(names.length)], names[random.nextInt(names.length)],
+                        1 + random.nextInt(maxWeight));
+            }
+            HubLabels labels = graph.hubLabels();
+            assertMatchesHierarchy(labels, names);
+            // every vertex is at least its own hub, in both directions
+            Assert.assertTrue(labels.entryCount() >= 2L * names.length);
+        }
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        File file = File.createTempFile("labels", ".bin");
+        file.deleteOnExit();
+        HubLabels labels = graph.hubLabels();
+        labels.save(file.getPath());
+        HubLabels loaded = HubLabels.load(file.getPath());
+        Assert.assertEquals(labels.vertexCount(), loaded.vertexCount());
+        Assert.assertEquals(labels.entryCount(), loaded.entryCount());
+        Assert.assertEquals(899, loaded.distance("Rzeszow", "Szczecin"));
+        String[] cities = {"Warsaw", "Gdynia", "Szczecin", "Walbrzych", "Rzeszow", "Bialystok", "Kielce"};
+        assertMatchesHierarchy(loaded, cities);
+
+        // a label out of hub order is rejected, even with a valid checksum
+        File broken = File.createTempFile("labels", ".bin");
+        broken.deleteOnExit();
+        GraphFile.write(broken.getPath(), GraphFile.HUB_LABELS, new String[] {"A", "B"}, new int[] {0, 2, 2},
+                new int[] {1, 0}, new int[] {3, 0}, new int[] {0, 1}, new int[] {2, 2});
+        try {
+            HubLabels.load(broken.getPath());
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            // bad label
+        }
+
+        // a graph file is not a label file
+        file = File.createTempFile("weighted", ".bin");
+        file.deleteOnExit();
+        graph.save(file.getPath());
+        try {
+            HubLabels.load(file.getPath());
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            // not hub labels
+        }
+    }
+}
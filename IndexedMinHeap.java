@@ -0,0 +1,192 @@
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of integer items (vertex ids) with long priorities
+ * *Every item has a slot in a position index so decrease-key is O(log n)
+ * *Ties between equal priorities are broken by the smaller item
+ *
+ * @author <i>Charlie Lin</i>
+ */
+class IndexedMinHeap {
+    /** heap array holding items */
+    private int[] heap;
+
+    /** priority of each item, indexed by item */
+    private long[] keys;
+
+    /** position of each item in the heap (-1 if not in the heap) */
+    private int[] pos;
+
+    /** number of items in the heap */
+    private int size;
+
+    /**
+     * Creates an empty heap for items in the range [0, capacity)
+     *
+     * @param capacity the number of distinct items the heap can hold
+     */
+    IndexedMinHeap(int capacity) {
+        heap = new int[Math.max(capacity, 1)];
+        keys = new long[Math.max(capacity, 1)];
+        pos = new int[Math.max(capacity, 1)];
+        Arrays.fill(pos, -1);
+        size = 0;
+    }
+
+    /**
+     * Grows the heap so it can hold items in the range [0, capacity)
+     *
+     * @param capacity the number of distinct items the heap must hold
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity <= pos.length)
+            return;
+        int oldLength = pos.length;
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        pos = Arrays.copyOf(pos, capacity);
+        Arrays.fill(pos, oldLength, capacity, -1);
+    }
+
+    /**
+     * @return true if the heap has no items
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of items in the heap
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param item the item to look for
+     * @return true if the item is currently in the heap
+     */
+    boolean contains(int item) {
+        return pos[item] != -1;
+    }
+
+    /**
+     * @param item an item in the heap
+     * @return the priority of the item
+     */
+    long key(int item) {
+        return keys[item];
+    }
+
+    /**
+     * @return the item with the smallest priority without removing it
+     */
+    int peek() {
+        return heap[0];
+    }
+
+    /**
+     * @return the smallest priority in the heap
+     */
+    long peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Inserts an item, or lowers its priority if it is already in the heap
+     * *Does nothing if the item is present with a priority no larger than key
+     *
+     * @param item the item to insert or update
+     * @param key  the new priority
+     */
+    void insertOrDecrease(int item, long key) {
+        if (pos[item] == -1) {
+            keys[item] = key;
+            heap[size] = item;
+            pos[item] = size;
+            siftUp(size++);
+        } else if (key < keys[item]) {
+            keys[item] = key;
+            siftUp(pos[item]);
+        }
+    }
+
+    /**
+     * Removes and returns the item with the smallest priority
+     *
+     * @return the removed item
+     */
+    int poll() {
+        int top = heap[0];
+        pos[top] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Removes every item, only touching the slots that are still in use
+     */
+    void clear() {
+        for (int i = 0; i < size; i++)
+            pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    /**
+     * Compares the items at two heap positions
+     *
+     * @return true if the item at position a should be above the item at b
+     */
+    private boolean less(int a, int b) {
+        long keyA = keys[heap[a]];
+        long keyB = keys[heap[b]];
+        return keyA < keyB || (keyA == keyB && heap[a] < heap[b]);
+    }
+
+    /**
+     * Moves the item at position i up until the heap property holds
+     */
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(i, parent))
+                break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    /**
+     * Moves the item at position i down until the heap property holds
+     */
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size)
+                break;
+            int child = left;
+            if (left + 1 < size && less(left + 1, left))
+                child = left + 1;
+            if (!less(child, i))
+                break;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    /**
+     * Swaps the items at two heap positions and updates the position index
+     */
+    private void swap(int a, int b) {
+        int temp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = temp;
+        pos[heap[a]] = a;
+        pos[heap[b]] = b;
+    }
+}
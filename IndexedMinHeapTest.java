@@ -0,0 +1,65 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IndexedMinHeapTest {
+    IndexedMinHeap heap = new IndexedMinHeap(8);
+
+    @Test
+    public void testPollOrder() {
+        heap.insertOrDecrease(3, 30);
+        heap.insertOrDecrease(1, 10);
+        heap.insertOrDecrease(5, 50);
+        heap.insertOrDecrease(2, 20);
+
+        Assert.assertEquals(4, heap.size());
+        Assert.assertEquals(1, heap.peek());
+        Assert.assertEquals(10, heap.peekKey());
+
+        // items come out in order of priority
+        Assert.assertEquals(1, heap.poll());
+        Assert.assertEquals(2, heap.poll());
+        Assert.assertEquals(3, heap.poll());
+        Assert.assertEquals(5, heap.poll());
+        Assert.assertEquals(true, heap.isEmpty());
+    }
+
+    @Test
+    public void testDecreaseKey() {
+        heap.insertOrDecrease(0, 100);
+        heap.insertOrDecrease(4, 40);
+        heap.insertOrDecrease(7, 70);
+
+        // lowering a priority moves the item up
+        heap.insertOrDecrease(7, 5);
+        Assert.assertEquals(5, heap.key(7));
+        Assert.assertEquals(7, heap.peek());
+
+        // raising a priority is ignored
+        heap.insertOrDecrease(4, 400);
+        Assert.assertEquals(40, heap.key(4));
+
+        Assert.assertEquals(7, heap.poll());
+        Assert.assertEquals(false, heap.contains(7));
+        Assert.assertEquals(4, heap.poll());
+        Assert.assertEquals(0, heap.poll());
+    }
+
+    @Test
+    public void testTiesAndClear() {
+        // equal priorities are broken by the smaller item
+        heap.insertOrDecrease(6, 1);
+        heap.insertOrDecrease(2, 1);
+        heap.insertOrDecrease(4, 1);
+        Assert.assertEquals(2, heap.poll());
+
+        heap.clear();
+        Assert.assertEquals(true, heap.isEmpty());
+        Assert.assertEquals(false, heap.contains(4));
+        Assert.assertEquals(false, heap.contains(6));
+
+        // heap grows to hold larger items
+        heap.ensureCapacity(20);
+        heap.insertOrDecrease(19, 3);
+        Assert.assertEquals(19, heap.poll());
+    }
+}
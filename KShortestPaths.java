@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Yen's algorithm for the k shortest loopless paths between two vertices
+ * *Edges and vertices are removed through per-query masks, so the graph itself is
+ * never modified and other queries can run at the same time
+ *
+ * @author <i>Charlie Lin</i>
+ */
+class KShortestPaths {
+    /**
+     * The operations Yen's algorithm needs from a graph snapshot
+     */
+    interface SpurGraph {
+        /**
+         * Finds a shortest path that avoids masked edge slots and vertices
+         *
+         * @param spur           the start of the spur path
+         * @param target         the end node
+         * @param maskedSlots    flags for edge slots that may not be used
+         * @param maskedVertices flags for vertices that may not be visited
+         * @return vertex ids from spur to target, or null if no path exists
+         */
+        int[] spurPath(int spur, int target, boolean[] maskedSlots, boolean[] maskedVertices);
+
+        /**
+         * @param from the start of the edge
+         * @param to   the end of the edge
+         * @return the slot of the edge
+         */
+        int edgeSlot(int from, int to);
+
+        /**
+         * @param slot an edge slot
+         * @return the cost of the edge
+         */
+        long edgeCost(int slot);
+    }
+
+    /**
+     * A path found by the search, ordered by cost, then length, then vertex ids
+     */
+    static class Candidate implements Comparable<Candidate> {
+        /** vertex ids along the path */
+        final int[] path;
+
+        /** total cost of the path */
+        final long cost;
+
+        /**
+         * @param path vertex ids along the path
+         * @param cost total cost of the path
+         */
+        Candidate(int[] path, long cost) {
+            this.path = path;
+            this.cost = cost;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (cost != other.cost)
+                return Long.compare(cost, other.cost);
+            if (path.length != other.path.length)
+                return Integer.compare(path.length, other.path.length);
+            return Arrays.compare(path, other.path);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Candidate && Arrays.equals(path, ((Candidate) o).path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(path);
+        }
+    }
+
+    /**
+     * Finds up to k shortest loopless paths in order of cost
+     *
+     * @param graph       the graph to search
+     * @param shortest    a shortest path from the start node to the end node
+     * @param k           the number of paths wanted
+     * @param vertexCount the number of vertices in the graph
+     * @param slotCount   the number of edge slots in the graph
+     * @return the paths found, cheapest first (fewer than k if no more exist)
+     */
+    static List<Candidate> find(SpurGraph graph, int[] shortest, int k, int vertexCount, int slotCount) {
+        int target = shortest[shortest.length - 1];
+        ArrayList<Candidate> found = new ArrayList<Candidate>();
+        found.add(new Candidate(shortest, pathCost(graph, shortest, shortest.length - 1)));
+        PriorityQueue<Candidate> candidates = new PriorityQueue<Candidate>();
+        HashSet<Candidate> seen = new HashSet<Candidate>();
+        seen.add(found.get(0));
+        boolean[] maskedSlots = new boolean[slotCount];
+        boolean[] maskedVertices = new boolean[vertexCount];
+        ArrayList<Integer> severed = new ArrayList<Integer>();
+        while (found.size() < k) {
+            int[] previous = found.get(found.size() - 1).path;
+            long rootCost = 0;
+            // branch off the previous path at every one of its vertices
+            for (int i = 0; i < previous.length - 1; i++) {
+                // sever the next edge of every found path sharing this root
+                for (Candidate p : found) {
+                    if (p.path.length > i + 1 && Arrays.equals(p.path, 0, i + 1, previous, 0, i + 1)) {
+                        int slot = graph.edgeSlot(p.path[i], p.path[i + 1]);
+                        if (!maskedSlots[slot]) {
+                            maskedSlots[slot] = true;
+                            severed.add(slot);
+                        }
+                    }
+                }
+                // keep paths loopless by hiding the root before the spur node
+                for (int j = 0; j < i; j++)
+                    maskedVertices[previous[j]] = true;
+                int[] spurPath = graph.spurPath(previous[i], target, maskedSlots, maskedVertices);
+                if (spurPath != null) {
+                    int[] path = Arrays.copyOf(previous, i + spurPath.length);
+                    System.arraycopy(spurPath, 0, path, i, spurPath.length);
+                    Candidate candidate = new Candidate(path,
+                            rootCost + pathCost(graph, spurPath, spurPath.length - 1));
+                    if (seen.add(candidate))
+                        candidates.add(candidate);
+                }
+                for (int slot : severed)
+                    maskedSlots[slot] = false;
+                severed.clear();
+                for (int j = 0; j < i; j++)
+                    maskedVertices[previous[j]] = false;
+                rootCost += graph.edgeCost(graph.edgeSlot(previous[i], previous[i + 1]));
+            }
+            if (candidates.isEmpty())
+                break;
+            found.add(candidates.poll());
+        }
+        return found;
+    }
+
+    /**
+     * @param graph the graph the path belongs to
+     * @param path  vertex ids along a path
+     * @param edges the number of leading edges to add up
+     * @return the cost of the first edges of the path
+     */
+    private static long pathCost(SpurGraph graph, int[] path, int edges) {
+        long cost = 0;
+        for (int i = 0; i < edges; i++)
+            cost += graph.edgeCost(graph.edgeSlot(path[i], path[i + 1]));
+        return cost;
+    }
+}
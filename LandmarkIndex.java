@@ -0,0 +1,332 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ALT heuristic (A*, landmarks and the triangle inequality) for a snapshot of a
+ * directed, weighted graph
+ * *For every landmark L the index stores d(L, v) and d(v, L) for each vertex v,
+ * and d(v, t) is at least d(L, t) - d(L, v) and d(v, L) - d(t, L); the estimate
+ * is the largest of these bounds over all landmarks
+ * *Landmarks are chosen either "farthest" (each one as far as possible from the
+ * ones before it) or "avoid" (in a region the current landmarks cover badly)
+ * *Tables are stored vertex by vertex, so one estimate reads two short runs of
+ * ints; -1 marks a vertex the landmark cannot reach or be reached from
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class LandmarkIndex implements Heuristic {
+    /** the snapshot the tables describe */
+    private final CompactWeightedGraph graph;
+
+    /** the landmark vertices */
+    private final int[] landmarks;
+
+    /** d(landmark j, v) at v * landmarks.length + j */
+    private final int[] fromLandmark;
+
+    /** d(v, landmark j) at v * landmarks.length + j */
+    private final int[] toLandmark;
+
+    /**
+     * @param graph        the snapshot the tables describe
+     * @param landmarks    the landmark vertices
+     * @param fromLandmark distances from each landmark, vertex by vertex
+     * @param toLandmark   distances to each landmark, vertex by vertex
+     */
+    private LandmarkIndex(CompactWeightedGraph graph, int[] landmarks, int[] fromLandmark, int[] toLandmark) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Chooses landmarks and computes their distance tables
+     * *Choosing is sequential, since each landmark depends on the ones before it;
+     * the backward tables are then computed in parallel on the common fork-join
+     * pool
+     *
+     * @param graph     the snapshot to preprocess
+     * @param count     the number of landmarks (at most the number of vertices)
+     * @param selection either "farthest" or "avoid"
+     * @return the landmark tables of the snapshot
+     * @throws IllegalArgumentException the count is below 1 or the selection is
+     *                                  unknown
+     * @throws ArithmeticException      a distance is larger than
+     *                                  Integer.MAX_VALUE
+     */
+    static LandmarkIndex build(CompactWeightedGraph graph, int count, String selection) {
+        boolean avoid;
+        if ("farthest".equals(selection))
+            avoid = false;
+        else if ("avoid".equals(selection))
+            avoid = true;
+        else
+            throw new IllegalArgumentException("unknown landmark selection: " + selection);
+        if (count < 1)
+            throw new IllegalArgumentException("at least one landmark is needed");
+        int n = graph.vertexCount();
+        int[] landmarks = new int[Math.min(count, n)];
+        long[][] forward = new long[landmarks.length][n];
+        // distance from the nearest landmark so far, or from vertex 0 before the first
+        long[] nearest = new long[n];
+        if (n > 0)
+            graph.searchAll(0, false, nearest, null);
+        Random random = new Random(233);
+        for (int i = 0; i < landmarks.length; i++) {
+            int landmark = avoid && i > 0 ? avoidChoice(graph, landmarks, i, forward, random) : -1;
+            landmarks[i] = landmark == -1 ? farthestChoice(nearest, i == 0) : landmark;
+            graph.searchAll(landmarks[i], false, forward[i], null);
+            for (int v = 0; v < n; v++)
+                nearest[v] = i == 0 ? forward[i][v] : Math.min(nearest[v], forward[i][v]);
+        }
+        long[][] backward = new long[landmarks.length][n];
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[landmarks.length];
+        for (int i = 0; i < landmarks.length; i++) {
+            int j = i;
+            tasks[i] = CompletableFuture.runAsync(() -> graph.searchAll(landmarks[j], true, backward[j], null),
+                    ForkJoinPool.commonPool());
+        }
+        CompletableFuture.allOf(tasks).join();
+        return new LandmarkIndex(graph, landmarks, interleave(forward), interleave(backward));
+    }
+
+    /**
+     * Picks the vertex farthest from the landmarks chosen so far, preferring
+     * vertices none of them reaches
+     *
+     * @param nearest   distance of each vertex from its nearest landmark
+     * @param reachable true to only consider reached vertices
+     * @return the chosen vertex (the smallest id among ties)
+     */
+    private static int farthestChoice(long[] nearest, boolean reachable) {
+        int choice = 0;
+        for (int v = 1; v < nearest.length; v++) {
+            if (nearest[v] > nearest[choice] && !(reachable && nearest[v] == Long.MAX_VALUE))
+                choice = v;
+        }
+        return choice;
+    }
+
+    /**
+     * Picks a landmark with the avoid strategy: grows a shortest-path tree from a
+     * random root, weighs each vertex by how much the current landmarks
+     * underestimate its distance from the root, and walks from the root towards
+     * the heaviest subtree without a landmark down to a leaf
+     *
+     * @param graph     the snapshot
+     * @param landmarks the landmarks chosen so far
+     * @param chosen    the number of landmarks chosen so far
+     * @param forward   distance tables of the chosen landmarks
+     * @param random    picks the root
+     * @return the chosen vertex, or -1 if every subtree of the root already has a
+     *         landmark
+     */
+    private static int avoidChoice(CompactWeightedGraph graph, int[] landmarks, int chosen, long[][] forward,
+            Random random) {
+        int n = graph.vertexCount();
+        int root = random.nextInt(n);
+        long[] costs = new long[n];
+        int[] parents = new int[n];
+        graph.searchAll(root, false, costs, parents);
+        // children of every vertex in the tree, as CSR
+        int[] childStart = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            if (parents[v] != -1)
+                childStart[parents[v] + 1]++;
+        }
+        for (int v = 0; v < n; v++)
+            childStart[v + 1] += childStart[v];
+        int[] children = new int[childStart[n]];
+        int[] next = Arrays.copyOf(childStart, n);
+        for (int v = 0; v < n; v++) {
+            if (parents[v] != -1)
+                children[next[parents[v]]++] = v;
+        }
+        boolean[] isLandmark = new boolean[n];
+        for (int i = 0; i < chosen; i++)
+            isLandmark[landmarks[i]] = true;
+        // subtree sizes in post-order, zero for subtrees holding a landmark
+        long[] size = new long[n];
+        int[] stack = new int[n];
+        int[] cursor = Arrays.copyOf(childStart, n);
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int v = stack[top - 1];
+            if (cursor[v] < childStart[v + 1]) {
+                stack[top++] = children[cursor[v]++];
+                continue;
+            }
+            top--;
+            if (isLandmark[v]) {
+                size[v] = -1;
+                continue;
+            }
+            long lowerBound = 0;
+            for (int i = 0; i < chosen; i++) {
+                if (forward[i][root] != Long.MAX_VALUE)
+                    lowerBound = Math.max(lowerBound, forward[i][v] - forward[i][root]);
+            }
+            size[v] = costs[v] - lowerBound;
+            for (int e = childStart[v]; e < childStart[v + 1]; e++) {
+                if (size[children[e]] == -1) {
+                    size[v] = -1;
+                    break;
+                }
+                size[v] += size[children[e]];
+            }
+        }
+        // the root itself usually reaches a landmark, so start from its children
+        int choice = root;
+        while (true) {
+            int heaviest = -1;
+            for (int e = childStart[choice]; e < childStart[choice + 1]; e++) {
+                int child = children[e];
+                if (size[child] > 0 && (heaviest == -1 || size[child] > size[heaviest]))
+                    heaviest = child;
+            }
+            if (heaviest == -1)
+                return choice == root && size[root] <= 0 ? -1 : choice;
+            choice = heaviest;
+        }
+    }
+
+    /**
+     * @param tables one distance array per landmark (Long.MAX_VALUE if unreached)
+     * @return the distances vertex by vertex, with -1 for unreached vertices
+     * @throws ArithmeticException a distance is larger than Integer.MAX_VALUE
+     */
+    private static int[] interleave(long[][] tables) {
+        int k = tables.length;
+        int n = k == 0 ? 0 : tables[0].length;
+        int[] interleaved = new int[n * k];
+        for (int j = 0; j < k; j++) {
+            for (int v = 0; v < n; v++)
+                interleaved[v * k + j] = tables[j][v] == Long.MAX_VALUE ? -1 : Math.toIntExact(tables[j][v]);
+        }
+        return interleaved;
+    }
+
+    /**
+     * Reads tables written by save and checks them against a snapshot
+     * *Every edge of the snapshot must respect the stored distances, which is
+     * exactly what keeps the estimates admissible, so tables from an older version
+     * of the graph are accepted as long as they are still valid lower bounds
+     *
+     * @param filename the file to read
+     * @param graph    the snapshot the tables should describe
+     * @return the tables stored in the file
+     * @throws IOException the file does not exist, is not a valid landmark file, or
+     *                     does not match the snapshot
+     */
+    static LandmarkIndex load(String filename, CompactWeightedGraph graph) throws IOException {
+        GraphFile file = GraphFile.read(filename, GraphFile.LANDMARKS);
+        int n = graph.vertexCount();
+        if (file.names.length != n)
+            throw new IOException(filename + " does not match the graph (different nodes)");
+        for (int v = 0; v < n; v++) {
+            if (!file.names[v].equals(graph.name(v)))
+                throw new IOException(filename + " does not match the graph (different nodes)");
+        }
+        int k = n == 0 ? 0 : file.offsets[1];
+        int[] landmarks = Arrays.copyOf(file.targets, k);
+        int[] fromLandmark = file.sections[0];
+        int[] toLandmark = file.sections[1];
+        for (int v = 0; v < n; v++) {
+            if (file.offsets[v + 1] != (v + 1) * k)
+                throw new IOException(filename + " is corrupted (bad offsets)");
+            for (int j = 0; j < k; j++) {
+                if (file.targets[v * k + j] != landmarks[j] || fromLandmark[v * k + j] < -1
+                        || toLandmark[v * k + j] < -1)
+                    throw new IOException(filename + " is corrupted (bad tables)");
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.edgeStart(u); e < graph.edgeStart(u + 1); e++) {
+                int v = graph.target(e);
+                long weight = graph.weight(e);
+                for (int j = 0; j < k; j++) {
+                    int fromU = fromLandmark[u * k + j];
+                    int fromV = fromLandmark[v * k + j];
+                    int toU = toLandmark[u * k + j];
+                    int toV = toLandmark[v * k + j];
+                    if ((fromU != -1 && (fromV == -1 || fromV > fromU + weight))
+                            || (toV != -1 && (toU == -1 || toU > toV + weight)))
+                        throw new IOException(filename + " does not match the graph (edge " + graph.name(u)
+                                + " -> " + graph.name(v) + ")");
+                }
+            }
+        }
+        return new LandmarkIndex(graph, landmarks, fromLandmark, toLandmark);
+    }
+
+    /**
+     * Writes the tables to a binary file, so preprocessing runs once per graph
+     *
+     * @param filename the file to write
+     * @throws IOException the file cannot be written
+     */
+    public void save(String filename) throws IOException {
+        int n = graph.vertexCount();
+        int k = landmarks.length;
+        String[] names = new String[n];
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[n * k];
+        for (int v = 0; v < n; v++) {
+            names[v] = graph.name(v);
+            offsets[v + 1] = (v + 1) * k;
+            System.arraycopy(landmarks, 0, targets, v * k, k);
+        }
+        GraphFile.write(filename, GraphFile.LANDMARKS, names, offsets, targets, fromLandmark, toLandmark);
+    }
+
+    /**
+     * @return the names of the landmarks, in the order they were chosen
+     */
+    public String[] landmarks() {
+        String[] names = new String[landmarks.length];
+        for (int i = 0; i < landmarks.length; i++)
+            names[i] = graph.name(landmarks[i]);
+        return names;
+    }
+
+    @Override
+    public long estimate(String node, String target) {
+        int vertex = graph.id(node);
+        int end = graph.id(target);
+        if (vertex == -1 || end == -1)
+            return 0;
+        return estimate(vertex, end);
+    }
+
+    /**
+     * @param vertex a vertex id
+     * @param target the id of the end node
+     * @return the largest lower bound on d(vertex, target) over all landmarks
+     */
+    long estimate(int vertex, int target) {
+        int k = landmarks.length;
+        int v = vertex * k;
+        int t = target * k;
+        long estimate = 0;
+        for (int j = 0; j < k; j++) {
+            // a landmark missing either distance gives no bound
+            if (fromLandmark[v + j] != -1 && fromLandmark[t + j] != -1)
+                estimate = Math.max(estimate, (long) fromLandmark[t + j] - fromLandmark[v + j]);
+            if (toLandmark[v + j] != -1 && toLandmark[t + j] != -1)
+                estimate = Math.max(estimate, (long) toLandmark[v + j] - toLandmark[t + j]);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the snapshot the tables describe
+     */
+    CompactWeightedGraph graph() {
+        return graph;
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LandmarkIndexTest {
+    WeightedGraph graph = new WeightedGraph();
+
+    String[] cities = {"Warsaw", "Lublin", "Bialystok", "Radom", "Torun", "Poznan", "Kielce", "Bydgoszcz",
+            "Gdansk", "Gdynia", "Koszalin", "Szczecin", "Wroclaw", "Walbrzych", "Krakow", "Tarnow", "Rzeszow",
+            "Katowice", "Gliwice", "Czestochowa"};
+
+    /**
+     * Checks that A* guided by the index finds paths as cheap as Dijkstra's
+     * between every pair of cities, and settles fewer vertices in total
+     *
+     * @param index landmark tables for graph
+     */
+    private void assertAdmissible(LandmarkIndex index) {
+        int settledWithLandmarks = 0;
+        int settledWithout = 0;
+        for (String from : cities) {
+            for (String to : cities) {
+                Path dijkstra = graph.aStar(from, to, Heuristic.NONE);
+                Path path = graph.aStar(from, to, index);
+                Assert.assertEquals(dijkstra.getCost(), path.getCost());
+                if (dijkstra.getCost() != -1)
+                    Assert.assertTrue(index.estimate(from, to) <= dijkstra.getCost());
+                settledWithout += dijkstra.getSettled();
+                settledWithLandmarks += path.getSettled();
+            }
+        }
+        Assert.assertTrue(settledWithLandmarks < settledWithout);
+    }
+
+    @Test
+    public void testSelections() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        LandmarkIndex farthest = graph.landmarkIndex(4, "farthest");
+        Assert.assertEquals(4, farthest.landmarks().length);
+        assertAdmissible(farthest);
+        LandmarkIndex avoid = graph.landmarkIndex(4, "avoid");
+        Assert.assertEquals(4, avoid.landmarks().length);
+        assertAdmissible(avoid);
+
+        // a landmark's own distances are exact
+        String landmark = farthest.landmarks()[0];
+        for (String city : cities) {
+            long cost = graph.aStar(landmark, city, Heuristic.NONE).getCost();
+            Assert.assertEquals(Math.max(cost, 0), farthest.estimate(landmark, city));
+        }
+
+        // unknown nodes are estimated at 0
+        Assert.assertEquals(0, farthest.estimate("Warsaw", "Berlin"));
+        try {
+            graph.landmarkIndex(4, "nearest");
+            Assert.assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            // unknown selection
+        }
+    }
+
+    @Test
+    public void testDisconnected() {
+        // two directed components, each reachable only one way
+        graph.addNodes(new String[] {"A", "B", "C", "D", "E"});
+        graph.addWeightedEdge("A", "B", 2);
+        graph.addWeightedEdge("B", "C", 3);
+        graph.addWeightedEdge("D", "E", 1);
+        LandmarkIndex index = graph.landmarkIndex(10, "avoid");
+        // landmarks never repeat, so there are at most as many as nodes
+        String[] landmarks = index.landmarks();
+        Assert.assertEquals(5, landmarks.length);
+        Arrays.sort(landmarks);
+        Assert.assertEquals("[A, B, C, D, E]", Arrays.toString(landmarks));
+        Assert.assertEquals(5, index.estimate("A", "C"));
+        Assert.assertEquals(-1, graph.aStar("C", "A", index).getCost());
+        Assert.assertEquals(-1, graph.aStar("A", "E", index).getCost());
+    }
+
+    @Test
+    public void testRandomGraphs() {
+        Random random = new Random(233);
+        for (int round = 0; round < 20; round++) {
+            graph = new WeightedGraph();
+            String[] names = new String[2 + random.nextInt(30)];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = "v" + i;
+                graph.addNode(names[i]);
+            }
+            for (int i = random.nextInt(names.length * 4); i > 0; i--) {
+                graph.addWeightedEdge(names[random.nextInt(names.length)], names[random.nextInt(names.length)],
+                        1 + random.nextInt(50));
+            }
+            LandmarkIndex index = graph.landmarkIndex(3, round % 2 == 0 ? "farthest" : "avoid");
+            for (String from : names) {
+                for (String to : names) {
+                    Path dijkstra = graph.aStar(from, to, Heuristic.NONE);
+                    Assert.assertEquals(dijkstra.getCost(), graph.aStar(from, to, index).getCost());
+                    if (dijkstra.getCost() != -1)
+                        Assert.assertTrue(index.estimate(from, to) <= dijkstra.getCost());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        File file = File.createTempFile("landmarks", ".bin");
+        file.deleteOnExit();
+        LandmarkIndex index = graph.landmarkIndex(4, "avoid");
+        index.save(file.getPath());
+        LandmarkIndex loaded = graph.loadLandmarks(file.getPath());
+        Assert.assertEquals(Arrays.toString(index.landmarks()), Arrays.toString(loaded.landmarks()));
+        for (String from : cities) {
+            for (String to : cities)
+                Assert.assertEquals(index.estimate(from, to), loaded.estimate(from, to));
+        }
+
+        // raising a weight keeps the bounds valid, a new shortcut does not
+        graph.removeNode("Lublin");
+        graph.addNode("Lublin");
+        graph.addWeightedEdge("Warsaw", "Lublin", 500);
+        loaded = graph.loadLandmarks(file.getPath());
+        Assert.assertEquals(500, graph.aStar("Warsaw", "Lublin", loaded).getCost());
+        graph.addWeightedEdge("Gdansk", "Krakow", 1);
+        try {
+            graph.loadLandmarks(file.getPath());
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            // does not match the graph
+        }
+
+        // a graph file is not a landmark file
+        file = File.createTempFile("weighted", ".bin");
+        file.deleteOnExit();
+        graph.save(file.getPath());
+        try {
+            graph.loadLandmarks(file.getPath());
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            // not a landmark table
+        }
+    }
+}
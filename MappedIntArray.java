@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only array of big-endian ints that stays in a memory-mapped file
+ * *A single mapping holds at most 2 GB, so the array is mapped in chunks of 2^28
+ * ints and an index picks its chunk with a shift; none of it is on the heap, and
+ * the operating system pages it in and out as it is used
+ *
+ * @author <i>Charlie Lin</i>
+ */
+class MappedIntArray {
+    /** log2 of the number of ints in each chunk */
+    private static final int CHUNK_SHIFT = 28;
+
+    /** mask giving an index's position within its chunk */
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    /** the mapped chunks in order */
+    private final IntBuffer[] chunks;
+
+    /** the number of ints in the array */
+    private final long length;
+
+    /**
+     * Maps a range of a file as an int array
+     *
+     * @param channel  the file, which may be closed once the array is mapped
+     * @param position file position of the first int
+     * @param length   the number of ints
+     * @throws IOException the file cannot be mapped
+     */
+    MappedIntArray(FileChannel channel, long position, long length) throws IOException {
+        this.length = length;
+        chunks = new IntBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            long first = (long) i << CHUNK_SHIFT;
+            long count = Math.min(CHUNK_MASK + 1, length - first);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + 4 * first, 4 * count).asIntBuffer();
+        }
+    }
+
+    /**
+     * @param index position in the array
+     * @return the int stored there
+     */
+    int get(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    /**
+     * @return the number of ints in the array
+     */
+    long length() {
+        return length;
+    }
+}
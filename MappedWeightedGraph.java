@@ -0,0 +1,190 @@
+import java.io.IOException;
+
+/**
+ * Read-only weighted graph whose edges stay in a memory-mapped graph file
+ * *Offsets, targets and weights are read straight from the file written by
+ * WeightedGraph.save, so heap usage depends on the number of nodes (their UTF-8
+ * names in a vertex dictionary and per-search state) but not on the number of
+ * edges, and the edge arrays add nothing for the garbage collector to trace
+ * *Vertices are numbered in alphabetical order, and the edges leaving vertex i
+ * are the slots offsets[i] to offsets[i + 1] - 1, as in CompactWeightedGraph
+ * *A file holds at most 2^31 - 1 edges and VertexDictionary.MAX_NAMES
+ * (939,524,096) vertices, each named in at most 1 GB of UTF-8; the names
+ * together may exceed 2 GB, but they are kept on the heap
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class MappedWeightedGraph {
+    /** vertex names and their ids */
+    private final VertexDictionary names;
+
+    /** start of each vertex's edge range (length n + 1) */
+    private final MappedIntArray offsets;
+
+    /** end vertex of every edge, stored back to back */
+    private final MappedIntArray targets;
+
+    /** weight of every edge, aligned with targets */
+    private final MappedIntArray weights;
+
+    /** search contexts shared by queries on this graph */
+    private final SearchContext.Pool contexts;
+
+    /**
+     * @param file the names and mapped sections of a weighted graph file
+     */
+    private MappedWeightedGraph(GraphFile.Mapped file) {
+        names = file.names;
+        offsets = file.offsets;
+        targets = file.targets;
+        weights = file.sections[0];
+        contexts = new SearchContext.Pool(names.size());
+    }
+
+    /**
+     * Maps a file written by WeightedGraph.save
+     *
+     * @param filename the file to map
+     * @return the graph stored in the file
+     * @throws IOException the file does not exist, is not a valid weighted graph
+     *                     file, or exceeds the limits on vertices and names
+     */
+    public static MappedWeightedGraph map(String filename) throws IOException {
+        return new MappedWeightedGraph(GraphFile.map(filename, GraphFile.WEIGHTED));
+    }
+
+    /**
+     * @return the number of vertices in the graph
+     */
+    public int vertexCount() {
+        return names.size();
+    }
+
+    /**
+     * @return the number of directed edges in the graph
+     */
+    public long edgeCount() {
+        return targets.length();
+    }
+
+    /**
+     * @param from start node
+     * @param to   end node
+     * @return true if the graph has an edge from one node to the other
+     */
+    public boolean hasEdge(String from, String to) {
+        return getWeight(from, to) != -1;
+    }
+
+    /**
+     * @param from start node
+     * @param to   end node
+     * @return the weight of the edge between the nodes (-1 if there is no edge or
+     *         invalid arguments)
+     */
+    public int getWeight(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return -1;
+        for (long e = offsets.get(source); e < offsets.get(source + 1); e++) {
+            if (targets.get(e) == target)
+                return weights.get(e);
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the shortest path between two nodes using Dijkstra's Algorithm over the
+     * mapped edges
+     *
+     * @param from start node
+     * @param to   end node
+     * @return String array representing the shortest path between two nodes (empty
+     *         array if no path exists or invalid arguments)
+     */
+    public String[] shortestPath(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return new String[0];
+        SearchContext context = contexts.acquire();
+        try {
+            IndexedMinHeap vHeap = context.heap();
+            long[] cost = context.cost();
+            context.reach(source, -1, 0);
+            vHeap.insertOrDecrease(source, 0);
+            while (!vHeap.isEmpty()) {
+                // cost of a vertex is final once it leaves the heap
+                int vertex = vHeap.poll();
+                context.settle(vertex);
+                if (vertex == target)
+                    return toNames(context.pathTo(target));
+                long end = offsets.get(vertex + 1);
+                for (long e = offsets.get(vertex); e < end; e++) {
+                    int next = targets.get(e);
+                    if (context.isSettled(next))
+                        continue;
+                    long newCost = cost[vertex] + weights.get(e);
+                    if (!context.isReached(next) || newCost < cost[next]) {
+                        context.reach(next, vertex, newCost);
+                        vHeap.insertOrDecrease(next, newCost);
+                    }
+                }
+            }
+            return new String[0];
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Returns the path with the fewest edges between two nodes using Breadth First
+     * Search over the mapped edges, visiting neighbors in the order their edges
+     * were added
+     *
+     * @param from start node
+     * @param to   end node
+     * @return String array representing the path between two nodes (empty array if
+     *         no path exists or invalid arguments)
+     */
+    public String[] BFS(String from, String to) {
+        int source = names.id(from);
+        int target = names.id(to);
+        if (source == -1 || target == -1)
+            return new String[0];
+        SearchContext context = contexts.acquire();
+        try {
+            int[] vQueue = context.queue;
+            int head = 0;
+            int tail = 0;
+            vQueue[tail++] = source;
+            context.reach(source, -1);
+            while (head < tail && !context.isReached(target)) {
+                int vertex = vQueue[head++];
+                long end = offsets.get(vertex + 1);
+                for (long e = offsets.get(vertex); e < end; e++) {
+                    int next = targets.get(e);
+                    if (!context.isReached(next)) {
+                        context.reach(next, vertex);
+                        vQueue[tail++] = next;
+                    }
+                }
+            }
+            return context.isReached(target) ? toNames(context.pathTo(target)) : new String[0];
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * @param path vertex ids along a path
+     * @return the names of the vertices
+     */
+    private String[] toNames(int[] path) {
+        String[] pathArr = new String[path.length];
+        for (int i = 0; i < path.length; i++)
+            pathArr[i] = names.name(path[i]);
+        return pathArr;
+    }
+}
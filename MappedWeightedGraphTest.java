@@ -0,0 +1,95 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedWeightedGraphTest {
+    WeightedGraph graph = new WeightedGraph();
+
+    /**
+     * @param graph a graph to save
+     * @return the graph mapped back from a temporary file
+     * @throws IOException the file cannot be written or mapped
+     */
+    private MappedWeightedGraph saveAndMap(WeightedGraph graph) throws IOException {
+        File file = File.createTempFile("weighted", ".bin");
+        file.deleteOnExit();
+        graph.save(file.getPath());
+        return graph.mapWeighted(file.getPath());
+    }
+
+    @Test
+    public void testPoland() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        MappedWeightedGraph mapped = saveAndMap(graph);
+        CompactWeightedGraph snapshot = graph.freeze();
+        Assert.assertEquals(snapshot.vertexCount(), mapped.vertexCount());
+        Assert.assertEquals(snapshot.edgeCount(), mapped.edgeCount());
+        Assert.assertEquals(graph.getWeight("Poznan", "Szczecin"), mapped.getWeight("Poznan", "Szczecin"));
+        Assert.assertFalse(mapped.hasEdge("Rzeszow", "Szczecin"));
+        Assert.assertEquals(-1, mapped.getWeight("Berlin", "Szczecin"));
+        Assert.assertEquals("[]", Arrays.toString(mapped.shortestPath("Berlin", "Szczecin")));
+        Assert.assertEquals("[Warsaw]", Arrays.toString(mapped.shortestPath("Warsaw", "Warsaw")));
+        for (int i = 0; i < snapshot.vertexCount(); i++) {
+            for (int j = 0; j < snapshot.vertexCount(); j++) {
+                String from = snapshot.name(i);
+                String to = snapshot.name(j);
+                Assert.assertEquals(Arrays.toString(graph.shortestPath(from, to)),
+                        Arrays.toString(mapped.shortestPath(from, to)));
+            }
+        }
+    }
+
+    @Test
+    public void testRandomGraphs() throws IOException {
+        Random random = new Random(233);
+        for (int round = 0; round < 10; round++) {
+            graph = new WeightedGraph();
+            String[] names = new String[2 + random.nextInt(30)];
+            for (int i = 0; i < names.length; i++)
+                names[i] = "v" + i;
+            graph.addNodes(names);
+            for (int i = random.nextInt(names.length * 3); i > 0; i--) {
+                graph.addWeightedEdge(names[random.nextInt(names.length)], names[random.nextInt(names.length)],
+                        1 + random.nextInt(20));
+            }
+            MappedWeightedGraph mapped = saveAndMap(graph);
+            for (String from : names) {
+                for (String to : names) {
+                    Assert.assertEquals(Arrays.toString(graph.shortestPath(from, to)),
+                            Arrays.toString(mapped.shortestPath(from, to)));
+                    // BFS finds a path exactly when Dijkstra does, never with more edges
+                    String[] hops = mapped.BFS(from, to);
+                    Assert.assertEquals(graph.shortestPath(from, to).length == 0, hops.length == 0);
+                    Assert.assertTrue(hops.length <= graph.shortestPath(from, to).length);
+                    for (int i = 0; i + 1 < hops.length; i++)
+                        Assert.assertTrue(mapped.hasEdge(hops[i], hops[i + 1]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidFiles() throws IOException {
+        File file = File.createTempFile("unweighted", ".bin");
+        file.deleteOnExit();
+        Graph unweighted = new Graph();
+        unweighted.addNodes(new String[] {"A", "B"});
+        unweighted.addEdge("A", "B");
+        unweighted.save(file.getPath());
+        try {
+            graph.mapWeighted(file.getPath());
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            // not a weighted graph
+        }
+        try {
+            graph.mapWeighted(file.getPath() + ".missing");
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            // no such file
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+/**
+ * A path through a graph together with its total cost
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class Path {
+    /** the nodes along the path, start node first */
+    private final String[] nodes;
+
+    /** total weight of the path's edges (number of edges for unweighted graphs) */
+    private final long cost;
+
+    /** number of vertices the search settled to find the path (0 if not counted) */
+    private final int settled;
+
+    /**
+     * Creates a path
+     *
+     * @param nodes the nodes along the path, start node first
+     * @param cost  total cost of the path
+     */
+    public Path(String[] nodes, long cost) {
+        this(nodes, cost, 0);
+    }
+
+    /**
+     * Creates a path found by a search that counted its settled vertices
+     *
+     * @param nodes   the nodes along the path, start node first
+     * @param cost    total cost of the path
+     * @param settled number of vertices the search settled
+     */
+    public Path(String[] nodes, long cost, int settled) {
+        this.nodes = nodes;
+        this.cost = cost;
+        this.settled = settled;
+    }
+
+    /**
+     * @return the nodes along the path, start node first
+     */
+    public String[] getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the total cost of the path
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    /**
+     * @return the number of vertices the search settled to find the path (0 if not
+     *         counted)
+     */
+    public int getSettled() {
+        return settled;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(nodes) + " (" + cost + ")";
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * A single (from, to) request for a batch of path queries
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class PathQuery {
+    /** the start node */
+    private final String from;
+
+    /** the end node */
+    private final String to;
+
+    /**
+     * Creates a path query
+     *
+     * @param from the start node
+     * @param to   the end node
+     */
+    public PathQuery(String from, String to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return the start node
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the end node
+     */
+    public String getTo() {
+        return to;
+    }
+
+    @Override
+    public String toString() {
+        return from + " -> " + to;
+    }
+}
@@ -0,0 +1,349 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Reachability index of a snapshot of a directed, weighted graph
+ * *Strongly connected components are found with an iterative version of
+ * Tarjan's algorithm, so deep graphs cannot overflow the thread stack, and are
+ * numbered in topological order, so every edge of the condensation (the DAG of
+ * components) goes from a smaller number to a larger one
+ * *Each component also gets a few GRAIL interval labels [low, post], one per
+ * depth-first traversal of the condensation with its own child order: post is
+ * the component's rank in post-order and low is the smallest rank below it, so a
+ * component can only reach components whose intervals lie inside its own
+ * *Most pairs that cannot reach each other are ruled out by their numbers or
+ * labels alone; the rest are settled by a depth-first search of the
+ * condensation that skips every component the labels rule out
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class ReachabilityIndex {
+    /** the number of interval labels of each component */
+    private static final int LABELS = 3;
+
+    /** the snapshot the index describes */
+    private final CompactWeightedGraph graph;
+
+    /** component of each vertex, in topological order */
+    private final int[] components;
+
+    /** start of each component's range of condensation edges (length c + 1) */
+    private final int[] dagOffsets;
+
+    /** end component of every condensation edge, stored back to back */
+    private final int[] dagTargets;
+
+    /** low end of label i of component c at c * LABELS + i */
+    private final int[] lows;
+
+    /** post-order rank of component c in traversal i at c * LABELS + i */
+    private final int[] posts;
+
+    /** search contexts over components shared by queries on this index */
+    private final SearchContext.Pool contexts;
+
+    /**
+     * @param graph      the snapshot the index describes
+     * @param components component of each vertex
+     * @param dagOffsets start of each component's condensation edges
+     * @param dagTargets end component of every condensation edge
+     * @param lows       low end of every label
+     * @param posts      post-order rank of every label
+     */
+    private ReachabilityIndex(CompactWeightedGraph graph, int[] components, int[] dagOffsets, int[] dagTargets,
+            int[] lows, int[] posts) {
+        this.graph = graph;
+        this.components = components;
+        this.dagOffsets = dagOffsets;
+        this.dagTargets = dagTargets;
+        this.lows = lows;
+        this.posts = posts;
+        contexts = new SearchContext.Pool(dagOffsets.length - 1);
+    }
+
+    /**
+     * Finds the strongly connected components of a snapshot and labels its
+     * condensation, in time proportional to the number of edges
+     *
+     * @param graph the snapshot to index
+     * @return the reachability index of the snapshot
+     */
+    static ReachabilityIndex build(CompactWeightedGraph graph) {
+        int[] components = new int[graph.vertexCount()];
+        int count = tarjan(graph, components);
+        // tarjan finishes a component after every component it reaches
+        for (int i = 0; i < components.length; i++)
+            components[i] = count - 1 - components[i];
+
+        // list the vertices of each component, then their edges leaving it
+        int[] memberOffsets = new int[count + 1];
+        for (int component : components)
+            memberOffsets[component + 1]++;
+        for (int c = 0; c < count; c++)
+            memberOffsets[c + 1] += memberOffsets[c];
+        int[] next = Arrays.copyOf(memberOffsets, count);
+        int[] members = new int[components.length];
+        for (int vertex = 0; vertex < components.length; vertex++)
+            members[next[components[vertex]]++] = vertex;
+        int[] dagOffsets = new int[count + 1];
+        int[] dagTargets = new int[16];
+        int size = 0;
+        // component whose edges last added each target, to skip parallel edges
+        int[] addedBy = new int[count];
+        Arrays.fill(addedBy, -1);
+        for (int c = 0; c < count; c++) {
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                int vertex = members[m];
+                for (int e = graph.edgeStart(vertex); e < graph.edgeStart(vertex + 1); e++) {
+                    int target = components[graph.target(e)];
+                    if (target == c || addedBy[target] == c)
+                        continue;
+                    addedBy[target] = c;
+                    if (size == dagTargets.length)
+                        dagTargets = Arrays.copyOf(dagTargets, size * 2);
+                    dagTargets[size++] = target;
+                }
+            }
+            dagOffsets[c + 1] = size;
+        }
+        dagTargets = Arrays.copyOf(dagTargets, size);
+
+        int[] lows = new int[count * LABELS];
+        int[] posts = new int[count * LABELS];
+        Random random = new Random(233);
+        for (int i = 0; i < LABELS; i++)
+            label(dagOffsets, dagTargets, i, random, lows, posts);
+        return new ReachabilityIndex(graph, components, dagOffsets, dagTargets, lows, posts);
+    }
+
+    /**
+     * Private helper method running Tarjan's algorithm with an explicit call stack
+     *
+     * @param graph      the snapshot to search
+     * @param components filled with the component of each vertex, numbered in
+     *                   the order components are finished
+     * @return the number of components
+     */
+    private static int tarjan(CompactWeightedGraph graph, int[] components) {
+        int n = graph.vertexCount();
+        int[] index = new int[n];
+        int[] low = new int[n];
+        Arrays.fill(index, -1);
+        Arrays.fill(components, -1);
+        // vertices not yet assigned to a component, in order of discovery
+        int[] stack = new int[n];
+        int stackSize = 0;
+        // the vertex of each call and the next edge slot it will follow
+        int[] callVertex = new int[n];
+        int[] callEdge = new int[n];
+        int counter = 0;
+        int count = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1)
+                continue;
+            index[root] = low[root] = counter++;
+            stack[stackSize++] = root;
+            callVertex[0] = root;
+            callEdge[0] = graph.edgeStart(root);
+            int depth = 1;
+            while (depth > 0) {
+                int vertex = callVertex[depth - 1];
+                int e = callEdge[depth - 1];
+                if (e < graph.edgeStart(vertex + 1)) {
+                    callEdge[depth - 1]++;
+                    int next = graph.target(e);
+                    if (index[next] == -1) {
+                        // descend into an undiscovered vertex
+                        index[next] = low[next] = counter++;
+                        stack[stackSize++] = next;
+                        callVertex[depth] = next;
+                        callEdge[depth] = graph.edgeStart(next);
+                        depth++;
+                    } else if (components[next] == -1) {
+                        low[vertex] = Math.min(low[vertex], index[next]);
+                    }
+                    continue;
+                }
+                // all edges followed, so return from the call
+                depth--;
+                if (low[vertex] == index[vertex]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        components[member] = count;
+                    } while (member != vertex);
+                    count++;
+                }
+                if (depth > 0) {
+                    int caller = callVertex[depth - 1];
+                    low[caller] = Math.min(low[caller], low[vertex]);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Private helper method computing one interval label of every component by a
+     * depth-first traversal of the condensation
+     * *The first traversal follows edges in order, the second in reverse order and
+     * the rest from a random rotation, so their labels rule out different pairs
+     *
+     * @param dagOffsets start of each component's condensation edges
+     * @param dagTargets end component of every condensation edge
+     * @param label      which label to compute
+     * @param random     picks rotations for later traversals
+     * @param lows       filled with the low end of the label
+     * @param posts      filled with the post-order rank of the label
+     */
+    private static void label(int[] dagOffsets, int[] dagTargets, int label, Random random, int[] lows,
+            int[] posts) {
+        int count = dagOffsets.length - 1;
+        boolean[] visited = new boolean[count];
+        int[] callComponent = new int[count];
+        int[] callStep = new int[count];
+        int[] rotation = new int[count];
+        int rank = 0;
+        for (int r = 0; r < count; r++) {
+            // odd traversals try the components from the last one back
+            int root = label % 2 == 0 ? r : count - 1 - r;
+            if (visited[root])
+                continue;
+            visited[root] = true;
+            callComponent[0] = root;
+            callStep[0] = 0;
+            int depth = 1;
+            while (depth > 0) {
+                int component = callComponent[depth - 1];
+                int degree = dagOffsets[component + 1] - dagOffsets[component];
+                int step = callStep[depth - 1];
+                if (step == 0 && degree > 0)
+                    rotation[component] = label < 2 ? 0 : random.nextInt(degree);
+                if (step < degree) {
+                    callStep[depth - 1]++;
+                    int position = (step + rotation[component]) % degree;
+                    if (label == 1)
+                        position = degree - 1 - position;
+                    int next = dagTargets[dagOffsets[component] + position];
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        callComponent[depth] = next;
+                        callStep[depth] = 0;
+                        depth++;
+                    }
+                    continue;
+                }
+                depth--;
+                posts[component * LABELS + label] = rank++;
+            }
+        }
+        // components reached later in topological order are labeled first
+        for (int c = count - 1; c >= 0; c--) {
+            int low = posts[c * LABELS + label];
+            for (int e = dagOffsets[c]; e < dagOffsets[c + 1]; e++)
+                low = Math.min(low, lows[dagTargets[e] * LABELS + label]);
+            lows[c * LABELS + label] = low;
+        }
+    }
+
+    /**
+     * @return the number of strongly connected components of the snapshot
+     */
+    public int componentCount() {
+        return dagOffsets.length - 1;
+    }
+
+    /**
+     * @param from the first node
+     * @param to   the second node
+     * @return true if each node can reach the other (false if either node does
+     *         not exist)
+     */
+    public boolean stronglyConnected(String from, String to) {
+        int source = graph.id(from);
+        int target = graph.id(to);
+        return source != -1 && target != -1 && components[source] == components[target];
+    }
+
+    /**
+     * Checks whether there is a path from one node to another, without running a
+     * shortest-path search
+     *
+     * @param from start node
+     * @param to   end node
+     * @return true if the end node can be reached from the start node (false if
+     *         either node does not exist)
+     */
+    public boolean isReachable(String from, String to) {
+        int source = graph.id(from);
+        int target = graph.id(to);
+        if (source == -1 || target == -1)
+            return false;
+        return reaches(components[source], components[target]);
+    }
+
+    /**
+     * @param source a vertex
+     * @param target a vertex
+     * @return true if the numbers or labels of the vertices' components prove
+     *         there is no path between them, in constant time
+     */
+    boolean excludes(int source, int target) {
+        return !mayReach(components[source], components[target]);
+    }
+
+    /**
+     * @param from a component
+     * @param to   a component
+     * @return false if the component numbers or a label rule out a path
+     */
+    private boolean mayReach(int from, int to) {
+        if (from == to)
+            return true;
+        if (from > to)
+            return false;
+        for (int i = 0; i < LABELS; i++) {
+            if (lows[to * LABELS + i] < lows[from * LABELS + i] || posts[to * LABELS + i] > posts[from * LABELS + i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Private helper method deciding reachability between components, searching
+     * the condensation only when the labels cannot
+     *
+     * @param from a component
+     * @param to   a component
+     * @return true if there is a path from one component to the other
+     */
+    private boolean reaches(int from, int to) {
+        if (from == to)
+            return true;
+        if (!mayReach(from, to))
+            return false;
+        SearchContext context = contexts.acquire();
+        try {
+            int[] stack = context.queue;
+            int size = 0;
+            stack[size++] = from;
+            context.reach(from, -1);
+            while (size > 0) {
+                int component = stack[--size];
+                for (int e = dagOffsets[component]; e < dagOffsets[component + 1]; e++) {
+                    int next = dagTargets[e];
+                    if (next == to)
+                        return true;
+                    // skip components that cannot lie on a path to the end
+                    if (context.isReached(next) || !mayReach(next, to))
+                        continue;
+                    context.reach(next, component);
+                    stack[size++] = next;
+                }
+            }
+            return false;
+        } finally {
+            contexts.release(context);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReachabilityIndexTest {
+    WeightedGraph graph = new WeightedGraph();
+
+    @Test
+    public void testComponents() {
+        String[] names = {"A", "B", "C", "D", "E", "F"};
+        graph.addNodes(names);
+        // A -> B -> C -> A is a cycle leading to the cycle D <-> E; F is alone
+        graph.addWeightedEdge("A", "B", 1);
+        graph.addWeightedEdge("B", "C", 1);
+        graph.addWeightedEdge("C", "A", 1);
+        graph.addWeightedEdge("C", "D", 4);
+        graph.addWeightedEdge("D", "E", 2);
+        graph.addWeightedEdge("E", "D", 2);
+
+        ReachabilityIndex index = graph.reachabilityIndex();
+        Assert.assertEquals(3, index.componentCount());
+        Assert.assertEquals(true, index.stronglyConnected("A", "C"));
+        Assert.assertEquals(false, index.stronglyConnected("C", "D"));
+        Assert.assertEquals(true, graph.isReachable("B", "E"));
+        Assert.assertEquals(true, graph.isReachable("A", "A"));
+        Assert.assertEquals(false, graph.isReachable("E", "A"));
+        Assert.assertEquals(false, graph.isReachable("A", "F"));
+        Assert.assertEquals(false, graph.isReachable("A", "Z"));
+        Assert.assertEquals(0, graph.shortestPath("D", "B").length);
+        Assert.assertEquals(3, graph.shortestPath("B", "D").length);
+
+        // reweighting keeps the index, adding an edge builds a new one
+        graph.updateWeight("C", "D", 7);
+        Assert.assertSame(index, graph.reachabilityIndex());
+        graph.addWeightedEdge("E", "B", 1);
+        Assert.assertEquals(2, graph.reachabilityIndex().componentCount());
+        Assert.assertEquals(true, graph.isReachable("E", "A"));
+        Assert.assertEquals(5, graph.shortestPath("D", "A").length);
+    }
+
+    @Test
+    public void testLongChain() {
+        // a path far deeper than the thread stack could recurse, closed into a cycle
+        int length = 200000;
+        String[] names = new String[length];
+        for (int i = 0; i < length; i++)
+            names[i] = "v" + i;
+        graph.addNodes(names);
+        for (int i = 0; i + 1 < length; i++)
+            graph.addWeightedEdge(names[i], names[i + 1], 1);
+        Assert.assertEquals(length, graph.reachabilityIndex().componentCount());
+        Assert.assertEquals(true, graph.isReachable("v0", "v199999"));
+        Assert.assertEquals(false, graph.isReachable("v199999", "v0"));
+
+        graph.addWeightedEdge("v199999", "v0", 1);
+        Assert.assertEquals(1, graph.reachabilityIndex().componentCount());
+        Assert.assertEquals(true, graph.isReachable("v199999", "v0"));
+    }
+
+    @Test
+    public void testRandomGraphs() {
+        Random random = new Random(24);
+        for (int round = 0; round < 20; round++) {
+            WeightedGraph graph = new WeightedGraph();
+            int n = 5 + random.nextInt(40);
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++)
+                names[i] = "v" + i;
+            graph.addNodes(names);
+            // sparse enough to leave many pairs unreachable
+            int edges = random.nextInt(n * 2);
+            for (int i = 0; i < edges; i++)
+                graph.addWeightedEdge(names[random.nextInt(n)], names[random.nextInt(n)], 1 + random.nextInt(9));
+
+            // compare with full searches, which do not use the index
+            boolean[][] reaches = new boolean[n][n];
+            for (int i = 0; i < n; i++) {
+                ShortestPathTree tree = graph.shortestPathTree(names[i]);
+                for (int j = 0; j < n; j++)
+                    reaches[i][j] = tree.distanceTo(names[j]) != -1;
+            }
+            ReachabilityIndex index = graph.reachabilityIndex();
+            int components = 0;
+            for (int i = 0; i < n; i++) {
+                boolean first = true;
+                for (int j = 0; j < n; j++) {
+                    Assert.assertEquals(reaches[i][j], graph.isReachable(names[i], names[j]));
+                    Assert.assertEquals(reaches[i][j] && reaches[j][i], index.stronglyConnected(names[i], names[j]));
+                    Assert.assertEquals(reaches[i][j], graph.freeze().shortestPath(names[i], names[j]).length > 0);
+                    if (j < i && reaches[i][j] && reaches[j][i])
+                        first = false;
+                }
+                if (first)
+                    components++;
+            }
+            Assert.assertEquals(components, index.componentCount());
+        }
+    }
+}
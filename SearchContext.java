@@ -0,0 +1,204 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Per-query traversal state for searches over a graph snapshot
+ * *Vertices are marked with generation stamps, so starting a new search is O(1)
+ * instead of clearing every vertex
+ * *A context is used by one search at a time; contexts are pooled so concurrent
+ * searches each get their own arrays without allocating them every query
+ *
+ * @author <i>Charlie Lin</i>
+ */
+class SearchContext {
+    /** stamp of each vertex, compared against the current generation */
+    private final int[] mark;
+
+    /** stamp for vertices reached in the current search (settled is generation + 1) */
+    private int generation;
+
+    /** parent of each reached vertex in the current search (-1 at the start node) */
+    final int[] parent;
+
+    /** general purpose vertex queue or stack */
+    final int[] queue;
+
+    /** second vertex queue or per-depth cursor, allocated on first use */
+    private int[] secondQueue;
+
+    /** cost of each reached vertex, allocated on first use */
+    private long[] cost;
+
+    /** heap of reached but unsettled vertices, allocated on first use */
+    private IndexedMinHeap heap;
+
+    /**
+     * Creates a context for a graph with the given number of vertices
+     *
+     * @param capacity the number of vertices
+     */
+    SearchContext(int capacity) {
+        mark = new int[capacity];
+        parent = new int[capacity];
+        queue = new int[capacity];
+        generation = 0;
+    }
+
+    /**
+     * Starts a new search, forgetting every vertex reached by the last one
+     */
+    void begin() {
+        generation += 2;
+        // stamps wrap around after about a billion searches
+        if (generation < 0) {
+            Arrays.fill(mark, 0);
+            generation = 2;
+        }
+        if (heap != null)
+            heap.clear();
+    }
+
+    /**
+     * @param vertex a vertex id
+     * @return true if the vertex was reached or settled in the current search
+     */
+    boolean isReached(int vertex) {
+        return mark[vertex] - generation >= 0;
+    }
+
+    /**
+     * @param vertex a vertex id
+     * @return true if the vertex was settled in the current search
+     */
+    boolean isSettled(int vertex) {
+        return mark[vertex] == generation + 1;
+    }
+
+    /**
+     * Marks a vertex as reached with the given parent
+     *
+     * @param vertex     a vertex id
+     * @param parentId   the vertex it was reached from (-1 at the start node)
+     */
+    void reach(int vertex, int parentId) {
+        mark[vertex] = generation;
+        parent[vertex] = parentId;
+    }
+
+    /**
+     * Marks a vertex as reached with the given parent and cost
+     *
+     * @param vertex   a vertex id
+     * @param parentId the vertex it was reached from (-1 at the start node)
+     * @param newCost  the cost of reaching the vertex
+     */
+    void reach(int vertex, int parentId, long newCost) {
+        mark[vertex] = generation;
+        parent[vertex] = parentId;
+        cost()[vertex] = newCost;
+    }
+
+    /**
+     * Marks a reached vertex as settled
+     *
+     * @param vertex a vertex id
+     */
+    void settle(int vertex) {
+        mark[vertex] = generation + 1;
+    }
+
+    /**
+     * @param vertex a vertex id
+     * @return the cost of the vertex in the current search (Long.MAX_VALUE if not
+     *         reached)
+     */
+    long costOf(int vertex) {
+        return isReached(vertex) ? cost[vertex] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the cost array, indexed by vertex id
+     */
+    long[] cost() {
+        if (cost == null)
+            cost = new long[mark.length];
+        return cost;
+    }
+
+    /**
+     * @return the second queue array, indexed by position
+     */
+    int[] secondQueue() {
+        if (secondQueue == null)
+            secondQueue = new int[mark.length];
+        return secondQueue;
+    }
+
+    /**
+     * @return the heap of unsettled vertices
+     */
+    IndexedMinHeap heap() {
+        if (heap == null)
+            heap = new IndexedMinHeap(mark.length);
+        return heap;
+    }
+
+    /**
+     * Walks parent pointers back from a reached vertex
+     *
+     * @param target the last vertex of the path
+     * @return vertex ids along the path, start node first
+     */
+    int[] pathTo(int target) {
+        int length = 0;
+        for (int trav = target; trav != -1; trav = parent[trav])
+            length++;
+        int[] path = new int[length];
+        for (int trav = target; trav != -1; trav = parent[trav])
+            path[--length] = trav;
+        return path;
+    }
+
+    /**
+     * Thread-safe pool of search contexts for one graph snapshot
+     */
+    static class Pool {
+        /** the number of vertices in the snapshot */
+        private final int capacity;
+
+        /** contexts ready for reuse */
+        private final ConcurrentLinkedQueue<SearchContext> idle;
+
+        /**
+         * Creates an empty pool
+         *
+         * @param capacity the number of vertices in the snapshot
+         */
+        Pool(int capacity) {
+            this.capacity = capacity;
+            idle = new ConcurrentLinkedQueue<SearchContext>();
+        }
+
+        /**
+         * Takes a context from the pool (or creates one) and starts a new search
+         *
+         * @return a context owned by the caller until it is released
+         */
+        SearchContext acquire() {
+            SearchContext context = idle.poll();
+            if (context == null)
+                context = new SearchContext(capacity);
+            context.begin();
+            return context;
+        }
+
+        /**
+         * Returns a context to the pool
+         *
+         * @param context a context obtained from acquire
+         */
+        void release(SearchContext context) {
+            idle.offer(context);
+        }
+    }
+}
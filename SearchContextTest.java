@@ -0,0 +1,44 @@
+import org.junit.Assert;
+import org.junit.Test;
+import java.util.Arrays;
+
+public class SearchContextTest {
+    SearchContext context = new SearchContext(5);
+
+    @Test
+    public void testGenerations() {
+        context.begin();
+        context.reach(0, -1, 0);
+        context.reach(3, 0, 7);
+        context.settle(0);
+        Assert.assertEquals(true, context.isReached(0));
+        Assert.assertEquals(true, context.isSettled(0));
+        Assert.assertEquals(true, context.isReached(3));
+        Assert.assertEquals(false, context.isSettled(3));
+        Assert.assertEquals(false, context.isReached(1));
+        Assert.assertEquals(7, context.costOf(3));
+        Assert.assertEquals("[0, 3]", Arrays.toString(context.pathTo(3)));
+
+        // a new search forgets everything without clearing the arrays
+        context.begin();
+        Assert.assertEquals(false, context.isReached(0));
+        Assert.assertEquals(false, context.isReached(3));
+        Assert.assertEquals(Long.MAX_VALUE, context.costOf(3));
+    }
+
+    @Test
+    public void testPool() {
+        SearchContext.Pool pool = new SearchContext.Pool(5);
+        SearchContext first = pool.acquire();
+        SearchContext second = pool.acquire();
+        // contexts in use are never shared
+        Assert.assertTrue(first != second);
+        first.reach(2, -1);
+
+        // released contexts are reused with a fresh generation
+        pool.release(first);
+        SearchContext third = pool.acquire();
+        Assert.assertTrue(third == first);
+        Assert.assertEquals(false, third.isReached(2));
+    }
+}
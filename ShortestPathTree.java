@@ -0,0 +1,128 @@
+/**
+ * Shortest paths from one start node to every node of a weighted graph snapshot
+ * *Holds the cost of reaching each vertex and the vertex before it on its
+ * shortest path, so any path from the start node is a walk up the parent array
+ * *Parents are the ones Dijkstra's Algorithm settles with, so paths match the ones
+ * shortestPath returns
+ *
+ * @author <i>Charlie Lin</i>
+ */
+public class ShortestPathTree {
+    /** the snapshot the tree was grown in */
+    private final CompactWeightedGraph graph;
+
+    /** the start node */
+    private final int source;
+
+    /** cost of reaching each vertex (Long.MAX_VALUE if unreachable) */
+    private final long[] costs;
+
+    /** vertex before each vertex on its shortest path (-1 at the start node and for unreachable vertices) */
+    private final int[] parents;
+
+    /**
+     * Grows the tree of a start node
+     *
+     * @param graph  the snapshot to search
+     * @param source the start node
+     */
+    ShortestPathTree(CompactWeightedGraph graph, int source) {
+        this.graph = graph;
+        this.source = source;
+        costs = new long[graph.vertexCount()];
+        parents = new int[graph.vertexCount()];
+        graph.searchAll(source, false, costs, parents);
+    }
+
+    /**
+     * Wraps costs and parents found by another search
+     *
+     * @param graph   the snapshot that was searched
+     * @param source  the start node
+     * @param costs   cost of reaching each vertex (Long.MAX_VALUE if unreachable)
+     * @param parents vertex before each vertex on its shortest path (-1 if none)
+     */
+    ShortestPathTree(CompactWeightedGraph graph, int source, long[] costs, int[] parents) {
+        this.graph = graph;
+        this.source = source;
+        this.costs = costs;
+        this.parents = parents;
+    }
+
+    /**
+     * @return the snapshot the tree was grown in
+     */
+    CompactWeightedGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Repairs a copy of the tree after one edge was reweighted, searching only the
+     * vertices whose costs can change; this tree is left as it is
+     *
+     * @param updated   the snapshot with the new weight, sharing vertex ids with
+     *                  the tree's snapshot
+     * @param from      start of the reweighted edge
+     * @param to        end of the reweighted edge
+     * @param oldWeight weight of the edge before the change
+     * @return the tree of the same start node in the updated snapshot
+     */
+    ShortestPathTree reweighted(CompactWeightedGraph updated, String from, String to, int oldWeight) {
+        long[] newCosts = costs.clone();
+        int[] newParents = parents.clone();
+        updated.repairTree(source, newCosts, newParents, updated.id(from), updated.id(to), oldWeight);
+        return new ShortestPathTree(updated, source, newCosts, newParents);
+    }
+
+    /**
+     * @return the start node of every path in the tree
+     */
+    public String getSource() {
+        return graph.name(source);
+    }
+
+    /**
+     * @param to end node
+     * @return the cost of the shortest path to the node (-1 if no path exists or
+     *         invalid argument)
+     */
+    public long distanceTo(String to) {
+        int target = graph.id(to);
+        if (target == -1 || costs[target] == Long.MAX_VALUE)
+            return -1;
+        return costs[target];
+    }
+
+    /**
+     * @param node a node
+     * @return the node before it on its shortest path (null for the start node,
+     *         unreachable nodes and invalid arguments)
+     */
+    public String getParent(String node) {
+        int vertex = graph.id(node);
+        if (vertex == -1 || parents[vertex] == -1)
+            return null;
+        return graph.name(parents[vertex]);
+    }
+
+    /**
+     * Walks the parent array back from a node, in time proportional to the length
+     * of the path
+     *
+     * @param to end node
+     * @return String array representing the shortest path from the start node
+     *         (empty array if no path exists or invalid argument)
+     */
+    public String[] pathTo(String to) {
+        int target = graph.id(to);
+        if (target == -1 || costs[target] == Long.MAX_VALUE)
+            return new String[0];
+        int length = 0;
+        for (int trav = target; trav != -1; trav = parents[trav])
+            length++;
+        String[] pathArr = new String[length];
+        for (int trav = target; trav != -1; trav = parents[trav])
+            pathArr[--length] = graph.name(trav);
+        return pathArr;
+    }
+}
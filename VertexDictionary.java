@@ -0,0 +1,448 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dictionary numbering vertex names 0..n-1 in the order they are added
+ * *Names are stored as UTF-8 bytes back to back in an arena, and an
+ * open-addressing table of longs maps them to ids, so a name costs its bytes
+ * plus 20 to 36 bytes of index instead of a String, a boxed id and a hash map
+ * node; Strings are only decoded when a name is asked for
+ * *The arena is split into segments of at most SEGMENT_BYTES, each holding whole
+ * names, so the names together may take more than the 2 GB one array can hold;
+ * at most MAX_NAMES names fit, each at most MAX_NAME_BYTES long
+ * *Each slot of the table holds the hash of a name in its high half and the id
+ * + 1 in its low half (0 if empty), so probes compare bytes only when the hashes
+ * match
+ * *Lookups by String encode its chars on the fly while hashing and comparing, so
+ * they allocate nothing
+ *
+ * @author <i>Charlie Lin</i>
+ */
+class VertexDictionary {
+    /** most bytes in one arena segment, unless a single longer name needs more */
+    static final int SEGMENT_BYTES = 1 << 30;
+
+    /** most bytes in one name, the longest array the JVM allows */
+    static final int MAX_NAME_BYTES = Integer.MAX_VALUE - 8;
+
+    /** most names, filling the largest table to 7/8 */
+    static final int MAX_NAMES = (1 << 30) - (1 << 27);
+
+    /** largest slot table, the largest power of two an array can hold */
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+
+    /** hash and id + 1 of each entry (0 if empty), length is a power of two */
+    private long[] slots;
+
+    /**
+     * start of each name's bytes in its segment, followed by the end of the last
+     * one
+     */
+    private int[] starts;
+
+    /** name bytes of every entry, back to back within each segment */
+    private byte[][] segments;
+
+    /** id of the first name in each segment */
+    private int[] segmentIds;
+
+    /** end of the last name in each segment but the last */
+    private int[] segmentEnds;
+
+    /** number of segments in use */
+    private int segmentCount;
+
+    /** most bytes in one segment of this dictionary */
+    private final int segmentBytes;
+
+    /** number of names */
+    private int size;
+
+    /**
+     * Creates an empty dictionary, guessing 8 bytes per name
+     *
+     * @param capacity the number of names to make room for
+     */
+    VertexDictionary(int capacity) {
+        this(capacity, 8L * Math.max(capacity, 8));
+    }
+
+    /**
+     * Creates an empty dictionary
+     *
+     * @param capacity  the number of names to make room for
+     * @param nameBytes the number of UTF-8 bytes in those names
+     */
+    VertexDictionary(int capacity, long nameBytes) {
+        this(capacity, nameBytes, SEGMENT_BYTES);
+    }
+
+    /**
+     * Creates an empty dictionary with segments of a given size
+     *
+     * @param capacity     the number of names to make room for
+     * @param nameBytes    the number of UTF-8 bytes in those names
+     * @param segmentBytes most bytes in one segment
+     */
+    VertexDictionary(int capacity, long nameBytes, int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+        slots = new long[tableSize(capacity)];
+        starts = new int[Math.min(Math.max(capacity, 8), MAX_NAMES) + 1];
+        segments = new byte[][] {new byte[segmentSize(nameBytes, segmentBytes)]};
+        segmentIds = new int[1];
+        segmentEnds = new int[1];
+        segmentCount = 1;
+    }
+
+    /**
+     * Creates a dictionary holding distinct names, each numbered by its position
+     *
+     * @param names the names in id order
+     * @throws IllegalArgumentException a name appears twice
+     */
+    VertexDictionary(String[] names) {
+        this(names.length, byteCount(names));
+        for (int i = 0; i < names.length; i++) {
+            if (add(names[i]) != i)
+                throw new IllegalArgumentException("duplicate name " + names[i]);
+        }
+    }
+
+    /**
+     * @return the number of names
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param capacity the number of names to make room for
+     * @return the number of slots that keeps them at most half full, as far as
+     *         the largest table allows
+     */
+    static int tableSize(int capacity) {
+        int tableSize = 16;
+        while (tableSize < capacity * 2L && tableSize < MAX_TABLE_SIZE)
+            tableSize *= 2;
+        return tableSize;
+    }
+
+    /**
+     * @param nameBytes    the number of UTF-8 bytes expected
+     * @param segmentBytes most bytes in one segment
+     * @return the length of a first segment for them, at most segmentBytes
+     */
+    static int segmentSize(long nameBytes, int segmentBytes) {
+        return (int) Math.min(Math.max(nameBytes, 64), segmentBytes);
+    }
+
+    /**
+     * @param names some names
+     * @return the number of UTF-8 bytes they encode to together
+     */
+    private static long byteCount(String[] names) {
+        long count = 0;
+        for (String name : names) {
+            for (int i = 0; i < name.length(); i++) {
+                if (name.charAt(i) < 0x80) {
+                    count++;
+                    continue;
+                }
+                int bytes = (int) (encode(name, i) >>> 32);
+                count += bytes;
+                if (bytes == 4)
+                    i++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param name a name
+     * @return the id of the name (-1 if it is not in the dictionary or null)
+     */
+    int id(String name) {
+        if (name == null)
+            return -1;
+        // hash the UTF-8 bytes the name would encode to, without encoding it
+        int hash = 1;
+        int length = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < 0x80) {
+                hash = 31 * hash + c;
+                length++;
+                continue;
+            }
+            long encoded = encode(name, i);
+            int count = (int) (encoded >>> 32);
+            for (int k = 0; k < count; k++)
+                hash = 31 * hash + (byte) (encoded >>> (8 * k));
+            length += count;
+            if (count == 4)
+                i++;
+        }
+        int mask = slots.length - 1;
+        for (int s = slotOf(hash, mask);; s = (s + 1) & mask) {
+            long slot = slots[s];
+            if (slot == 0)
+                return -1;
+            int entry = (int) slot - 1;
+            if ((int) (slot >>> 32) == hash && matches(entry, name, length))
+                return entry;
+        }
+    }
+
+    /**
+     * Encodes one char of a String, or the surrogate pair starting at it, the way
+     * String.getBytes does with UTF-8, including its '?' for an unpaired surrogate
+     *
+     * @param name  the String
+     * @param index position of a char that is not ASCII
+     * @return the bytes, first byte lowest, with their count (4 for a surrogate
+     *         pair, which uses two chars) above bit 32
+     */
+    private static long encode(String name, int index) {
+        char c = name.charAt(index);
+        if (c < 0x800)
+            return 2L << 32 | (0x80 | (c & 0x3F)) << 8 | (0xC0 | c >> 6);
+        if (!Character.isSurrogate(c))
+            return 3L << 32 | (0x80 | (c & 0x3F)) << 16 | (0x80 | (c >> 6 & 0x3F)) << 8 | (0xE0 | c >> 12);
+        if (Character.isHighSurrogate(c) && index + 1 < name.length()
+                && Character.isLowSurrogate(name.charAt(index + 1))) {
+            int point = Character.toCodePoint(c, name.charAt(index + 1));
+            return 4L << 32 | (long) (0x80 | (point & 0x3F)) << 24 | (0x80 | (point >> 6 & 0x3F)) << 16
+                    | (0x80 | (point >> 12 & 0x3F)) << 8 | (0xF0 | point >> 18);
+        }
+        return 1L << 32 | '?';
+    }
+
+    /**
+     * Returns the id of a name, adding it if it is new
+     *
+     * @param name a name
+     * @return the id of the name, numbered from 0 in order of first appearance
+     */
+    int add(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return add(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Returns the id of a UTF-8 encoded name held in a buffer, adding it if it is
+     * new, without decoding it
+     *
+     * @param buffer the buffer holding the name
+     * @param start  start of the name in the buffer
+     * @param length length of the name in bytes
+     * @return the id of the name, numbered from 0 in order of first appearance
+     */
+    int add(ByteBuffer buffer, int start, int length) {
+        int hash = 1;
+        for (int i = start; i < start + length; i++)
+            hash = 31 * hash + buffer.get(i);
+        int mask = slots.length - 1;
+        for (int s = slotOf(hash, mask);; s = (s + 1) & mask) {
+            long slot = slots[s];
+            if (slot == 0)
+                return insert(s, hash, buffer, start, length);
+            // only compare bytes when the hashes match
+            int entry = (int) slot - 1;
+            if ((int) (slot >>> 32) == hash && matches(entry, buffer, start, length))
+                return entry;
+        }
+    }
+
+    /**
+     * @param id the id of a name
+     * @return the decoded name
+     */
+    String name(int id) {
+        int segment = segmentOf(id);
+        return new String(segments[segment], starts[id], end(id, segment) - starts[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param id the id of a name
+     * @return the segment holding the name
+     */
+    private int segmentOf(int id) {
+        // segments are few, and usually there is only one
+        int low = 0;
+        int high = segmentCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (segmentIds[mid] <= id)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    /**
+     * @param id      the id of a name
+     * @param segment the segment holding the name
+     * @return the end of the name's bytes in its segment
+     */
+    private int end(int id, int segment) {
+        if (segment + 1 < segmentCount && segmentIds[segment + 1] == id + 1)
+            return segmentEnds[segment];
+        return starts[id + 1];
+    }
+
+    /**
+     * @return every name decoded, indexed by id
+     */
+    String[] names() {
+        String[] names = new String[size];
+        for (int i = 0; i < size; i++)
+            names[i] = name(i);
+        return names;
+    }
+
+    /**
+     * Shrinks the arrays to the names they hold, once no more names will be added
+     */
+    void trim() {
+        starts = Arrays.copyOf(starts, size + 1);
+        segmentEnds[segmentCount - 1] = starts[size];
+        for (int k = 0; k < segmentCount; k++) {
+            if (segments[k].length != segmentEnds[k])
+                segments[k] = Arrays.copyOf(segments[k], segmentEnds[k]);
+        }
+        segments = Arrays.copyOf(segments, segmentCount);
+        segmentIds = Arrays.copyOf(segmentIds, segmentCount);
+        segmentEnds = Arrays.copyOf(segmentEnds, segmentCount);
+    }
+
+    /**
+     * @param entry  an id
+     * @param name   a name
+     * @param length length of the name in UTF-8 bytes
+     * @return true if the entry holds the name's bytes
+     */
+    private boolean matches(int entry, String name, int length) {
+        int segment = segmentOf(entry);
+        int from = starts[entry];
+        if (end(entry, segment) - from != length)
+            return false;
+        byte[] arena = segments[segment];
+        int position = from;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < 0x80) {
+                if (arena[position++] != c)
+                    return false;
+                continue;
+            }
+            long encoded = encode(name, i);
+            int count = (int) (encoded >>> 32);
+            for (int k = 0; k < count; k++) {
+                if (arena[position++] != (byte) (encoded >>> (8 * k)))
+                    return false;
+            }
+            if (count == 4)
+                i++;
+        }
+        return true;
+    }
+
+    /**
+     * @param entry  an id
+     * @param buffer the buffer holding a name
+     * @param start  start of the name in the buffer
+     * @param length length of the name in bytes
+     * @return true if the entry holds the same bytes
+     */
+    private boolean matches(int entry, ByteBuffer buffer, int start, int length) {
+        int segment = segmentOf(entry);
+        int from = starts[entry];
+        if (end(entry, segment) - from != length)
+            return false;
+        byte[] arena = segments[segment];
+        for (int i = 0; i < length; i++) {
+            if (arena[from + i] != buffer.get(start + i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds a new entry in an empty slot
+     *
+     * @param slot   the empty slot for the name
+     * @param hash   the hash of the name
+     * @param buffer the buffer holding the name
+     * @param start  start of the name in the buffer
+     * @param length length of the name in bytes
+     * @return the id of the new entry
+     * @throws IllegalStateException the dictionary already holds MAX_NAMES names
+     * @throws IllegalArgumentException the name is longer than MAX_NAME_BYTES
+     */
+    private int insert(int slot, int hash, ByteBuffer buffer, int start, int length) {
+        if (size == MAX_NAMES)
+            throw new IllegalStateException("more than " + MAX_NAMES + " vertex names");
+        if (length > MAX_NAME_BYTES)
+            throw new IllegalArgumentException("vertex name longer than " + MAX_NAME_BYTES + " bytes");
+        if (size + 1 == starts.length)
+            starts = Arrays.copyOf(starts, (int) Math.min(starts.length * 2L, MAX_NAMES + 1L));
+        int fill = starts[size];
+        if ((long) fill + length > segmentBytes && fill > 0) {
+            // names never straddle segments, so start a new one
+            if (segmentCount == segments.length) {
+                segments = Arrays.copyOf(segments, segmentCount * 2);
+                segmentIds = Arrays.copyOf(segmentIds, segmentCount * 2);
+                segmentEnds = Arrays.copyOf(segmentEnds, segmentCount * 2);
+            }
+            segmentEnds[segmentCount - 1] = fill;
+            segments[segmentCount] = new byte[segmentSize(length, segmentBytes)];
+            segmentIds[segmentCount++] = size;
+            fill = 0;
+            starts[size] = 0;
+        }
+        byte[] arena = segments[segmentCount - 1];
+        if (fill + length > arena.length) {
+            long limit = Math.max(segmentBytes, fill + length);
+            arena = Arrays.copyOf(arena, (int) Math.min(Math.max(arena.length * 2L, fill + length), limit));
+            segments[segmentCount - 1] = arena;
+        }
+        buffer.get(start, arena, fill, length);
+        starts[size + 1] = fill + length;
+        slots[slot] = (long) hash << 32 | ++size;
+        // keep the table at most half full, or 7/8 full once it cannot grow
+        if (size * 2L > slots.length && slots.length < MAX_TABLE_SIZE)
+            rehash();
+        return size - 1;
+    }
+
+    /**
+     * Spreads a hash so names with similar bytes land far apart
+     *
+     * @param hash the hash of a name
+     * @param mask the slot count minus one
+     * @return the first slot to probe
+     */
+    private static int slotOf(int hash, int mask) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Doubles the slot array and reinserts every entry
+     */
+    private void rehash() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        int mask = slots.length - 1;
+        for (long slot : old) {
+            if (slot == 0)
+                continue;
+            int s = slotOf((int) (slot >>> 32), mask);
+            while (slots[s] != 0)
+                s = (s + 1) & mask;
+            slots[s] = slot;
+        }
+    }
+}
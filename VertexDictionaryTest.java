@@ -0,0 +1,112 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VertexDictionaryTest {
+    @Test
+    public void testAddAndLookUp() {
+        VertexDictionary dictionary = new VertexDictionary(0);
+        Assert.assertEquals(0, dictionary.add("Warsaw"));
+        Assert.assertEquals(1, dictionary.add("Krak\u00f3w"));
+        Assert.assertEquals(2, dictionary.add(""));
+        Assert.assertEquals(0, dictionary.add("Warsaw"));
+        Assert.assertEquals(3, dictionary.size());
+        Assert.assertEquals(1, dictionary.id("Krak\u00f3w"));
+        Assert.assertEquals(2, dictionary.id(""));
+        Assert.assertEquals(-1, dictionary.id("Krakow"));
+        Assert.assertEquals(-1, dictionary.id(null));
+        Assert.assertEquals("Krak\u00f3w", dictionary.name(1));
+        Assert.assertArrayEquals(new String[] {"Warsaw", "Krak\u00f3w", ""}, dictionary.names());
+
+        // names in a buffer are matched by their bytes
+        byte[] bytes = "xxKrak\u00f3wxx".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(1, dictionary.add(ByteBuffer.wrap(bytes), 2, bytes.length - 4));
+        Assert.assertEquals(3, dictionary.add(ByteBuffer.wrap(bytes), 0, 2));
+        Assert.assertEquals("xx", dictionary.name(3));
+    }
+
+    @Test
+    public void testEncodings() {
+        // one, two, three and four byte characters, and an unpaired surrogate
+        String[] names = {"A", "Krak\u00f3w", "\u6771\u4eac", "\ud83d\ude00 map", "bad \ud83d", "end \ude00"};
+        VertexDictionary dictionary = new VertexDictionary(names);
+        for (int i = 0; i < names.length; i++) {
+            Assert.assertEquals(i, dictionary.id(names[i]));
+            // lookups hash the same bytes add stores
+            byte[] bytes = names[i].getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(i, dictionary.add(ByteBuffer.wrap(bytes), 0, bytes.length));
+        }
+        Assert.assertEquals(-1, dictionary.id("\u6771"));
+        Assert.assertEquals(-1, dictionary.id("\ud83d\ude01 map"));
+        // an unpaired surrogate encodes to '?', as String.getBytes does
+        Assert.assertEquals(4, dictionary.id("bad ?"));
+        Assert.assertEquals(5, dictionary.id("end ?"));
+    }
+
+    @Test
+    public void testManyNames() {
+        VertexDictionary dictionary = new VertexDictionary(4);
+        for (int i = 0; i < 100000; i++)
+            Assert.assertEquals(i, dictionary.add("v" + i));
+        dictionary.trim();
+        for (int i = 0; i < 100000; i += 7) {
+            Assert.assertEquals(i, dictionary.id("v" + i));
+            Assert.assertEquals("v" + i, dictionary.name(i));
+        }
+        Assert.assertEquals(-1, dictionary.id("v100000"));
+        // names can still be added after trimming
+        Assert.assertEquals(100000, dictionary.add("w"));
+        Assert.assertEquals("w", dictionary.name(100000));
+    }
+
+    @Test
+    public void testFromNames() {
+        String[] names = {"A", "B", "C\u00e9"};
+        VertexDictionary dictionary = new VertexDictionary(names);
+        Assert.assertArrayEquals(names, dictionary.names());
+        try {
+            new VertexDictionary(new String[] {"A", "B", "A"});
+            Assert.assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            // ids must match positions
+        }
+    }
+
+    @Test
+    public void testSizes() {
+        // 300M names guess 2.4 GB of bytes, more than an int can count
+        Assert.assertEquals(VertexDictionary.SEGMENT_BYTES,
+                VertexDictionary.segmentSize(8L * 300000000, VertexDictionary.SEGMENT_BYTES));
+        Assert.assertEquals(64, VertexDictionary.segmentSize(0, VertexDictionary.SEGMENT_BYTES));
+        Assert.assertEquals(1000, VertexDictionary.segmentSize(1000, VertexDictionary.SEGMENT_BYTES));
+        Assert.assertEquals(16, VertexDictionary.tableSize(0));
+        Assert.assertEquals(1 << 21, VertexDictionary.tableSize(1000000));
+        Assert.assertEquals(1 << 30, VertexDictionary.tableSize(300000000));
+        Assert.assertEquals(1 << 30, VertexDictionary.tableSize(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testSegments() {
+        // tiny segments stand in for the 1 GB ones
+        VertexDictionary dictionary = new VertexDictionary(0, 0, 16);
+        String[] names = new String[200];
+        for (int i = 0; i < names.length; i++) {
+            // some names are longer than a whole segment
+            names[i] = i % 17 == 0 ? "a long name " + i + " past the end" : "v" + i + "\u00e9";
+            Assert.assertEquals(i, dictionary.add(names[i]));
+        }
+        Assert.assertEquals(0, dictionary.add(names[0]));
+        for (int i = 0; i < names.length; i++) {
+            Assert.assertEquals(i, dictionary.id(names[i]));
+            Assert.assertEquals(names[i], dictionary.name(i));
+        }
+        dictionary.trim();
+        Assert.assertArrayEquals(names, dictionary.names());
+        Assert.assertEquals(200, dictionary.add(""));
+        Assert.assertEquals(201, dictionary.add("after trimming"));
+        Assert.assertEquals(200, dictionary.id(""));
+        Assert.assertEquals("after trimming", dictionary.name(201));
+        Assert.assertEquals(names[199], dictionary.name(199));
+    }
+}
@@ -1,22 +1,50 @@
-import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Scanner;
-import java.util.Stack;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Weighted and directional graph implementation
+ * *Searches run on an immutable snapshot of the graph, so any number of threads
+ * can query one graph while another thread modifies it
  * 
  * @author <i>Charlie Lin</i>
  */
 public class WeightedGraph {
 
-    private HashMap<String, Vertex> adjList;
+    /**
+     * adjacency list keyed by vertex name, in the order vertices were added (null
+     * until first needed when the graph was loaded from a binary file)
+     */
+    private LinkedHashMap<String, Vertex> adjList;
+
+    /** latitude and longitude in degrees of nodes that have coordinates */
+    private final HashMap<String, double[]> coordinates = new HashMap<String, double[]>();
+
+    /** CSR snapshot used by searches (null if the graph changed since the last freeze) */
+    private volatile CompactWeightedGraph snapshot;
 
-    private LinkedList<String> vertices;
+    /** most shortest-path trees the cache keeps (guarded by trees) */
+    private int treeCacheCapacity = 16;
+
+    /** shortest-path trees keyed by start node, least recently used first */
+    private final LinkedHashMap<String, ShortestPathTree> trees = new LinkedHashMap<String, ShortestPathTree>(16,
+            0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ShortestPathTree> eldest) {
+            return size() > treeCacheCapacity;
+        }
+    };
 
     /**
      * Vertex representation for a graph
@@ -25,17 +53,11 @@ public class WeightedGraph {
         /** the name of this vertex */
         private String name;
 
-        /** all edges originating from this vertex */
-        private LinkedList<Edge> edges;
-
-        /** the parent of this vertex in graph traversal */
-        private Vertex parent;
+        /** all edges originating from this vertex, keyed by end vertex */
+        private LinkedHashMap<Vertex, Edge> edges;
 
-        /** true if the vertex has been encountered in graph traversal */
-        private boolean visited;
-
-        /** total cost of traversal to this node in graph traversal */
-        private int cost;
+        /** all edges pointing at this vertex, keyed by start vertex */
+        private LinkedHashMap<Vertex, Edge> incoming;
 
         /**
          * Constructor for vertex with specified name
@@ -44,10 +66,8 @@ public class WeightedGraph {
          */
         public Vertex(String name) {
             this.name = name;
-            edges = new LinkedList<Edge>();
-            parent = null;
-            visited = false;
-            cost = Integer.MAX_VALUE;
+            edges = new LinkedHashMap<Vertex, Edge>();
+            incoming = new LinkedHashMap<Vertex, Edge>();
         }
     }
 
@@ -77,17 +97,6 @@ public class WeightedGraph {
             this.weight = weight;
         }
 
-        /** used to compare edges and avoid redundant edges */
-        @Override
-        public boolean equals(Object o) {
-            if (o instanceof Edge) {
-                Edge compareEdge = (Edge) o;
-                if (start.name.equals(compareEdge.start.name) && end.name.equals(compareEdge.end.name))
-                    return true;
-            }
-            return false;
-        }
-
         /** used to sort edge lists by weight */
         @Override
         public int compareTo(WeightedGraph.Edge compareEdge) {
@@ -99,8 +108,54 @@ public class WeightedGraph {
      * Creates a new weighted graph
      */
     public WeightedGraph() {
-        adjList = new HashMap<String, Vertex>();
-        vertices = new LinkedList<String>();
+        adjList = new LinkedHashMap<String, Vertex>();
+    }
+
+    /**
+     * Creates a new weighted graph with room for the given number of nodes
+     * 
+     * @param expectedNodes the number of nodes the graph will hold
+     */
+    private WeightedGraph(long expectedNodes) {
+        adjList = new LinkedHashMap<String, Vertex>((int) Math.min(expectedNodes * 4 / 3 + 1, 1 << 30));
+    }
+
+    /**
+     * Creates a weighted graph backed by a snapshot, without building the adjacency
+     * list
+     * 
+     * @param snapshot the snapshot holding the graph
+     */
+    private WeightedGraph(CompactWeightedGraph snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Returns the adjacency list, building it from the snapshot first if the graph
+     * was loaded from a binary file
+     * 
+     * @return the adjacency list
+     */
+    private LinkedHashMap<String, Vertex> adjacency() {
+        if (adjList == null) {
+            CompactWeightedGraph current = snapshot;
+            Vertex[] vertices = new Vertex[current.vertexCount()];
+            adjList = new LinkedHashMap<String, Vertex>((int) Math.min(vertices.length * 4L / 3 + 1, 1 << 30));
+            for (int i = 0; i < vertices.length; i++) {
+                vertices[i] = new Vertex(current.name(i));
+                adjList.put(vertices[i].name, vertices[i]);
+            }
+            // edge slots keep the order the edges were added in
+            for (int i = 0; i < vertices.length; i++) {
+                for (int e = current.edgeStart(i); e < current.edgeStart(i + 1); e++) {
+                    Vertex end = vertices[current.target(e)];
+                    Edge edge = new Edge(vertices[i], end, current.weight(e));
+                    vertices[i].edges.put(end, edge);
+                    end.incoming.put(vertices[i], edge);
+                }
+            }
+        }
+        return adjList;
     }
 
     /**
@@ -109,18 +164,33 @@ public class WeightedGraph {
      * @param name the name of the node to be added
      * @return true if node is successfully added
      */
-    public boolean addNode(String name) {
+    public synchronized boolean addNode(String name) {
         if (name == null)
             return false;
         // check for duplicate, constant access with map
-        if (adjList.get(name) == null) {
+        if (adjacency().get(name) == null) {
             adjList.put(name, new Vertex(name));
-            vertices.add(name);
+            snapshot = null;
             return true;
         }
         return false;
     }
 
+    /**
+     * Private helper method for readWeighted to find a node, adding it if it is new
+     * 
+     * @param name the name of the node
+     * @return the vertex of the node
+     */
+    private Vertex vertexFor(String name) {
+        Vertex vertex = adjList.get(name);
+        if (vertex == null) {
+            vertex = new Vertex(name);
+            adjList.put(name, vertex);
+        }
+        return vertex;
+    }
+
     /**
      * Adds a list of nodes to the graph if the node does not already exist in the
      * graph
@@ -128,7 +198,7 @@ public class WeightedGraph {
      * @param names the list of names of the nodes to be added
      * @return true if at least one node is successfully added, false otherwise
      */
-    public boolean addNodes(String[] names) {
+    public synchronized boolean addNodes(String[] names) {
         if (names == null)
             return false;
         int dupCount = 0;
@@ -148,16 +218,33 @@ public class WeightedGraph {
      * @param weight cost of edge
      * @return true if edge is successfully added, false otherwise
      */
-    public boolean addWeightedEdge(String from, String to, int weight) {
+    public synchronized boolean addWeightedEdge(String from, String to, int weight) {
         // either from or to do not exist or weight is non positive integer or from
         // equals to
-        if (adjList.get(from) == null || adjList.get(to) == null || weight < 1 || from.equals(to))
+        if (adjacency().get(from) == null || adjList.get(to) == null)
             return false;
-        Edge newEdge = new Edge(adjList.get(from), adjList.get(to), weight);
+        return connect(adjList.get(from), adjList.get(to), weight);
+    }
+
+    /**
+     * Private helper method for addWeightedEdge and readWeighted to add an edge
+     * between two vertices
+     * 
+     * @param start  origin of the edge
+     * @param end    end point of the edge
+     * @param weight cost of the edge
+     * @return true if the edge is added, false if it exists, start equals end or
+     *         weight is not positive
+     */
+    private boolean connect(Vertex start, Vertex end, int weight) {
         // check if edge already exists
-        if (adjList.get(from).edges.contains(newEdge))
+        if (weight < 1 || start == end || start.edges.containsKey(end))
             return false;
-        adjList.get(from).edges.add(newEdge);
+        Edge newEdge = new Edge(start, end, weight);
+        start.edges.put(end, newEdge);
+        end.incoming.put(start, newEdge);
+        snapshot = null;
+        clearTrees();
         return true;
     }
 
@@ -170,9 +257,9 @@ public class WeightedGraph {
      * @param weightlist list of weights for end nodes
      * @return true if at least one edge is successfully added, false otherwise
      */
-    public boolean addWeightedEdges(String from, String[] tolist, int[] weightlist) {
+    public synchronized boolean addWeightedEdges(String from, String[] tolist, int[] weightlist) {
         // false if invalid from node or array lengths do not match
-        if (adjList.get(from) == null || tolist.length != weightlist.length)
+        if (adjacency().get(from) == null || tolist.length != weightlist.length)
             return false;
         int i = 0;
         int validEdgeCount = 0;
@@ -184,30 +271,71 @@ public class WeightedGraph {
         return validEdgeCount != 0;
     }
 
+    /**
+     * Changes the weight of an existing edge, such as after a traffic update
+     * *Cached shortest-path trees are repaired rather than dropped: only the
+     * vertices whose costs can change are searched again, and the current
+     * snapshot is reweighted instead of rebuilt
+     * 
+     * @param from      start node
+     * @param to        end node
+     * @param newWeight new cost of the edge
+     * @return true if the edge exists and the weight is positive, false otherwise
+     */
+    public synchronized boolean updateWeight(String from, String to, int newWeight) {
+        Vertex start = adjacency().get(from);
+        Vertex end = adjList.get(to);
+        if (start == null || end == null || newWeight < 1 || !start.edges.containsKey(end))
+            return false;
+        Edge edge = start.edges.get(end);
+        int oldWeight = edge.weight;
+        if (oldWeight == newWeight)
+            return true;
+        // the incoming map holds the same edge object
+        edge.weight = newWeight;
+        CompactWeightedGraph current = snapshot;
+        // reweighted copies of every snapshot a cached tree was grown in
+        IdentityHashMap<CompactWeightedGraph, CompactWeightedGraph> updated =
+                new IdentityHashMap<CompactWeightedGraph, CompactWeightedGraph>();
+        if (current != null) {
+            snapshot = current.withWeight(from, to, newWeight);
+            updated.put(current, snapshot);
+        }
+        synchronized (trees) {
+            // trees kept across addNode belong to older snapshots, which only lack
+            // the new isolated nodes
+            for (Map.Entry<String, ShortestPathTree> entry : trees.entrySet()) {
+                ShortestPathTree tree = entry.getValue();
+                CompactWeightedGraph graph = updated.computeIfAbsent(tree.graph(),
+                        old -> old.withWeight(from, to, newWeight));
+                entry.setValue(tree.reweighted(graph, from, to, oldWeight));
+            }
+        }
+        return true;
+    }
+
     /**
      * Removes a node from the Weighted Graph
+     * *Only the node's own incoming and outgoing edges are visited
      * 
      * @param name name of the node to be removed
      * @return true if node is successfully removed, false otherwise
      */
-    public boolean removeNode(String name) {
-        if (adjList.get(name) == null)
+    public synchronized boolean removeNode(String name) {
+        Vertex vertex = adjacency().get(name);
+        if (vertex == null)
             return false;
-        // remove edges pointing at node
-        for (String vertex : vertices) {
-            LinkedList<Edge> toBeRemoved = new LinkedList<Edge>();
-            for (Edge edge : adjList.get(vertex).edges) {
-                if (edge.end.name.equals(name))
-                    toBeRemoved.push(edge);
-            }
-            while (!toBeRemoved.isEmpty()) {
-                Edge edge = toBeRemoved.pop();
-                removeEdge(edge.start.name, edge.end.name, edge.weight);
-            }
-        }
+        // remove edges pointing at node from their start vertices
+        for (Vertex start : vertex.incoming.keySet())
+            start.edges.remove(vertex);
+        // remove edges leaving node from their end vertices
+        for (Vertex end : vertex.edges.keySet())
+            end.incoming.remove(vertex);
         // remove node
         adjList.remove(name);
-        vertices.remove(name);
+        coordinates.remove(name);
+        snapshot = null;
+        clearTrees();
         return true;
     }
 
@@ -217,7 +345,7 @@ public class WeightedGraph {
      * @param nodelist list of nodes to be removed
      * @return true if all nodes are removed, false otherwise
      */
-    public boolean removeNodes(String[] nodelist) {
+    public synchronized boolean removeNodes(String[] nodelist) {
         if (nodelist == null)
             return false;
         int removedCount = 0;
@@ -228,10 +356,120 @@ public class WeightedGraph {
         return removedCount == nodelist.length;
     }
 
+    /**
+     * Records the position of a node for the great-circle heuristic
+     * 
+     * @param name      the node
+     * @param latitude  latitude in degrees, from -90 to 90
+     * @param longitude longitude in degrees, from -180 to 180
+     * @return true if the coordinates are recorded, false if the node does not exist
+     *         or the coordinates are out of range
+     */
+    public synchronized boolean setCoordinates(String name, double latitude, double longitude) {
+        boolean exists = adjList != null ? adjList.containsKey(name) : snapshot.contains(name);
+        if (!exists || !(Math.abs(latitude) <= 90) || !(Math.abs(longitude) <= 180))
+            return false;
+        coordinates.put(name, new double[] {latitude, longitude});
+        return true;
+    }
+
+    /**
+     * Returns an A* heuristic using the great-circle distance between nodes
+     * *The heuristic is admissible when every edge weight is at least
+     * weightPerKilometer times the distance between its ends; nodes without
+     * coordinates are estimated at 0
+     * 
+     * @param weightPerKilometer edge weight per kilometer of distance
+     * @return a heuristic over the coordinates recorded so far
+     */
+    public synchronized Heuristic greatCircleHeuristic(double weightPerKilometer) {
+        return new GreatCircleHeuristic(coordinates, weightPerKilometer);
+    }
+
+    /**
+     * Returns an A* heuristic using the great-circle distance between nodes, for
+     * weights measured in kilometers
+     * 
+     * @return a heuristic over the coordinates recorded so far
+     */
+    public Heuristic greatCircleHeuristic() {
+        return greatCircleHeuristic(1);
+    }
+
+    /**
+     * Returns an ALT heuristic for A* search, built from distance tables to and
+     * from a set of landmark nodes
+     * *The estimates stay admissible until an edge weight is lowered or an edge is
+     * added; build or load a new index after such changes
+     * 
+     * @param count     the number of landmarks, e.g. 16 (at most the number of
+     *                  nodes)
+     * @param selection either "farthest" or "avoid" to specify how landmarks are
+     *                  chosen
+     * @return landmark tables for the current graph
+     * @throws IllegalArgumentException the count is below 1 or the selection is
+     *                                  unknown
+     */
+    public LandmarkIndex landmarkIndex(int count, String selection) {
+        return LandmarkIndex.build(freeze(), count, selection);
+    }
+
+    /**
+     * Reads landmark tables written by LandmarkIndex.save for use with this graph
+     * 
+     * @param filename the name of the file to read
+     * @return the landmark tables stored in the file
+     * @throws IOException file does not exist, is not a valid landmark file, or its
+     *                     distances are not lower bounds for the current graph
+     */
+    public LandmarkIndex loadLandmarks(String filename) throws IOException {
+        return LandmarkIndex.load(filename, freeze());
+    }
+
+    /**
+     * Checks whether a directed edge exists in constant time, or in time
+     * logarithmic in the start node's degree on a graph loaded from a binary file
+     * 
+     * @param from start node
+     * @param to   end node
+     * @return true if the edge exists, false otherwise (including when either node
+     *         does not exist)
+     */
+    public synchronized boolean hasEdge(String from, String to) {
+        // a loaded graph answers from its snapshot
+        if (adjList == null)
+            return snapshot.hasEdge(from, to);
+        Vertex start = adjList.get(from);
+        Vertex end = adjList.get(to);
+        return start != null && end != null && start.edges.containsKey(end);
+    }
+
+    /**
+     * Returns the weight of a directed edge in constant time, or in time
+     * logarithmic in the start node's degree on a graph loaded from a binary file
+     * 
+     * @param from start node
+     * @param to   end node
+     * @return the weight of the edge, or -1 if the edge or either node does not
+     *         exist
+     */
+    public synchronized int getWeight(String from, String to) {
+        // a loaded graph answers from its snapshot
+        if (adjList == null)
+            return snapshot.getWeight(from, to);
+        Vertex start = adjList.get(from);
+        Vertex end = adjList.get(to);
+        if (start == null || end == null)
+            return -1;
+        Edge edge = start.edges.get(end);
+        return edge == null ? -1 : edge.weight;
+    }
+
     /**
      * Prints a weighted graph with all nodes and neighbors in alphabetical order
      */
-    public void printWeightedGraph() {
+    public synchronized void printWeightedGraph() {
+        ArrayList<String> vertices = new ArrayList<String>(adjacency().keySet());
         Collections.sort(vertices);
         StringBuilder textGraph = new StringBuilder();
         Vertex curVertex;
@@ -239,8 +477,9 @@ public class WeightedGraph {
         for (String vertex : vertices) {
             curVertex = adjList.get(vertex);
             textGraph.append(vertex + " ");
-            Collections.sort(curVertex.edges);
-            for (Edge edge : curVertex.edges)
+            ArrayList<Edge> edges = new ArrayList<Edge>(curVertex.edges.values());
+            Collections.sort(edges);
+            for (Edge edge : edges)
                 textGraph.append(String.valueOf(edge.weight) + " " + edge.end.name + " ");
             textGraph.append("\n");
         }
@@ -249,43 +488,172 @@ public class WeightedGraph {
 
     /**
      * Constructs a weighted graph from a text file
+     * *The file is memory-mapped and split into tokens without Scanner; blank
+     * lines are skipped
      * 
      * @param filename the name of the file to be read
      * @return a weighted graph constructed from the text file
      * @throws FileNotFoundException file does not exist
      */
     public WeightedGraph readWeighted(String filename) throws FileNotFoundException {
-        Scanner scan = new Scanner(new File(filename));
-        WeightedGraph outGraph = new WeightedGraph();
-        while (scan.hasNextLine()) {
-            Scanner lineScan = new Scanner(scan.nextLine());
-            LinkedList<String> nameList = new LinkedList<String>();
-            LinkedList<Integer> weightList = new LinkedList<Integer>();
-            while (lineScan.hasNext()) {
-                nameList.add(lineScan.next());
-                if (lineScan.hasNext())
-                    // can throw InputMisMatchException if text file is improperly formatted
-                    weightList.add(lineScan.nextInt());
+        AdjacencyReader reader = new AdjacencyReader(filename);
+        // each node has its own line, so the line count presizes the map
+        WeightedGraph outGraph = new WeightedGraph(reader.lineCount());
+        // lines alternate names and weights: start weight end weight end ...
+        reader.forEachLine(line -> {
+            Vertex start = outGraph.vertexFor(line.name(0));
+            // a trailing weight without an end node leaves the line's edges out
+            boolean paired = line.count() % 2 == 1;
+            for (int i = 1; i < line.count(); i += 2) {
+                // can throw InputMismatchException if text file is improperly formatted
+                int weight = line.number(i);
+                if (i + 1 < line.count()) {
+                    Vertex end = outGraph.vertexFor(line.name(i + 1));
+                    if (paired)
+                        outGraph.connect(start, end, weight);
+                }
+            }
+        });
+        return outGraph;
+    }
+
+    /**
+     * Constructs a weighted graph from a text file, parsing the file in parallel
+     * *Chunks of whole lines are parsed on the common fork-join pool, then merged
+     * in file order, so the graph is the same one readWeighted returns
+     * 
+     * @param filename the name of the file to be read
+     * @return a weighted graph constructed from the text file
+     * @throws FileNotFoundException file does not exist
+     */
+    public WeightedGraph readWeightedParallel(String filename) throws FileNotFoundException {
+        List<AdjacencyReader.Chunk> chunks = new AdjacencyReader(filename).parseChunks(true);
+        long lines = 0;
+        for (AdjacencyReader.Chunk chunk : chunks)
+            lines += chunk.lineCount();
+        WeightedGraph outGraph = new WeightedGraph(lines);
+        for (AdjacencyReader.Chunk chunk : chunks) {
+            // the first bad weight in file order is the one readWeighted throws
+            chunk.rethrow();
+            Vertex[] vertices = new Vertex[chunk.names().length];
+            for (int line = 0; line < chunk.lineCount(); line++) {
+                int first = chunk.lineStart(line);
+                Vertex start = outGraph.vertexFor(chunk, first, vertices);
+                for (int t = first + 1; t < chunk.lineEnd(line); t++) {
+                    Vertex end = outGraph.vertexFor(chunk, t, vertices);
+                    if (chunk.isPaired(line))
+                        outGraph.connect(start, end, chunk.weight(t));
+                }
             }
-            lineScan.close();
-            // convert lists into arrays
-            String[] nameArr = new String[nameList.size() - 1];
-            int[] weightArr = new int[weightList.size()];
-            for (int i = 0; i < nameArr.length; i++)
-                nameArr[i] = nameList.get(i + 1);
-            for (int i = 0; i < weightList.size(); i++)
-                weightArr[i] = weightList.get(i);
-            outGraph.addNode(nameList.get(0));
-            outGraph.addNodes(nameArr);
-            if (nameArr.length == 0)
-                continue;
-            outGraph.addWeightedEdges(nameList.get(0), nameArr, weightArr);
         }
         return outGraph;
     }
 
+    /**
+     * Private helper method for readWeightedParallel to find the node of a token,
+     * looking each name up once per chunk
+     * 
+     * @param chunk    a parsed chunk
+     * @param token    the index of a token in the chunk
+     * @param vertices vertices found so far, indexed by the chunk's name ids
+     * @return the vertex of the token
+     */
+    private Vertex vertexFor(AdjacencyReader.Chunk chunk, int token, Vertex[] vertices) {
+        int id = chunk.token(token);
+        if (vertices[id] == null)
+            vertices[id] = vertexFor(chunk.names()[id]);
+        return vertices[id];
+    }
+
+    /**
+     * Writes the weighted graph to a binary file that loadWeighted reads back
+     * *The file holds the vertex names, the CSR arrays, the weights and a checksum,
+     * so loading it does not parse text or rebuild the adjacency list
+     * 
+     * @param filename the name of the file to write
+     * @throws IOException the file cannot be written
+     */
+    public void save(String filename) throws IOException {
+        freeze().save(filename);
+    }
+
+    /**
+     * Constructs a weighted graph from a binary file written by save
+     * *The file is memory-mapped and copied into a snapshot, so the graph can be
+     * searched right away; the adjacency list is only built on the first change
+     * 
+     * @param filename the name of the file to read
+     * @return the weighted graph stored in the file
+     * @throws IOException file does not exist or is not a valid weighted graph file
+     */
+    public WeightedGraph loadWeighted(String filename) throws IOException {
+        return new WeightedGraph(CompactWeightedGraph.load(filename));
+    }
+
+    /**
+     * Opens a binary file written by save without loading its edges
+     * *Offsets, targets and weights stay in the memory-mapped file, so graphs too
+     * large for the heap can still be searched; the result is read-only
+     * 
+     * @param filename the name of the file to map
+     * @return the mapped graph
+     * @throws IOException file does not exist or is not a valid weighted graph file
+     */
+    public MappedWeightedGraph mapWeighted(String filename) throws IOException {
+        return MappedWeightedGraph.map(filename);
+    }
+
+    /**
+     * Returns an immutable compressed-sparse-row snapshot of the graph
+     * *The snapshot is cached until the graph is next modified
+     * 
+     * @return the CSR snapshot of the graph
+     */
+    public CompactWeightedGraph freeze() {
+        CompactWeightedGraph current = snapshot;
+        if (current != null)
+            return current;
+        synchronized (this) {
+            if (snapshot == null)
+                snapshot = buildSnapshot();
+            return snapshot;
+        }
+    }
+
+    /**
+     * Private helper method for freeze to build the CSR arrays
+     * 
+     * @return a new snapshot of the graph
+     */
+    private CompactWeightedGraph buildSnapshot() {
+        // number vertices in alphabetical order
+        String[] names = adjList.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        HashMap<String, Integer> ids = new HashMap<String, Integer>(names.length * 2);
+        for (int i = 0; i < names.length; i++)
+            ids.put(names[i], i);
+        // prefix sums of out-degrees give each vertex's edge range
+        int[] offsets = new int[names.length + 1];
+        for (int i = 0; i < names.length; i++)
+            offsets[i + 1] = offsets[i] + adjList.get(names[i]).edges.size();
+        int[] targets = new int[offsets[names.length]];
+        int[] weights = new int[offsets[names.length]];
+        for (int i = 0; i < names.length; i++) {
+            int e = offsets[i];
+            for (Edge edge : adjList.get(names[i]).edges.values()) {
+                targets[e] = ids.get(edge.end.name);
+                weights[e++] = edge.weight;
+            }
+        }
+        return new CompactWeightedGraph(names, offsets, targets, weights);
+    }
+
     /**
      * Finds the shortest path between two nodes using Dijkstra's Algorithm
+     * *Vertices are settled in order of cost using an indexed heap, and the search
+     * stops as soon as the end node is settled
+     * *If a shortest-path tree of the start node is cached, the path is read from
+     * it instead of searching
      * 
      * @param from start node
      * @param to   end node
@@ -293,117 +661,247 @@ public class WeightedGraph {
      *         array if no path exists or invalid arguments)
      */
     public String[] shortestPath(String from, String to) {
-        if (adjList.get(from) == null || adjList.get(to) == null)
-            return new String[0];
-        resetVertices();
-        Stack<String> path = new Stack<String>();
-        adjList.get(from).cost = 0;
-        // linked list acts as queue
-        LinkedList<String> vQueue = new LinkedList<String>();
-        vQueue.add(from);
-        Vertex curVertex;
-        while (!vQueue.isEmpty()) {
-            curVertex = adjList.get(vQueue.poll());
-            curVertex.visited = true;
-            // to node found
-            if (curVertex.name.equals(to)) {
-                Vertex trav = curVertex;
-                while (trav != null) {
-                    path.push(trav.name);
-                    trav = trav.parent;
-                }
-            }
-            // add neighbors to queue
-            for (Edge edge : curVertex.edges) {
-                // update cost if it is less than current estimate
-                if (curVertex.cost + edge.weight < edge.end.cost) {
-                    edge.end.cost = curVertex.cost + edge.weight;
-                    edge.end.parent = curVertex;
-                }
-                if (!edge.end.visited) {
-                    vQueue.add(edge.end.name);
-                    edge.end.visited = true;
-                }
-            }
+        ShortestPathTree tree;
+        synchronized (trees) {
+            tree = trees.get(from);
         }
-        String[] pathArr = new String[path.size()];
-        int i = 0;
-        while (!path.isEmpty())
-            pathArr[i++] = path.pop();
-        return pathArr;
+        if (tree != null)
+            return tree.pathTo(to);
+        return freeze().shortestPath(from, to);
     }
 
-    public String[] secondShortestPath(String from, String to) {
-        // establish a shortest path
-        String[] shortestPath = shortestPath(from, to);
-        int leastCost = adjList.get(to).cost;
-        LinkedList<String[]> pathList = new LinkedList<String[]>();
-        // at every node in the shortest path, disconnect an edge and try Dijkstra's
-        // algorithm to find alternate path
-        for (int i = shortestPath.length - 1; i > 0; i--) {
-            Edge curEdge = removeEdge(shortestPath[i - 1], shortestPath[i],
-                    getCost(shortestPath[i - 1], shortestPath[i]));
-            String[] nextPath = shortestPath(from, to);
-            if (adjList.get(to).cost == leastCost)
-                nextPath = secondShortestPath(from, to);
-            if (nextPath.length != 0)
-                pathList.add(nextPath);
-            addWeightedEdge(shortestPath[i - 1], shortestPath[i], curEdge.weight);
+    /**
+     * Returns the shortest paths from one node to every node it can reach
+     * *Trees are kept in a least-recently-used cache keyed by start node, so later
+     * calls and shortestPath queries from the same node walk the cached tree
+     * *Adding an edge or removing a node empties the cache; adding a node keeps it,
+     * since no distance changes
+     * 
+     * @param from start node
+     * @return the costs and parents of every reachable node (null if the node does
+     *         not exist)
+     */
+    public ShortestPathTree shortestPathTree(String from) {
+        CompactWeightedGraph current = freeze();
+        synchronized (trees) {
+            ShortestPathTree tree = trees.get(from);
+            if (tree != null)
+                return tree;
         }
-        int i = 0;
-        int shortestInd = -1;
-        int shortestLength = Integer.MAX_VALUE;
-        for (String[] path : pathList) {
-            if (path.length < shortestLength)
-                shortestInd = i;
-            i++;
+        ShortestPathTree tree = current.shortestPathTree(from);
+        if (tree != null) {
+            synchronized (trees) {
+                // a tree grown while the graph changed may already be out of date
+                if (snapshot == current)
+                    trees.put(from, tree);
+            }
         }
-        if (shortestInd == -1)
-            return new String[0];
-        return pathList.get(shortestInd);
+        return tree;
+    }
+
+    /**
+     * Finds the shortest paths from one node to every node it can reach using
+     * parallel delta-stepping
+     * *Results are not cached; they match shortestPathTree exactly
+     * 
+     * @param from  start node
+     * @param delta width of each bucket of tentative costs (at least 1)
+     * @param pool  runs the relaxations
+     * @return the costs and parents of every reachable node (null if the node does
+     *         not exist)
+     */
+    public ShortestPathTree deltaStepping(String from, int delta, ForkJoinPool pool) {
+        return freeze().deltaStepping(from, delta, pool);
     }
 
     /**
-     * Private helper method for secondShortestPath
+     * Finds the shortest paths from one node to every node it can reach using
+     * delta-stepping on the common fork-join pool
      * 
-     * @param start start of the edge
-     * @param end end of the edge
-     * @param weight weight of the edge
-     * @return the removed edge
+     * @param from  start node
+     * @param delta width of each bucket of tentative costs (at least 1)
+     * @return the costs and parents of every reachable node (null if the node does
+     *         not exist)
      */
-    private Edge removeEdge(String start, String end, int weight) {
-        Edge edge = new Edge(adjList.get(start), adjList.get(end), weight);
-        adjList.get(start).edges.remove(edge);
-        return edge;
+    public ShortestPathTree deltaStepping(String from, int delta) {
+        return freeze().deltaStepping(from, delta);
     }
 
     /**
-     * Private helper method for secondShortestPath
+     * Sets how many shortest-path trees the cache keeps, evicting the least
+     * recently used ones if there are more
+     * *Each tree holds 12 bytes per node
      * 
-     * @param start start of the edge
-     * @param end end of the edge
-     * @return the weight of the edge
+     * @param capacity the most trees to keep (0 disables the cache)
      */
-    private int getCost(String start, String end) {
-        Edge edge = new Edge(adjList.get(start), adjList.get(end), 0);
-        for (Edge e : adjList.get(start).edges) {
-            if (e.equals(edge))
-                edge = e;
+    public void setTreeCacheCapacity(int capacity) {
+        synchronized (trees) {
+            treeCacheCapacity = Math.max(capacity, 0);
+            Iterator<String> eldest = trees.keySet().iterator();
+            while (trees.size() > treeCacheCapacity) {
+                eldest.next();
+                eldest.remove();
+            }
         }
-        return edge.weight;
     }
 
     /**
-     * Private helper method for resetting vertex parents, visited, and costs
+     * Private helper method for the graph changes that can change distances, which
+     * makes every cached shortest-path tree out of date
      */
-    private void resetVertices() {
-        for (String vertex : vertices) {
-            adjList.get(vertex).parent = null;
-            adjList.get(vertex).visited = false;
-            adjList.get(vertex).cost = Integer.MAX_VALUE;
+    private void clearTrees() {
+        synchronized (trees) {
+            trees.clear();
         }
     }
 
+    /**
+     * Answers a batch of path queries in parallel, grouping queries that share a
+     * start node so one search answers all of them
+     * 
+     * @param queries the (from, to) pairs to answer
+     * @return shortest paths in the same order as the queries (empty arrays
+     *         for invalid or unreachable pairs)
+     */
+    public List<String[]> shortestPaths(List<PathQuery> queries) {
+        return freeze().shortestPaths(queries);
+    }
+
+    /**
+     * Answers a batch of path queries in parallel without blocking the caller
+     * 
+     * @param queries  the (from, to) pairs to answer
+     * @param executor runs the per-group searches
+     * @return a future of shortest paths in the same order as the queries
+     */
+    public CompletableFuture<List<String[]>> shortestPathsAsync(List<PathQuery> queries, Executor executor) {
+        return freeze().shortestPathsAsync(queries, executor);
+    }
+
+    /**
+     * Finds the shortest path between two nodes using bidirectional Dijkstra, which
+     * searches forward from the start node and backward along incoming edges from
+     * the end node
+     * 
+     * @param from start node
+     * @param to   end node
+     * @return String array representing a shortest path between two nodes, as cheap
+     *         as the one shortestPath returns (empty array if no path exists or
+     *         invalid arguments)
+     */
+    public String[] bidirectionalDijkstra(String from, String to) {
+        return freeze().bidirectionalDijkstra(from, to);
+    }
+
+    /**
+     * Computes the cost of the shortest path from every start node to every end
+     * node, such as travel costs between depots and drop-off points
+     * *Uses bucket-based many-to-many search on the contraction hierarchy of the
+     * current graph, so a table costs one upward search per node instead of one
+     * query per pair
+     * 
+     * @param sources start nodes, one per row
+     * @param targets end nodes, one per column
+     * @return the cost of the shortest path between every pair (-1 if no path
+     *         exists or invalid arguments)
+     */
+    public long[][] distanceTable(String[] sources, String[] targets) {
+        return freeze().distanceTable(sources, targets);
+    }
+
+    /**
+     * Returns a contraction hierarchy of the graph for fast repeated shortest path
+     * queries
+     * *Preprocessing runs once per version of the graph; the hierarchy can be saved
+     * and loaded with ContractionHierarchy.load, and keeps answering from the
+     * edges it was built from after the graph changes
+     * 
+     * @return the contraction hierarchy of the current graph
+     */
+    public ContractionHierarchy contractionHierarchy() {
+        return freeze().contractionHierarchy();
+    }
+
+    /**
+     * Returns hub labels of the graph, an exact distance oracle that answers
+     * distance queries by merging two short sorted labels instead of searching
+     * *Preprocessing runs once per version of the graph; the labels can be saved
+     * and loaded with HubLabels.load, and keep answering with the distances they
+     * were built from after the graph changes
+     *
+     * @return the hub labels of the current graph
+     * @throws ArithmeticException a distance is larger than Integer.MAX_VALUE
+     */
+    public HubLabels hubLabels() {
+        return freeze().hubLabels();
+    }
+
+    /**
+     * Returns the strongly connected components of the graph with a reachability
+     * index over the DAG they form
+     * *The index is built once per version of the graph and is kept when a weight
+     * changes, since reachability does not depend on weights
+     *
+     * @return the reachability index of the current graph
+     */
+    public ReachabilityIndex reachabilityIndex() {
+        return freeze().reachabilityIndex();
+    }
+
+    /**
+     * Checks whether there is a path from one node to another without running a
+     * shortest-path search; most pairs are answered from the component labels
+     * alone
+     *
+     * @param from start node
+     * @param to   end node
+     * @return true if the end node can be reached from the start node (false if
+     *         either node does not exist)
+     */
+    public boolean isReachable(String from, String to) {
+        return freeze().isReachable(from, to);
+    }
+
+    /**
+     * Finds the shortest path between two nodes using A* search
+     * 
+     * @param from      start node
+     * @param to        end node
+     * @param heuristic lower bounds on the cost of reaching the end node, such as
+     *                  greatCircleHeuristic(), a landmarkIndex, or Heuristic.NONE
+     *                  for Dijkstra
+     * @return the path with its cost and the number of vertices settled (no nodes
+     *         and a cost of -1 if no path exists or invalid arguments)
+     */
+    public Path aStar(String from, String to, Heuristic heuristic) {
+        return freeze().aStar(from, to, heuristic);
+    }
+
+    /**
+     * Finds the second shortest path between two nodes
+     * 
+     * @param from start node
+     * @param to   end node
+     * @return String array representing the second shortest path (empty if doesn't
+     *         exist or invalid arguments)
+     */
+    public String[] secondShortestPath(String from, String to) {
+        return freeze().secondShortestPath(from, to);
+    }
+
+    /**
+     * Finds the k shortest loopless paths between two nodes using Yen's algorithm
+     * 
+     * @param from start node
+     * @param to   end node
+     * @param k    the number of paths wanted
+     * @return up to k paths with their costs (total weight), cheapest first
+     *         (empty if no path exists or invalid arguments)
+     */
+    public List<Path> kShortestPaths(String from, String to, int k) {
+        return freeze().kShortestPaths(from, to, k);
+    }
+
     public static void main(String[] args) {
         WeightedGraph poland = new WeightedGraph();
         try {
@@ -1,7 +1,12 @@
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import org.junit.Assert;
 import org.junit.Test;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 public class WeightedGraphTest {
     WeightedGraph graph = new WeightedGraph();
@@ -85,6 +90,287 @@ public class WeightedGraphTest {
         Assert.assertEquals(false, graph.removeNodes(nodelist));
     }
 
+    @Test
+    public void testRemoveNodeEdges() {
+        String[] names = {"A", "B", "C", "D"};
+        graph.addNodes(names);
+        graph.addWeightedEdge("A", "B", 1);
+        graph.addWeightedEdge("C", "B", 1);
+        graph.addWeightedEdge("B", "D", 1);
+        graph.addWeightedEdge("A", "D", 5);
+        Assert.assertEquals("[A, B, D]", Arrays.toString(graph.shortestPath("A", "D")));
+
+        // edges into and out of the node go with it
+        Assert.assertEquals(true, graph.removeNode("B"));
+        Assert.assertEquals(3, graph.freeze().vertexCount());
+        Assert.assertEquals(1, graph.freeze().edgeCount());
+        Assert.assertEquals("[A, D]", Arrays.toString(graph.shortestPath("A", "D")));
+
+        // a new node with the same name starts without edges
+        graph.addNode("B");
+        Assert.assertEquals("[]", Arrays.toString(graph.shortestPath("A", "B")));
+        Assert.assertEquals(true, graph.addWeightedEdge("A", "B", 1));
+        Assert.assertEquals(true, graph.addWeightedEdge("B", "D", 1));
+        Assert.assertEquals("[A, B, D]", Arrays.toString(graph.shortestPath("A", "D")));
+    }
+
+    @Test
+    public void testHasEdgeGetWeight() {
+        String[] names = {"A", "B", "C"};
+        graph.addNodes(names);
+        graph.addWeightedEdge("A", "B", 7);
+
+        // edges are directed
+        Assert.assertEquals(true, graph.hasEdge("A", "B"));
+        Assert.assertEquals(false, graph.hasEdge("B", "A"));
+        Assert.assertEquals(7, graph.getWeight("A", "B"));
+        Assert.assertEquals(-1, graph.getWeight("B", "A"));
+
+        // -1 if either node does not exist
+        Assert.assertEquals(false, graph.hasEdge("A", "Z"));
+        Assert.assertEquals(-1, graph.getWeight("Z", "A"));
+
+        // a duplicate edge keeps its original weight
+        Assert.assertEquals(false, graph.addWeightedEdge("A", "B", 3));
+        Assert.assertEquals(7, graph.getWeight("A", "B"));
+        graph.removeNode("B");
+        Assert.assertEquals(false, graph.hasEdge("A", "B"));
+    }
+
+    @Test
+    public void testReadWeightedParallel() {
+        try {
+            String file = "C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt";
+            WeightedGraph sequential = graph.readWeighted(file);
+            WeightedGraph parallel = graph.readWeightedParallel(file);
+            // same nodes, edges and weights as the sequential reader
+            Assert.assertEquals(sequential.freeze().vertexCount(), parallel.freeze().vertexCount());
+            Assert.assertEquals(sequential.freeze().edgeCount(), parallel.freeze().edgeCount());
+            String[] names = {"Warsaw", "Lublin", "Bialystok", "Radom", "Krakow", "Gliwice", "Poznan"};
+            for (String from : names) {
+                for (String to : names)
+                    Assert.assertEquals(sequential.getWeight(from, to), parallel.getWeight(from, to));
+            }
+            Assert.assertEquals(Arrays.toString(sequential.shortestPath("Rzeszow", "Szczecin")),
+                    Arrays.toString(parallel.shortestPath("Rzeszow", "Szczecin")));
+        } catch (FileNotFoundException e) {
+            Assert.assertTrue(false);
+        }
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        File file = File.createTempFile("weighted", ".bin");
+        file.deleteOnExit();
+        graph.save(file.getPath());
+        WeightedGraph loaded = graph.loadWeighted(file.getPath());
+
+        // the loaded graph answers queries straight from the file's arrays
+        Assert.assertEquals(graph.freeze().vertexCount(), loaded.freeze().vertexCount());
+        Assert.assertEquals(graph.freeze().edgeCount(), loaded.freeze().edgeCount());
+        Assert.assertEquals(173, loaded.getWeight("Warsaw", "Lublin"));
+        Assert.assertEquals(-1, loaded.getWeight("Lublin", "Krakow"));
+        Assert.assertEquals(Arrays.toString(graph.shortestPath("Rzeszow", "Szczecin")),
+                Arrays.toString(loaded.shortestPath("Rzeszow", "Szczecin")));
+
+        // changing it builds the adjacency list from the snapshot first
+        Assert.assertEquals(false, loaded.addWeightedEdge("Warsaw", "Lublin", 1));
+        Assert.assertEquals(true, loaded.removeNode("Lublin"));
+        Assert.assertEquals(-1, loaded.getWeight("Warsaw", "Lublin"));
+        Assert.assertEquals(198, loaded.getWeight("Warsaw", "Bialystok"));
+
+        // an unweighted file is rejected
+        file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        new Graph().save(file.getPath());
+        try {
+            graph.loadWeighted(file.getPath());
+            Assert.assertTrue(false);
+        } catch (IOException e) {
+            // not weighted
+        }
+    }
+
+    @Test
+    public void testBidirectionalDijkstra() {
+        try {
+            graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\weightedExample2.txt");
+            Assert.assertEquals("[]", Arrays.toString(graph.bidirectionalDijkstra(null, "A")));
+            Assert.assertEquals("[A]", Arrays.toString(graph.bidirectionalDijkstra("A", "A")));
+            Assert.assertEquals("[A, B, G, E, D]", Arrays.toString(graph.bidirectionalDijkstra("A", "D")));
+            Assert.assertEquals("[A, B, G, E, F]", Arrays.toString(graph.bidirectionalDijkstra("A", "F")));
+            // edges are directed, so F reaches nothing
+            Assert.assertEquals("[]", Arrays.toString(graph.bidirectionalDijkstra("F", "A")));
+
+            // same costs as Dijkstra between every pair of cities
+            graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+            String[] cities = {"Warsaw", "Gdynia", "Szczecin", "Walbrzych", "Rzeszow", "Bialystok", "Kielce"};
+            for (String from : cities) {
+                for (String to : cities) {
+                    String[] expected = graph.shortestPath(from, to);
+                    String[] path = graph.bidirectionalDijkstra(from, to);
+                    Assert.assertEquals(from, path[0]);
+                    Assert.assertEquals(to, path[path.length - 1]);
+                    Assert.assertEquals(pathCost(expected), pathCost(path));
+                }
+            }
+        } catch (FileNotFoundException e) {
+            Assert.assertTrue(false);
+        }
+    }
+
+    @Test
+    public void testShortestPathTree() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        Assert.assertNull(graph.shortestPathTree("Berlin"));
+        ShortestPathTree tree = graph.shortestPathTree("Rzeszow");
+        Assert.assertEquals("Rzeszow", tree.getSource());
+        Assert.assertEquals(899, tree.distanceTo("Szczecin"));
+        Assert.assertEquals("Poznan", tree.getParent("Szczecin"));
+        Assert.assertNull(tree.getParent("Rzeszow"));
+        Assert.assertEquals(-1, tree.distanceTo("Berlin"));
+        Assert.assertEquals("[]", Arrays.toString(tree.pathTo("Berlin")));
+
+        // the tree gives the same paths as Dijkstra to every node
+        CompactWeightedGraph snapshot = graph.freeze();
+        for (int i = 0; i < snapshot.vertexCount(); i++) {
+            String to = snapshot.name(i);
+            String[] expected = snapshot.shortestPath("Rzeszow", to);
+            Assert.assertEquals(Arrays.toString(expected), Arrays.toString(tree.pathTo(to)));
+            Assert.assertEquals(expected.length == 0 ? -1 : pathCost(expected), tree.distanceTo(to));
+        }
+
+        // cached until an edge is added, but kept when a node is added
+        Assert.assertTrue(tree == graph.shortestPathTree("Rzeszow"));
+        graph.addNode("Berlin");
+        Assert.assertTrue(tree == graph.shortestPathTree("Rzeszow"));
+        Assert.assertEquals("[]", Arrays.toString(graph.shortestPath("Rzeszow", "Berlin")));
+        graph.addWeightedEdge("Szczecin", "Berlin", 150);
+        ShortestPathTree newTree = graph.shortestPathTree("Rzeszow");
+        Assert.assertTrue(tree != newTree);
+        Assert.assertEquals(1049, newTree.distanceTo("Berlin"));
+        Assert.assertEquals(1049, pathCost(graph.shortestPath("Rzeszow", "Berlin")));
+        graph.removeNode("Berlin");
+        Assert.assertTrue(newTree != graph.shortestPathTree("Rzeszow"));
+
+        // the least recently used tree is evicted first
+        graph.setTreeCacheCapacity(2);
+        ShortestPathTree warsaw = graph.shortestPathTree("Warsaw");
+        ShortestPathTree krakow = graph.shortestPathTree("Krakow");
+        Assert.assertTrue(warsaw == graph.shortestPathTree("Warsaw"));
+        graph.shortestPathTree("Gdansk");
+        Assert.assertTrue(warsaw == graph.shortestPathTree("Warsaw"));
+        Assert.assertTrue(krakow != graph.shortestPathTree("Krakow"));
+        graph.setTreeCacheCapacity(0);
+        Assert.assertTrue(warsaw != graph.shortestPathTree("Warsaw"));
+    }
+
+    @Test
+    public void testUpdateWeight() throws IOException {
+        graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        Assert.assertFalse(graph.updateWeight("Rzeszow", "Szczecin", 10));
+        Assert.assertFalse(graph.updateWeight("Poznan", "Szczecin", 0));
+        Assert.assertFalse(graph.updateWeight("Berlin", "Szczecin", 10));
+        ShortestPathTree tree = graph.shortestPathTree("Rzeszow");
+        int weight = graph.getWeight("Poznan", "Szczecin");
+        Assert.assertTrue(graph.updateWeight("Poznan", "Szczecin", weight + 1000));
+        Assert.assertEquals(weight + 1000, graph.getWeight("Poznan", "Szczecin"));
+
+        // the cached tree is repaired, and the tree handed out before is unchanged
+        ShortestPathTree repaired = graph.shortestPathTree("Rzeszow");
+        Assert.assertTrue(tree != repaired);
+        Assert.assertEquals(899, tree.distanceTo("Szczecin"));
+        Assert.assertEquals(pathCost(graph.freeze().shortestPath("Rzeszow", "Szczecin")),
+                repaired.distanceTo("Szczecin"));
+        Assert.assertTrue(repaired == graph.shortestPathTree("Rzeszow"));
+        Assert.assertTrue(graph.updateWeight("Poznan", "Szczecin", weight));
+        Assert.assertEquals(899, graph.shortestPathTree("Rzeszow").distanceTo("Szczecin"));
+        Assert.assertEquals("Poznan", graph.shortestPathTree("Rzeszow").getParent("Szczecin"));
+
+        Random random = new Random(233);
+        for (int round = 0; round < 10; round++) {
+            graph = new WeightedGraph();
+            String[] names = new String[2 + random.nextInt(40)];
+            for (int i = 0; i < names.length; i++)
+                names[i] = "v" + i;
+            graph.addNodes(names);
+            ArrayList<String[]> edges = new ArrayList<String[]>();
+            for (int i = random.nextInt(names.length * 4); i > 0; i--) {
+                String from = names[random.nextInt(names.length)];
+                String to = names[random.nextInt(names.length)];
+                if (graph.addWeightedEdge(from, to, 1 + random.nextInt(10)))
+                    edges.add(new String[] {from, to});
+            }
+            if (edges.isEmpty())
+                continue;
+            String[] sources = {names[0], names[1]};
+            for (String source : sources)
+                graph.shortestPathTree(source);
+            // a tree kept across addNode is repaired in its own snapshot
+            if (round % 2 == 0)
+                graph.addNode("isolated");
+            for (int update = 0; update < 30; update++) {
+                String[] edge = edges.get(random.nextInt(edges.size()));
+                Assert.assertTrue(graph.updateWeight(edge[0], edge[1], 1 + random.nextInt(10)));
+                for (String source : sources) {
+                    ShortestPathTree cached = graph.shortestPathTree(source);
+                    ShortestPathTree expected = graph.freeze().shortestPathTree(source);
+                    for (String to : names) {
+                        Assert.assertEquals(expected.distanceTo(to), cached.distanceTo(to));
+                        Assert.assertEquals(expected.getParent(to), cached.getParent(to));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param path nodes along a path in graph
+     * @return the total weight of the path's edges
+     */
+    private long pathCost(String[] path) {
+        long cost = 0;
+        for (int i = 0; i + 1 < path.length; i++)
+            cost += graph.getWeight(path[i], path[i + 1]);
+        return cost;
+    }
+
+    @Test
+    public void testAStar() {
+        try {
+            graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        } catch (FileNotFoundException e) {
+            Assert.assertTrue(false);
+        }
+        String[] cities = {"Warsaw", "Lublin", "Bialystok", "Radom", "Torun", "Poznan", "Kielce", "Bydgoszcz",
+                "Gdansk", "Gdynia", "Koszalin", "Szczecin", "Wroclaw", "Walbrzych", "Krakow", "Tarnow", "Rzeszow",
+                "Gliwice"};
+        double[][] positions = {{52.2297, 21.0122}, {51.2465, 22.5684}, {53.1325, 23.1688}, {51.4027, 21.1471},
+                {53.0138, 18.5984}, {52.4064, 16.9252}, {50.8661, 20.6286}, {53.1235, 18.0084}, {54.3520, 18.6466},
+                {54.5189, 18.5305}, {54.1944, 16.1722}, {53.4285, 14.5528}, {51.1079, 17.0385}, {50.7714, 16.2843},
+                {50.0647, 19.9450}, {50.0121, 20.9858}, {50.0412, 21.9991}, {50.2945, 18.6714}};
+        for (int i = 0; i < cities.length; i++)
+            Assert.assertEquals(true, graph.setCoordinates(cities[i], positions[i][0], positions[i][1]));
+        Assert.assertEquals(false, graph.setCoordinates("Berlin", 52.52, 13.405));
+        Assert.assertEquals(false, graph.setCoordinates("Warsaw", 91, 0));
+
+        // road lengths are never shorter than the great-circle distance, so A* finds
+        // paths as cheap as Dijkstra's
+        Heuristic greatCircle = graph.greatCircleHeuristic();
+        for (String from : cities) {
+            for (String to : cities) {
+                Path guided = graph.aStar(from, to, greatCircle);
+                Path plain = graph.aStar(from, to, Heuristic.NONE);
+                Assert.assertEquals(plain.getCost(), guided.getCost());
+                Assert.assertTrue(guided.getSettled() <= plain.getSettled());
+            }
+        }
+        Path path = graph.aStar("Rzeszow", "Szczecin", greatCircle);
+        Assert.assertEquals("[Rzeszow, Tarnow, Krakow, Gliwice, Wroclaw, Poznan, Szczecin] (899)", path.toString());
+        Assert.assertTrue(path.getSettled() < graph.aStar("Rzeszow", "Szczecin", Heuristic.NONE).getSettled());
+    }
+
     @Test
     public void testShortestPath() {
         try {
@@ -124,6 +410,77 @@ public class WeightedGraphTest {
         
     }
     
+    @Test
+    public void testShortestPathLargeWeights() {
+        String[] names = {"A", "B", "C", "D"};
+        graph.addNodes(names);
+        // costs past Integer.MAX_VALUE do not overflow
+        graph.addWeightedEdge("A", "B", Integer.MAX_VALUE);
+        graph.addWeightedEdge("B", "C", Integer.MAX_VALUE);
+        graph.addWeightedEdge("A", "D", Integer.MAX_VALUE - 1);
+        graph.addWeightedEdge("D", "C", Integer.MAX_VALUE);
+        Assert.assertEquals("[A, D, C]", Arrays.toString(graph.shortestPath("A", "C")));
+
+        // cheaper path found through more edges
+        graph.addWeightedEdge("B", "D", 1);
+        graph.addWeightedEdge("A", "C", Integer.MAX_VALUE);
+        Assert.assertEquals("[A, C]", Arrays.toString(graph.shortestPath("A", "C")));
+    }
+
+    @Test
+    public void testConcurrentQueries() throws InterruptedException {
+        try {
+            graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        } catch (FileNotFoundException e) {
+            Assert.assertTrue(false);
+        }
+        final String expected = Arrays.toString(graph.shortestPath("Rzeszow", "Szczecin"));
+        final boolean[] failed = new boolean[1];
+        // many threads share one graph, each query with its own search state
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (!expected.equals(Arrays.toString(graph.shortestPath("Rzeszow", "Szczecin"))))
+                        failed[0] = true;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        Assert.assertEquals(false, failed[0]);
+        Assert.assertEquals("[Rzeszow, Tarnow, Krakow, Gliwice, Wroclaw, Poznan, Szczecin]", expected);
+    }
+
+    @Test
+    public void testShortestPaths() {
+        try {
+            graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\Poland.txt");
+        } catch (FileNotFoundException e) {
+            Assert.assertTrue(false);
+        }
+        String[] cities = {"Warsaw", "Gdansk", "Krakow", "Rzeszow", "Szczecin", "Walbrzych"};
+        List<PathQuery> queries = new ArrayList<PathQuery>();
+        for (String from : cities) {
+            for (String to : cities)
+                queries.add(new PathQuery(from, to));
+        }
+        // invalid queries are answered with empty paths
+        queries.add(new PathQuery("Warsaw", "Berlin"));
+        queries.add(new PathQuery(null, "Warsaw"));
+
+        List<String[]> paths = graph.shortestPaths(queries);
+        Assert.assertEquals(queries.size(), paths.size());
+        // results come back in input order and match single queries
+        for (int i = 0; i < queries.size(); i++) {
+            PathQuery query = queries.get(i);
+            Assert.assertEquals(Arrays.toString(graph.shortestPath(query.getFrom(), query.getTo())),
+                    Arrays.toString(paths.get(i)));
+        }
+        Assert.assertEquals("[]", Arrays.toString(paths.get(queries.size() - 1)));
+    }
+
     @Test
     public void testSecondShortestPath() {
         WeightedGraph graph = new WeightedGraph();
@@ -154,6 +511,35 @@ public class WeightedGraphTest {
         }
     }
 
+    @Test
+    public void testKShortestPaths() {
+        try {
+            graph = graph.readWeighted("C:\\Users\\clin1\\Documents\\CSDS_233_Data_Structures\\P6\\weightedExample2.txt");
+            List<Path> paths = graph.kShortestPaths("A", "D", 3);
+            Assert.assertEquals(3, paths.size());
+            Assert.assertEquals("[A, B, G, E, D] (9)", paths.get(0).toString());
+            // ties are ordered by number of edges, then by name
+            Assert.assertEquals("[A, C, D] (10)", paths.get(1).toString());
+            Assert.assertEquals("[A, B, E, D] (10)", paths.get(2).toString());
+
+            // fewer paths than asked for when no more exist
+            paths = graph.kShortestPaths("A", "C", 5);
+            Assert.assertEquals(2, paths.size());
+            Assert.assertEquals(3, paths.get(0).getCost());
+            Assert.assertEquals("[A, B, C]", Arrays.toString(paths.get(1).getNodes()));
+
+            // invalid inputs and unreachable nodes
+            Assert.assertEquals(0, graph.kShortestPaths("A", "D", 0).size());
+            Assert.assertEquals(0, graph.kShortestPaths("F", "A", 2).size());
+            Assert.assertEquals(0, graph.kShortestPaths("A", null, 2).size());
+
+            // the graph is unchanged afterwards
+            Assert.assertEquals("[A, B, G, E, D]", Arrays.toString(graph.shortestPath("A", "D")));
+        } catch (FileNotFoundException e) {
+            Assert.assertTrue(false);
+        }
+    }
+
     public static void main(String[] args) {
         WeightedGraph graph = new WeightedGraph();
         graph.addNode("A");